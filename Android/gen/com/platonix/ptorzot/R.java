@@ -26,10 +26,16 @@ public final class R {
         public static final int button2=0x7f07000b;
         public static final int button3=0x7f07000c;
         public static final int button4=0x7f07000d;
+        public static final int button5=0x7f070017;
+        public static final int button6=0x7f070018;
+        public static final int button7=0x7f070019;
         public static final int close=0x7f070005;
         public static final int level=0x7f070007;
         public static final int menu_exit=0x7f070014;
         public static final int menu_new_game=0x7f070013;
+        public static final int menu_numbers=0x7f07001a;
+        public static final int menu_redo=0x7f070015;
+        public static final int menu_trace=0x7f070016;
         public static final int numbers=0x7f070001;
         public static final int numbers_pane=0x7f070008;
         public static final int op_add=0x7f07000f;
@@ -55,6 +61,7 @@ public final class R {
         public static final int cancel=0x7f04001a;
         public static final int check_result=0x7f04000c;
         public static final int choose=0x7f040019;
+        public static final int choose_numbers=0x7f040023;
         public static final int divide=0x7f040005;
         public static final int exit_game=0x7f04000d;
         public static final int level1_long=0x7f040013;
@@ -63,14 +70,22 @@ public final class R {
         public static final int level2_short=0x7f040014;
         public static final int level3_long=0x7f040017;
         public static final int level3_short=0x7f040016;
+        public static final int level4_long=0x7f04001e;
+        public static final int level4_short=0x7f04001d;
         public static final int levels_title=0x7f040018;
         public static final int menu_exit=0x7f040010;
         public static final int menu_new_game=0x7f040011;
+        public static final int menu_numbers=0x7f04001f;
+        public static final int menu_redo=0x7f04001b;
+        public static final int menu_trace=0x7f04001c;
         public static final int minus=0x7f040003;
         public static final int mission=0x7f040006;
         public static final int newgame=0x7f04000a;
         public static final int no=0x7f04000f;
         public static final int numbers=0x7f040007;
+        public static final int numbers_countdown=0x7f040022;
+        public static final int numbers_standard=0x7f040021;
+        public static final int numbers_title=0x7f040020;
         public static final int plus=0x7f040002;
         public static final int right=0x7f040008;
         public static final int times=0x7f040004;
@@ -8,7 +8,10 @@ import android.widget.Button;
 import android.widget.ImageView;
 import android.widget.TextView;
 
-import com.platonix.ptorzot.GameState.OnePlay;
+import com.platonix.ptorzot.core.Formattings;
+import com.platonix.ptorzot.core.GameState;
+import com.platonix.ptorzot.core.GameState.OnePlay;
+import com.platonix.ptorzot.math.Rational;
 
 public class CheckResultActivity extends Activity 
 {
@@ -28,7 +31,7 @@ public class CheckResultActivity extends Activity
         setContentView(R.layout.activity_check_result);
         
         Intent intent = getIntent();
-        _game = (GameState)intent.getExtras().get("play");
+        _game = ((GameStateParcel)intent.getExtras().get("play")).getGame();
         loadControls();
         setControlContent();
     }
@@ -47,66 +50,56 @@ public class CheckResultActivity extends Activity
     {
     	_target.setText(Integer.toString(_game.getTarget()));
     	
-    	String numbers = "";
-    	boolean first = true;
+    	_sb.setLength(0);
     	for(int number: _game.getNumbers())
     	{
-    		if(!first)
-    			numbers += ", ";
-    		first = false;
-    		numbers = numbers + Integer.toString(number);
+    		if(_sb.length()>0)
+    			_sb.append(", ");
+    		_sb.append(number);
     	}
     	
-    	_numbers.setText(numbers);
+    	_numbers.setText(_sb);
     	
     	checkSolution();
     }
     
-    private double applyPlay(double[] numbers, OnePlay play)
+    private long applyPlay(long[] numbers, OnePlay play)
     {
-    	double a = numbers[play.getFirst()];
-    	double b = numbers[play.getSecond()];
+    	long a = numbers[play.getFirst()];
+    	long b = numbers[play.getSecond()];
     	return Formattings.applyOperation(a, b, play.getOp());
     }
             
     private String _trace;
-    private double _result;
+    private long _result;
+    private final StringBuilder _sb = new StringBuilder(128);
     
     private void traceSolution()
     {
-    	double[] numbers = new double[_game.getNumbers().length];
-    	String[] printedNumbers = new String[_game.getNumbers().length]; 
+    	long[] numbers = new long[_game.getNumbers().length];
     	for(int i=0; i<_game.getNumbers().length; i++)
-    	{
-    		numbers[i] = _game.getNumbers()[i];
-    		printedNumbers[i] = Formattings.getPrintedNumber(numbers[i]);
-    	}
+    		numbers[i] = Rational.of(_game.getNumbers()[i]);
     	
-    	double result = 0.0;
-    	StringBuilder sb = new StringBuilder();
+    	long result = Rational.ZERO;
+    	_sb.setLength(0);
     	for(OnePlay play: _game.getPlays())
     	{
     		result = applyPlay(numbers, play);
-    		String printedResult = Formattings.getPrintedNumber(result);
     		
-    		sb.append(String.format("%s %s %s = %s",
-    				printedNumbers[play.getFirst()],
-    				Formattings.getOpString(play.getOp()),
-    				printedNumbers[play.getSecond()],
-    				printedResult));
-    		sb.append("\n");
+    		Formattings.appendPrintedNumber(_sb, numbers[play.getFirst()]);
+    		_sb.append(' ').append(Formattings.getOpString(play.getOp())).append(' ');
+    		Formattings.appendPrintedNumber(_sb, numbers[play.getSecond()]);
+    		_sb.append(" = ");
+    		Formattings.appendPrintedNumber(_sb, result);
+    		_sb.append('\n');
     		
     		numbers[play.getFirst()] = result;
-    		printedNumbers[play.getFirst()] = printedResult;
     		for(int i=play.getSecond(); i<numbers.length-1; i++)
-    		{
     			numbers[i] = numbers[i+1];
-    			printedNumbers[i] = printedNumbers[i+1];
-    		}
     	}
     	
     	_result = result;
-    	_trace = sb.toString();
+    	_trace = _sb.toString();
     }
     
     private void checkSolution()
@@ -114,7 +107,7 @@ public class CheckResultActivity extends Activity
     	traceSolution();
     	_progress.setText(_trace);
     	
-    	if(Math.abs(_result - _game.getTarget())  < 1e-5)
+    	if(_result==Rational.of(_game.getTarget()))
     	{
     		setResult(RIGHT_RESULT);
     		_rightImage.setVisibility(View.VISIBLE);
@@ -1,16 +1,24 @@
 package com.platonix.ptorzot;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
 import android.app.Activity;
 import android.app.AlertDialog;
 import android.content.Context;
 import android.content.DialogInterface;
 import android.content.Intent;
+import android.content.pm.ApplicationInfo;
+import android.content.res.ColorStateList;
+import android.graphics.Color;
 import android.graphics.Point;
 import android.hardware.Sensor;
 import android.hardware.SensorManager;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Vibrator;
+import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
@@ -22,7 +30,13 @@ import android.widget.Button;
 import android.widget.TextView;
 import android.widget.Toast;
 
-import com.platonix.ptorzot.GameState.OnePlay;
+import com.platonix.ptorzot.core.GameJournal;
+import com.platonix.ptorzot.core.GameSession;
+import com.platonix.ptorzot.core.GameState;
+import com.platonix.ptorzot.core.GameState.OnePlay;
+import com.platonix.ptorzot.core.GameStateCodec;
+import com.platonix.ptorzot.core.PuzzlePool;
+import com.platonix.ptorzot.core.Trace;
 import com.platonix.ptorzot.level.GameLevel;
 
 @SuppressWarnings("deprecation")
@@ -37,11 +51,13 @@ public class GameActivity extends Activity
 	
 	TextView _levelView;
 	
-	// The game
-	GameState _game;
+	// The game, with its labels and the play being entered
+	GameSession _session;
 	
-	// Button labels, to be compounded as the game goes on
-	String [] _labels;
+	// Autosaving every play, so the game outlives the process
+	private GameJournal _journal;
+	private static final String JOURNAL_FILE = "game.journal";
+	private static final String TAG = "PtorZot";
 	
 	// Shaking
 	private SensorManager _SensorManager;
@@ -52,22 +68,49 @@ public class GameActivity extends Activity
 	
 	// Handling
 	private Handler _handler;
+	
+	// Checking if the target can still be reached after each move
+	private SolvabilityOracle _oracle;
+	private ColorStateList _targetColors;
+	private static final int UNREACHABLE_COLOR = Color.rgb(0xc0, 0x30, 0x30);
+	
+	// Tracing
+	private static final Trace.Span CREATE = Trace.span("activity.create");
+	private static final Trace.Span LOAD_GAME = Trace.span("activity.loadGame");
+	private static final Trace.Span GET_SERVICES = Trace.span("activity.getServices");
+	private static final Trace.Span LAYOUT_WAIT = Trace.span("layout.wait");  // From posting the layout until it runs
+	private static final Trace.Span LAYOUT = Trace.span("layout.numbers");
 
 
     @Override
     public void onCreate(Bundle savedInstanceState) 
     {
+        long createStart = Trace.now();
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_game);
         
         _handler = new Handler();
+        _oracle = new SolvabilityOracle(_handler, new SolvabilityOracle.Listener()
+        {
+        	public void onSolvabilityChecked(boolean solvable)
+        	{
+        		showSolvability(solvable);
+        	}
+        });
         
         loadControls();
-    	_labels = new String[5];
+        Settings settings = new Settings(this);
+        GameLevel.setPuzzleSpec(settings.getPuzzleSpec());
+        getPuzzlePool().setDefaultLevel(settings.getDefaultLevel());
+        long start = Trace.now();
+        _journal = openJournal();
         if(savedInstanceState!=null)
         	readSavedInstanceState(savedInstanceState);
-        else
+        else if(!restoreJournal())
         	createNewGame();
+        else if(_session.isFinished())  // Killed with the last play made - check its result, as if just played
+        	onInputResult(GameSession.Result.Finished);
+        LOAD_GAME.end(start);
         
         ViewTreeObserver observer = _numbersPane.getViewTreeObserver();
         observer.addOnGlobalLayoutListener(new OnGlobalLayoutListener() 
@@ -76,9 +119,11 @@ public class GameActivity extends Activity
         	{
 				onLayoutComplete();
 				_numbersPane.getViewTreeObserver().removeGlobalOnLayoutListener(this);
+				((GameApplication)getApplication()).onStartupComplete();
 			}
 		});
         
+        start = Trace.now();
         _SensorManager = (SensorManager) getSystemService(Context.SENSOR_SERVICE);
         _SensorListener = new ShakeEventListener();   
         _SensorListener.setOnShakeListener(new ShakeEventListener.OnShakeListener() 
@@ -90,6 +135,7 @@ public class GameActivity extends Activity
         });
         
         _vibrator = (Vibrator) getSystemService(Context.VIBRATOR_SERVICE);
+        GET_SERVICES.end(start);
         _levelView.setOnClickListener(new View.OnClickListener()
         {
         	public void onClick(View v)
@@ -97,20 +143,52 @@ public class GameActivity extends Activity
         		onLevelClick();
         	}
         });
+        CREATE.end(createStart);
     }
     
     @Override
     public void onSaveInstanceState(Bundle bundle)
     {
     	super.onSaveInstanceState(bundle);
-    	bundle.putParcelable("gameState", _game);
-    	bundle.putStringArray("labels", _labels);
+    	bundle.putByteArray("gameState", GameStateCodec.encode(_session.getGame()));
     }
     
     private void readSavedInstanceState(Bundle bundle)
     {
-    	_game = bundle.getParcelable("gameState");
-    	_labels = bundle.getStringArray("labels");
+    	_session = new GameSession(GameStateCodec.decode(bundle.getByteArray("gameState")));
+    	updateJournal();
+    }
+    
+    private GameJournal openJournal()
+    {
+    	try
+    	{
+    		return GameJournal.open(new File(getFilesDir(), JOURNAL_FILE));
+    	}
+    	catch(IOException e)
+    	{
+    		Log.w(TAG, "Can't open the journal, games won't be autosaved", e);
+    		return null;
+    	}
+    }
+    
+    // Picks up the game the process was killed in the middle of
+    private boolean restoreJournal()
+    {
+    	if(_journal==null)
+    		return false;
+    	GameState game = _journal.restore();
+    	if(game==null || game.getLevel()==null)
+    		return false;
+    	_session = new GameSession(game);
+    	return true;
+    }
+    
+    // Just writes to the mapped journal, cheap enough after every input
+    private void updateJournal()
+    {
+    	if(_journal!=null)
+    		_journal.update(_session.getGame());
     }
 
     @Override
@@ -122,6 +200,13 @@ public class GameActivity extends Activity
     			SensorManager.SENSOR_DELAY_UI);
     }
 
+    @Override
+    protected void onDestroy()
+    {
+    	_oracle.shutdown();
+    	super.onDestroy();
+    }
+    
     @Override
     protected void onPause() 
     {
@@ -129,16 +214,22 @@ public class GameActivity extends Activity
     	super.onStop();
     }
     
+    private PuzzlePool getPuzzlePool()
+    {
+    	return ((GameApplication)getApplication()).getPuzzlePool();
+    }
+    
     private void createNewGame()
     {
     	Settings settings = new Settings(this);
     	GameLevel level = settings.getDefaultLevel();
-    	_game =  level.createNewGame();
+    	_session = new GameSession(getPuzzlePool().take(level));
+    	updateJournal();
     }
         
     private int activeButtonsNumber()
     {
-    	return 5 - _game.getPlays().size();
+    	return _session.getActiveNumbers();
     }
     
     private void onLayoutComplete()
@@ -150,33 +241,23 @@ public class GameActivity extends Activity
     
     private void initGameDisplay()
     {
-    	_targetView.setText(Integer.toString(_game.getTarget()));
-    	for(int i=0; i<5; i++)
-    		_labels[i] = Integer.toString(_game.getNumbers()[i]);
-    	
-    	for(int i=0; i<_game.getPlays().size(); i++)
-    		applyPlay(_game.getPlays().get(i), i);
+    	_targetView.setText(Integer.toString(_session.getGame().getTarget()));
+    	checkSolvability();
     	
-    	GameLevel level = _game.getLevel();
-    	_levelView.setText(level.getLevelTextId());
-    	_levelView.setCompoundDrawablesWithIntrinsicBounds(0, level.getLevelImageId(), 0, 0);
+    	GameLevel level = _session.getGame().getLevel();
+    	_levelView.setText(LevelResources.getTextId(level));
+    	_levelView.setCompoundDrawablesWithIntrinsicBounds(0, LevelResources.getImageId(level), 0, 0);
     	
-    	startNewEntry();
-    }
-    
-    private void applyPlay(OnePlay play, int playNum)
-    {
-    	_game.getLevel().getNextLabels(_labels, play);
+    	showEntry();
     }
      
     private void loadControls()
     {
-    	_numberButtons = new Button[5];
-    	_numberButtons[0] = (Button)findViewById(R.id.button0);
-    	_numberButtons[1] = (Button)findViewById(R.id.button1);
-    	_numberButtons[2] = (Button)findViewById(R.id.button2);
-    	_numberButtons[3] = (Button)findViewById(R.id.button3);
-    	_numberButtons[4] = (Button)findViewById(R.id.button4);
+    	int[] numberButtonIds = { R.id.button0, R.id.button1, R.id.button2, R.id.button3, 
+    			R.id.button4, R.id.button5, R.id.button6, R.id.button7 };  // GameState.MAX_NUMBERS
+    	_numberButtons = new Button[numberButtonIds.length];
+    	for(int i=0; i<numberButtonIds.length; i++)
+    		_numberButtons[i] = (Button)findViewById(numberButtonIds[i]);
     	
     	_opButtons = new Button[4];
     	_opButtons[0] = (Button)findViewById(R.id.op_add);
@@ -185,6 +266,7 @@ public class GameActivity extends Activity
     	_opButtons[3] = (Button)findViewById(R.id.op_div);
     	
     	_targetView = (TextView)findViewById(R.id.target);
+    	_targetColors = _targetView.getTextColors();
     	_scratchPad = (TextView)findViewById(R.id.scratch_pad);
     	_numbersPane = (AbsoluteLayout)findViewById(R.id.numbers_pane);
     	
@@ -199,14 +281,18 @@ public class GameActivity extends Activity
     private void layoutNumberButtons(int numButtons)
     {
     	final int nums = numButtons;
+    	final long posted = Trace.now();
 		_handler.post(new Runnable() // Layout the numbers only after the buttons' content is updated 
 		{
 			
 			@Override
 			public void run() 
 			{
+				LAYOUT_WAIT.end(posted);
 				// Call the delayed method only after the UI gets sorted out
+				long start = Trace.now();
 				delayedLayoutNumberButtons(nums);
+				LAYOUT.end(start);
 			}
 		});
     }
@@ -242,95 +328,64 @@ public class GameActivity extends Activity
     	view.setLayoutParams(p);
     }
     
-    /* Handling user input */
-    private void startNewEntry()
+    /* Handling user input - GameSession decides, the activity shows */
+    private void showEntry()
     {
-    	_entryState = EntryState.Empty;
-    	setScratchPadText();
+    	_scratchPad.setText(_session.getScratchPad());
     	for(int i=0; i<activeButtonsNumber(); i++)
     	{
-    		_numberButtons[i].setText(_labels[i]);
-    		_numberButtons[i].setEnabled(true);
+    		_numberButtons[i].setText(_session.getLabel(i));
+    		_numberButtons[i].setEnabled(_session.isNumberEnabled(i));
     		_numberButtons[i].setVisibility(View.VISIBLE);
     	}
     	for(int i=activeButtonsNumber(); i<_numberButtons.length; i++)
     		_numberButtons[i].setVisibility(View.INVISIBLE);
     }
     
-    enum EntryState
-    {
-    	Empty, FirstNumber, Operation, SecondNumber
-    }
-    private int _firstNumber, _secondNumber;
-    private char _operation;
-    private EntryState _entryState;
-
-    private String parenthesize(String s) // Add parentheses around a compound expression
+    public void onNumberClick(View btn)
     {
-    	if(s.length() < 3)
-    		return s;
-    	return "(" + s + ")";
+    	int btnIndex = Integer.parseInt(btn.getTag().toString());
+    	onInputResult(_session.onNumber(btnIndex));
     }
     
-    private void setScratchPadText()
+    public void onOperationClick(View btn)
     {
-    	String text = "";
-    	
-    	switch(_entryState)
-    	{
-    	case SecondNumber:
-    		text = parenthesize(_labels[_secondNumber]);
-    	case Operation:
-    		text = " " + Formattings.getOpString(_operation) + " " + text;
-    	case FirstNumber:
-    		text = parenthesize(_labels[_firstNumber]) + text;
-    	case Empty:
-    		break;
-    	}
-    	
-    	_scratchPad.setText(text);
+    	char op = btn.getTag().toString().charAt(0);
+    	onInputResult(_session.onOperation(op));
     }
     
-    public void onNumberClick(View btn)
+    @Override
+	public void onBackPressed()
     {
-    	int btnIndex = Integer.parseInt(btn.getTag().toString());
-    	
-    	switch(_entryState)
-    	{
-    	case Empty:
-    		_entryState = EntryState.FirstNumber;
-    	case FirstNumber:
-    		_firstNumber = btnIndex;
-    		setScratchPadText();
-    		break;
-    	case Operation:
-    		_entryState = EntryState.SecondNumber;
-    	case SecondNumber:
-			_secondNumber = btnIndex;
-    		setScratchPadText();
-    		nextPlay();
-    		break;
-    	}
+    	onInputResult(_session.onBack());
     }
     
-    public void onOperationClick(View btn)
+    private void onInputResult(GameSession.Result result)
     {
-    	char op = btn.getTag().toString().charAt(0);
-    	
-    	switch(_entryState)
+    	updateJournal();
+    	switch(result)
     	{
-    	case Empty:
+    	case Updated:
+    		showEntry();
+    		break;
+    	case Rejected:
     		bzzzt();
+    		showEntry();
     		break;
-    	case FirstNumber:
-    		_entryState = EntryState.Operation;
-    		_numberButtons[_firstNumber].setEnabled(false);
-    	case Operation:
-    		_operation = op;
-    		setScratchPadText();
+    	case Played:
+    	case Undone:
+    		checkSolvability();
+    		layoutNumberButtons();
+    		showEntry();
     		break;
-    	case SecondNumber:
-    		bzzzt();
+    	case Finished:
+    		// See if the result is correct. If it isn't, onBackPressed will be called to take the last play back.
+    		Intent intent = new Intent(this, CheckResultActivity.class);
+    		intent.putExtra("play", new GameStateParcel(_session.getGame()));
+    		startActivityForResult(intent, 0);
+    		break;
+    	case AskExit:
+    		askIfExit();
     		break;
     	}
     }
@@ -342,40 +397,6 @@ public class GameActivity extends Activity
     	else
     		Toast.makeText(this, "bzzzt", Toast.LENGTH_SHORT).show();
     }
-
-    private int _backBzztCount = 0;
-    @Override
-	public void onBackPressed()
-    {
-    	switch(_entryState)
-    	{
-    	case SecondNumber:
-    		_entryState = EntryState.Operation;
-    		break;
-    	case Operation:
-    		_entryState = EntryState.FirstNumber;
-    		_numberButtons[_firstNumber].setEnabled(true);
-    		break;
-    	case FirstNumber:
-    		_entryState = EntryState.Empty;
-    		break;
-    	case Empty:
-    		if(activeButtonsNumber() < 5)
-    			prevPlay();
-    		else
-    		{
-    			_backBzztCount++;
-    			if(_backBzztCount > 2)
-    			{
-    				askIfExit();
-    				_backBzztCount = 0;
-    			}
-    			else
-    				bzzzt();
-    		}
-    	}
-    	setScratchPadText();
-    }
     
     private void askIfExit()
     {
@@ -404,42 +425,23 @@ public class GameActivity extends Activity
     	alert.show();
     }
     
-    private void nextPlay()
+    // New games are solvable to begin with, after that the oracle answers in the background
+    private void checkSolvability()
     {
-    	OnePlay last = _game.getPlays().isEmpty() ? null : _game.getPlays().get(_game.getPlays().size() - 1);
-    	OnePlay play = new OnePlay(_firstNumber, _secondNumber, _operation, _game, last);
-    	applyPlay(play, 5-activeButtonsNumber());
-    	_game.getPlays().add(play);  // activeButtonsNumber is updated here
-    	
-    	if(activeButtonsNumber()==1)
-    	{
-    		_entryState = EntryState.Empty; // If the result is incorrect, prevPlay will be called. This assures it will work.
-    		// See if the result is correct
-    		Intent intent = new Intent(this, CheckResultActivity.class);
-    		intent.putExtra("play", _game);
-    		startActivityForResult(intent, 0);
-    	}
+    	_oracle.cancel();
+    	OnePlay last = _session.getLastPlay();
+    	if(last==null)
+    		showSolvability(true);
     	else
-    	{
-    		layoutNumberButtons();
-	    	startNewEntry();
-    	}
+    		_oracle.check(last.getNumbersPost(), activeButtonsNumber(), _session.getGame().getTarget());
     }
     
-    private void prevPlay()
+    private void showSolvability(boolean solvable)
     {
-    	OnePlay last = _game.getPlays().get(_game.getPlays().size()-1);
-    	
-    	_game.getPlays().remove(_game.getPlays().size() - 1);
-    	initGameDisplay();
-		layoutNumberButtons();
-    	
-    	_firstNumber = last.getFirst();
-    	_secondNumber = last.getSecond();
-    	_operation = last.getOp();
-    	_entryState = EntryState.Operation;
-    	_numberButtons[_firstNumber].setEnabled(false);
-    	setScratchPadText();
+    	if(solvable)
+    		_targetView.setTextColor(_targetColors);
+    	else
+    		_targetView.setTextColor(UNREACHABLE_COLOR);
     }
     
     private void startNewGame()
@@ -467,6 +469,8 @@ public class GameActivity extends Activity
     public boolean onCreateOptionsMenu(Menu menu) 
     {
         getMenuInflater().inflate(R.menu.activity_game, menu);
+        if((getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE)==0)
+        	menu.removeItem(R.id.menu_trace);
         return true;
     }
     
@@ -481,11 +485,38 @@ public class GameActivity extends Activity
     	case R.id.menu_new_game:
     		startNewGame();
     		return true;
+    	case R.id.menu_redo:
+    		onInputResult(_session.redo());  // Plays back what the back button took back
+    		return true;
+    	case R.id.menu_numbers:
+    		onNumbersClick();
+    		return true;
+    	case R.id.menu_trace:
+    		showTrace();
+    		return true;
     	}
     	
     	return super.onOptionsItemSelected(item);
     }
     
+    // Debug builds only - shows the trace, and exports it for adb pull
+    private void showTrace()
+    {
+    	AlertDialog.Builder builder = new AlertDialog.Builder(this);
+    	try
+    	{
+    		builder.setTitle(((GameApplication)getApplication()).exportTrace().getPath());
+    	}
+    	catch(IOException e)
+    	{
+    		Log.w(TAG, "Can't export the trace", e);
+    		builder.setTitle(R.string.menu_trace);
+    	}
+    	builder.setMessage(Trace.dump());
+    	builder.setPositiveButton(android.R.string.ok, null);
+    	builder.show();
+    }
+    
     // Levels - show a dialog allowing the user to choose the default level
     private void onLevelClick()
     {
@@ -496,9 +527,10 @@ public class GameActivity extends Activity
     	
     	String[] options = 
     	{ 
-    		getResources().getString(GameLevel.Easy.getLevelLongTextId()),
-    		getResources().getString(GameLevel.Medium.getLevelLongTextId()),
-    		getResources().getString(GameLevel.Hard.getLevelLongTextId())
+    		getResources().getString(LevelResources.getLongTextId(GameLevel.Easy)),
+    		getResources().getString(LevelResources.getLongTextId(GameLevel.Medium)),
+    		getResources().getString(LevelResources.getLongTextId(GameLevel.Hard)),
+    		getResources().getString(LevelResources.getLongTextId(GameLevel.Unique))
     	};
     	builder.setSingleChoiceItems(options, defaultLevel, null); 
     	builder.setPositiveButton(R.string.choose, new DialogInterface.OnClickListener() 
@@ -523,4 +555,33 @@ public class GameActivity extends Activity
 		});
     	builder.show();
     }
+    
+    // Numbers - like the levels, a dialog choosing the puzzles' numbers, in Settings.PUZZLE_SPECS order
+    private void onNumbersClick()
+    {
+    	AlertDialog.Builder builder = new AlertDialog.Builder(this);
+    	builder.setTitle(R.string.numbers_title);
+    	final Settings settings = new Settings(this);
+    	int current = Arrays.asList(Settings.PUZZLE_SPECS).indexOf(settings.getPuzzleSpec());
+    	
+    	String[] options = 
+    	{ 
+    		getResources().getString(R.string.numbers_standard),
+    		getResources().getString(R.string.numbers_countdown)
+    	};
+    	builder.setSingleChoiceItems(options, current, null); 
+    	builder.setPositiveButton(R.string.choose_numbers, new DialogInterface.OnClickListener() 
+    	{
+			@Override
+			public void onClick(DialogInterface dialog, int which) 
+			{
+				int selectedPosition = ((AlertDialog)dialog).getListView().getCheckedItemPosition();
+				settings.setPuzzleSpec(Settings.PUZZLE_SPECS[selectedPosition]);
+				dialog.dismiss();
+				startNewGame();
+			}
+		});
+    	builder.setNegativeButton(R.string.cancel, null);
+    	builder.show();
+    }
 }
@@ -1,16 +1,266 @@
 package com.platonix.ptorzot;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+
 import android.app.Application;
+import android.content.res.Configuration;
+import android.os.Process;
+import android.util.Log;
+
+import com.platonix.ptorzot.core.Formattings;
+import com.platonix.ptorzot.core.PuzzlePool;
+import com.platonix.ptorzot.core.Trace;
+import com.platonix.ptorzot.level.GameLevel;
+import com.platonix.ptorzot.solver.LevelTable;
+import com.platonix.ptorzot.solver.PuzzleSequencer;
+import com.platonix.ptorzot.solver.ReachabilityIndex;
+import com.platonix.ptorzot.solver.UniqueSolutions;
 
 public class GameApplication extends Application 
 {
 	public static GameApplication _theApp = null;
 	
+	private static final String TAG = "PtorZot";
+	private static final String INDEX_ASSET = "reachability.idx";
+	private static final String UNIQUE_ASSET = "unique.lst";
+	private static final String LEVELS_ASSET = "levels.tbl";
+	private static final String POOL_FILE = "puzzles.pool";
+	private static final String PLAYED_FILE = "played.seq";
+	
+	private static final String TRACE_FILE = "trace.txt";
+	
+	private PuzzlePool _puzzlePool;
+	
+	// From the application's creation until the first game is laid out
+	public static final Trace.Span STARTUP = Trace.span("startup");
+	private static final long STARTUP_BUDGET_MILLIS = 500;
+	private static final Trace.Span CREATE = Trace.span("app.create");
+	private static final Trace.Span LOAD_INDEX = Trace.span("app.loadIndex");
+	private static final Trace.Span LOAD_POOL = Trace.span("app.loadPool");
+	private long _startupStart;
+	
 	@Override
 	public void onCreate()
 	{
+		_startupStart = Trace.now();
+		STARTUP.setBudgetMillis(STARTUP_BUDGET_MILLIS);
 		super.onCreate();
-		Formattings.setApplication(this);
+		loadOpStrings();
 		_theApp = this;
+		_puzzlePool = new PuzzlePool(new File(getFilesDir(), POOL_FILE));
+		new Thread(new Runnable()
+		{
+			public void run()
+			{
+				loadAssets();
+			}
+		}, "AssetLoader").start();
+		CREATE.end(_startupStart);
+	}
+	
+	// Comparing the assets' headers, copying them out and reading the pool all touch the disk, so they're off the
+	// main thread. Until they're done the levels make their games the slow way - drawn and scored at runtime -
+	// and the pool makes every game on the spot.
+	private void loadAssets()
+	{
+		Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+		long start = Trace.now();
+		loadReachabilityIndex();
+		loadUniqueSolutions();
+		loadLevelTable();
+		LOAD_INDEX.end(start);
+		start = Trace.now();
+		loadPuzzlePool();
+		LOAD_POOL.end(start);
+	}
+	
+	public PuzzlePool getPuzzlePool() { return _puzzlePool; }
+	
+	// Called once the first game is on the screen, only the first call after the process started counts
+	public void onStartupComplete()
+	{
+		if(_startupStart==0)
+			return;
+		long duration = STARTUP.end(_startupStart);
+		_startupStart = 0;
+		if(STARTUP.isOverBudget())
+			Log.w(TAG, "Startup took " + duration/1000000 + "ms, over its " + STARTUP_BUDGET_MILLIS + "ms budget\n" + Trace.dump());
+	}
+	
+	// Writes Trace.dump() where adb can pull it from, if there's external storage
+	public File exportTrace() throws IOException
+	{
+		File dir = getExternalFilesDir(null);
+		File file = new File(dir!=null ? dir : getFilesDir(), TRACE_FILE);
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		try
+		{
+			writer.write(Trace.dump());
+		}
+		finally
+		{
+			writer.close();
+		}
+		return file;
+	}
+	
+	// The op strings are looked up once, here and whenever the locale may have changed, not on every print
+	@Override
+	public void onConfigurationChanged(Configuration newConfig)
+	{
+		super.onConfigurationChanged(newConfig);
+		loadOpStrings();
+	}
+	
+	private void loadOpStrings()
+	{
+		Formattings.setOpStrings(getString(R.string.plus), getString(R.string.minus), 
+				getString(R.string.times), getString(R.string.divide));
+	}
+	
+	// After the index, the pool makes its games with it
+	private void loadPuzzlePool()
+	{
+		try
+		{
+			_puzzlePool.load();
+		}
+		catch(IOException e)
+		{
+			Log.w(TAG, "Can't read the saved puzzles, making new ones", e);
+		}
+	}
+	
+	// Assets are compressed inside the APK and can't be mapped, so the index is copied out once
+	// (again whenever the bundled index changes) and mapped from there.
+	private void loadReachabilityIndex()
+	{
+		File file = new File(getFilesDir(), INDEX_ASSET);
+		try
+		{
+			if(!Arrays.equals(readHeader(getAssets().open(INDEX_ASSET), ReachabilityIndex.HEADER_SIZE), 
+					readHeader(file, ReachabilityIndex.HEADER_SIZE)))
+				copyAsset(INDEX_ASSET, file);
+			GameLevel.setReachabilityIndex(ReachabilityIndex.open(file));
+		}
+		catch(IOException e)
+		{
+			Log.w(TAG, "Can't load the reachability index, games will be solved at runtime", e);
+		}
+	}
+	
+	// Copied out and mapped like the index
+	private void loadUniqueSolutions()
+	{
+		File file = new File(getFilesDir(), UNIQUE_ASSET);
+		try
+		{
+			if(!Arrays.equals(readHeader(getAssets().open(UNIQUE_ASSET), UniqueSolutions.HEADER_SIZE), 
+					readHeader(file, UniqueSolutions.HEADER_SIZE)))
+				copyAsset(UNIQUE_ASSET, file);
+			GameLevel.setUniqueSolutions(UniqueSolutions.open(file));
+		}
+		catch(IOException e)
+		{
+			Log.w(TAG, "Can't load the unique solutions list, unique games will be searched at runtime", e);
+		}
+	}
+	
+	// Likewise
+	private void loadLevelTable()
+	{
+		File file = new File(getFilesDir(), LEVELS_ASSET);
+		try
+		{
+			if(!Arrays.equals(readHeader(getAssets().open(LEVELS_ASSET), LevelTable.HEADER_SIZE), 
+					readHeader(file, LevelTable.HEADER_SIZE)))
+				copyAsset(LEVELS_ASSET, file);
+			LevelTable table = LevelTable.open(file);
+			loadPuzzleSequencer(table);  // First, so the table's puzzles are dealt without repeats from the start
+			GameLevel.setLevelTable(table);
+		}
+		catch(IOException e)
+		{
+			Log.w(TAG, "Can't load the level table, games will be drawn and scored at runtime", e);
+		}
+	}
+	
+	// The puzzles the player was dealt, kept with the settings so they aren't dealt again
+	private void loadPuzzleSequencer(LevelTable table)
+	{
+		PuzzleSequencer sequencer = new PuzzleSequencer(table, new File(getFilesDir(), PLAYED_FILE));
+		try
+		{
+			sequencer.load();
+		}
+		catch(IOException e)
+		{
+			Log.w(TAG, "Can't read the played puzzles, starting over", e);
+		}
+		GameLevel.setPuzzleSequencer(sequencer);
+	}
+	
+	private byte[] readHeader(File file, int size) throws IOException
+	{
+		if(!file.exists())
+			return null;
+		return readHeader(new FileInputStream(file), size);
+	}
+	
+	private byte[] readHeader(InputStream in, int size) throws IOException
+	{
+		byte[] header = new byte[size];
+		try
+		{
+			int read = 0;
+			while(read<header.length)
+			{
+				int n = in.read(header, read, header.length-read);
+				if(n<0)
+					return null;
+				read += n;
+			}
+			return header;
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+	
+	private void copyAsset(String asset, File file) throws IOException
+	{
+		File temp = new File(file.getPath() + ".tmp");
+		InputStream in = getAssets().open(asset);
+		try
+		{
+			OutputStream out = new FileOutputStream(temp);
+			try
+			{
+				byte[] buffer = new byte[16384];
+				int n;
+				while((n = in.read(buffer))>0)
+					out.write(buffer, 0, n);
+			}
+			finally
+			{
+				out.close();
+			}
+		}
+		finally
+		{
+			in.close();
+		}
+		
+		if(!temp.renameTo(file))
+			throw new IOException("Can't rename " + temp + " to " + file);
 	}
 }
@@ -0,0 +1,44 @@
+package com.platonix.ptorzot;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import com.platonix.ptorzot.core.GameState;
+import com.platonix.ptorzot.core.GameStateCodec;
+
+// Parcels a GameState, to pass it to CheckResultActivity, as the few bytes GameStateCodec packs it into.
+// Only the plays leading to the current one are kept, not the rest of the game's tree.
+public class GameStateParcel implements Parcelable 
+{
+	private final GameState _game;
+	
+	public GameStateParcel(GameState game)
+	{
+		_game = game;
+	}
+	
+	public GameState getGame() { return _game; }
+	
+	public int describeContents() 
+	{
+		return 0;
+	}
+
+	public void writeToParcel(Parcel dest, int flags) 
+	{
+		dest.writeByteArray(GameStateCodec.encode(_game));
+	}
+	
+	public static final Parcelable.Creator<GameStateParcel> CREATOR = new Parcelable.Creator<GameStateParcel>()
+	{
+		public GameStateParcel createFromParcel(Parcel source) 
+		{
+			return new GameStateParcel(GameStateCodec.decode(source.createByteArray()));
+		}
+
+		public GameStateParcel[] newArray(int size) 
+		{
+			return new GameStateParcel[size];
+		}
+	};
+}
@@ -0,0 +1,15 @@
+package com.platonix.ptorzot;
+
+import com.platonix.ptorzot.level.GameLevel;
+
+// The images and strings showing each GameLevel, by level value
+public class LevelResources 
+{
+	private static final int[] IMAGES = { R.drawable.green, R.drawable.yellow, R.drawable.red, R.drawable.red };
+	private static final int[] TEXTS = { R.string.level1_short, R.string.level2_short, R.string.level3_short, R.string.level4_short };
+	private static final int[] LONG_TEXTS = { R.string.level1_long, R.string.level2_long, R.string.level3_long, R.string.level4_long };
+	
+	public static int getImageId(GameLevel level) { return IMAGES[level.getValue()]; }
+	public static int getTextId(GameLevel level) { return TEXTS[level.getValue()]; }
+	public static int getLongTextId(GameLevel level) { return LONG_TEXTS[level.getValue()]; }
+}
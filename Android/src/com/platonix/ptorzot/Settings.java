@@ -1,8 +1,10 @@
 package com.platonix.ptorzot;
 
 import java.lang.ref.WeakReference;
+import java.util.Arrays;
 
 import com.platonix.ptorzot.level.GameLevel;
+import com.platonix.ptorzot.level.PuzzleSpec;
 
 import android.app.Activity;
 import android.content.SharedPreferences;
@@ -11,6 +13,9 @@ public class Settings
 {
 	private WeakReference<Activity> _activity;
 	private static final String LEVEL="default.level";
+	private static final String SPEC="puzzle.spec";
+	// The puzzles the player can choose, saved by their place here
+	public static final PuzzleSpec[] PUZZLE_SPECS = { PuzzleSpec.STANDARD, PuzzleSpec.COUNTDOWN };
 	
 	public Settings(Activity activity)
 	{
@@ -32,5 +37,21 @@ public class Settings
 		SharedPreferences.Editor editor = getPrefs().edit();
 		editor.putInt(LEVEL, level.getValue());
 		editor.commit();
+		((GameApplication)_activity.get().getApplication()).getPuzzlePool().setDefaultLevel(level);
+	}
+	
+	public PuzzleSpec getPuzzleSpec()
+	{
+		int index = getPrefs().getInt(SPEC, 0);
+		return index>=0 && index<PUZZLE_SPECS.length ? PUZZLE_SPECS[index] : PuzzleSpec.STANDARD;
+	}
+	
+	// The levels make the new puzzles from now on, the pool throws away the games it made of the old ones
+	public void setPuzzleSpec(PuzzleSpec spec)
+	{
+		SharedPreferences.Editor editor = getPrefs().edit();
+		editor.putInt(SPEC, Arrays.asList(PUZZLE_SPECS).indexOf(spec));
+		editor.commit();
+		GameLevel.setPuzzleSpec(spec);
 	}
 }
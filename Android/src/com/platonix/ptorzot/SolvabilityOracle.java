@@ -0,0 +1,102 @@
+package com.platonix.ptorzot;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import android.os.Handler;
+import android.os.Process;
+
+import com.platonix.ptorzot.math.Rational;
+import com.platonix.ptorzot.solver.StateCache;
+import com.platonix.ptorzot.solver.StateSearch;
+
+// Checks whether the numbers left in a game can still reach the target, on a background thread.
+// The answer is posted back through the UI thread's Handler. A check that was cancelled, or replaced by
+// a newer one, is never delivered. With at most 4 numbers left a check takes well under a millisecond, and
+// states already seen (in this game or an earlier one) are answered from a shared StateCache.
+// All the methods are meant to be called from the UI thread.
+public class SolvabilityOracle
+{
+	public interface Listener
+	{
+		void onSolvabilityChecked(boolean solvable);
+	}
+
+	private static final long CACHE_BYTES = 512 * 1024;
+	// The cache keeps everything reachable from a state, which grows too fast past 4 numbers - bigger games'
+	// early states are searched for the target alone
+	private static final int MAX_CACHED_COUNT = 4;
+	private static final StateCache _cache = new StateCache(CACHE_BYTES);
+
+	private final Handler _handler;
+	private final Listener _listener;
+	private final ExecutorService _executor;
+	private Future<?> _pending;
+	private int _generation = 0;  // Bumped on every check and cancel, results of older generations are dropped
+
+	public SolvabilityOracle(Handler handler, Listener listener)
+	{
+		_handler = handler;
+		_listener = listener;
+		_executor = Executors.newSingleThreadExecutor(new ThreadFactory()
+		{
+			public Thread newThread(Runnable r)
+			{
+				Thread thread = new Thread(r, "SolvabilityOracle");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	// Checks the first count values (Rationals, as in OnePlay.getNumbersPost)
+	public void check(long[] values, int count, final int target)
+	{
+		cancel();
+		final long[] left = new long[count];
+		System.arraycopy(values, 0, left, 0, count);
+		final int generation = _generation;
+
+		_pending = _executor.submit(new Runnable()
+		{
+			public void run()
+			{
+				Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+				final boolean solvable = left.length<=MAX_CACHED_COUNT ? 
+						_cache.canReach(left, left.length, Rational.of(target)) :
+						new StateSearch().search(left, left.length, target)==StateSearch.FOUND;
+				_handler.post(new Runnable()
+				{
+					public void run()
+					{
+						if(generation==_generation)
+							_listener.onSolvabilityChecked(solvable);
+					}
+				});
+			}
+		});
+	}
+
+	public void cancel()
+	{
+		_generation++;
+		if(_pending!=null)
+		{
+			_pending.cancel(true);
+			_pending = null;
+		}
+	}
+
+	public static StateCache getCache()
+	{
+		return _cache;
+	}
+
+	public void shutdown()
+	{
+		cancel();
+		_executor.shutdownNow();
+	}
+}
@@ -0,0 +1,7 @@
+package com.platonix.ptorzot.core;
+
+// Where the player is in entering the next play: first number, op, second number
+public enum EntryState
+{
+	Empty, FirstNumber, Operation, SecondNumber
+}
@@ -0,0 +1,107 @@
+package com.platonix.ptorzot.core;
+
+import com.platonix.ptorzot.math.Rational;
+
+// What a number button shows - a number, or the expression it was made of.
+// Immutable, so the plays before and after share their expressions. The text is made the first time it's
+// needed and kept until the op strings or the locale change (Formattings.getGeneration), with only the
+// parentheses the ops' precedence calls for: "(7 - 3) * 9 + 2", not "((7 - 3) * 9) + 2".
+public final class Expression
+{
+	private static final int PRECEDENCE_ADD = 1;    // + and -
+	private static final int PRECEDENCE_TIMES = 2;  // * and /
+	private static final int PRECEDENCE_NUMBER = 3;
+
+	private final long _value;  // Rational, for numbers
+	private final Expression _left, _right;
+	private final char _op;  // 0 for numbers
+	private Text _text;  // Of an op, numbers' text is cached by Formattings
+
+	// The text and the Formattings.getGeneration it was made in, replaced together
+	private static final class Text
+	{
+		final String text;
+		final int generation;
+
+		Text(String text, int generation)
+		{
+			this.text = text;
+			this.generation = generation;
+		}
+	}
+
+	private Expression(long value, Expression left, char op, Expression right)
+	{
+		_value = value;
+		_left = left;
+		_op = op;
+		_right = right;
+	}
+
+	public static Expression of(int number)
+	{
+		return new Expression(Rational.of(number), null, (char)0, null);
+	}
+
+	// A number, shown as Formattings prints it
+	public static Expression of(long value)
+	{
+		return new Expression(value, null, (char)0, null);
+	}
+
+	public static Expression of(Expression left, char op, Expression right)
+	{
+		return new Expression(Rational.INVALID, left, op, right);
+	}
+
+	public boolean isNumber() { return _op==0; }
+	public char getOp() { return _op; }
+	public Expression getLeft() { return _left; }
+	public Expression getRight() { return _right; }
+
+	private static int getPrecedence(char op)
+	{
+		return op==0 ? PRECEDENCE_NUMBER : op=='+' || op=='-' ? PRECEDENCE_ADD : PRECEDENCE_TIMES;
+	}
+
+	// Whether this needs parentheses as an operand of op. The right operand of - and / needs them even
+	// with the same precedence, a - (b + c) isn't a - b + c.
+	public boolean needsParentheses(char op, boolean right)
+	{
+		int precedence = getPrecedence(_op), outer = getPrecedence(op);
+		return precedence<outer || (right && precedence==outer && (op=='-' || op=='/'));
+	}
+
+	// The text as an operand of op, parenthesized if it has to be
+	public String toOperand(char op, boolean right)
+	{
+		return needsParentheses(op, right) ? "(" + toString() + ")" : toString();
+	}
+
+	private void appendOperand(StringBuilder sb, char op, boolean right)
+	{
+		if(needsParentheses(op, right))
+			sb.append('(').append(toString()).append(')');
+		else
+			sb.append(toString());
+	}
+
+	@Override
+	public String toString()
+	{
+		if(isNumber())
+			return Formattings.getPrintedNumber(_value);
+
+		int generation = Formattings.getGeneration();
+		Text text = _text;
+		if(text==null || text.generation!=generation)  // A race makes the same string twice, no harm done
+		{
+			StringBuilder sb = new StringBuilder(32);
+			_left.appendOperand(sb, _op, false);
+			sb.append(' ').append(Formattings.getOpString(_op)).append(' ');
+			_right.appendOperand(sb, _op, true);
+			_text = text = new Text(sb.toString(), generation);
+		}
+		return text.text;
+	}
+}
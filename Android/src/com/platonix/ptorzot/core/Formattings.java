@@ -0,0 +1,173 @@
+package com.platonix.ptorzot.core;
+
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+import com.platonix.ptorzot.math.Rational;
+
+// How numbers and ops are shown to the player. Fractions print as String.format(Locale.getDefault(), "%.02f") did,
+// integers as "%d" does, both in the locale's digits, but straight from the exact fraction. The strings printed
+// are cached per locale - small integers in a table filled as they're printed, other numbers in a small hash
+// table - so showing a number again allocates nothing. appendPrintedNumber never allocates.
+// getGeneration changes whenever the text may change (new op strings or locale), for those keeping text.
+public class Formattings
+{
+	// The op characters as shown to the player, GameApplication sets them from the string resources
+	// (again on every configuration change)
+	private static String _plus = "+", _minus = "-", _times = "*", _divide = "/";
+
+	private static final int MAX_CACHED_INTEGER = 1024;  // -MAX_CACHED_INTEGER..MAX_CACHED_INTEGER
+	private static final int FRACTION_CACHE_BITS = 10;
+	private static volatile int _generation;
+
+	// The default locale's digits and decimal separator, and the numbers printed with them
+	private static final class Symbols
+	{
+		final Locale locale;
+		final char zero, separator;
+		final String[] integers = new String[2*MAX_CACHED_INTEGER + 1];
+		final PrintedFraction[] fractions = new PrintedFraction[1 << FRACTION_CACHE_BITS];
+
+		Symbols(Locale locale)
+		{
+			DecimalFormatSymbols symbols = new DecimalFormatSymbols(locale);
+			this.locale = locale;
+			zero = symbols.getZeroDigit();
+			separator = symbols.getDecimalSeparator();
+		}
+	}
+
+	private static final class PrintedFraction
+	{
+		final long value;
+		final String text;
+
+		PrintedFraction(long value, String text)
+		{
+			this.value = value;
+			this.text = text;
+		}
+	}
+
+	private static volatile Symbols _symbols = new Symbols(Locale.getDefault());
+
+	// Also starts over with the locale's symbols, it's called on every configuration change
+	public static void setOpStrings(String plus, String minus, String times, String divide)
+	{
+		_plus = plus;
+		_minus = minus;
+		_times = times;
+		_divide = divide;
+		_symbols = new Symbols(Locale.getDefault());
+		_generation++;
+	}
+
+	public static int getGeneration() { return _generation; }
+
+	public static String getOpString(char op)
+	{
+    	switch(op)
+    	{
+    	case '+':
+    		return _plus;
+    	case '-':
+    		return _minus;
+    	case '*':
+    		return _times;
+    	case '/':
+    		return _divide;
+   		default:
+   			return "?";
+    	}
+	}
+
+	private static Symbols getSymbols()
+	{
+		Symbols symbols = _symbols;
+		Locale locale = Locale.getDefault();
+		if(symbols.locale!=locale)  // Changed since, start over with the new locale's symbols
+		{
+			_symbols = symbols = new Symbols(locale);
+			_generation++;
+		}
+		return symbols;
+	}
+
+    public static String getPrintedNumber(long n)
+    {
+    	Symbols symbols = getSymbols();
+    	if(Rational.isInteger(n))  // Exact, no rounding errors to worry about
+    	{
+    		int number = Rational.numerator(n);
+    		if(number<-MAX_CACHED_INTEGER || number>MAX_CACHED_INTEGER)
+    			return appendInteger(new StringBuilder(12), number, symbols.zero).toString();
+    		String printed = symbols.integers[number + MAX_CACHED_INTEGER];
+    		if(printed==null)  // Immutable, so a race just prints it twice
+    			symbols.integers[number + MAX_CACHED_INTEGER] = printed =
+    					appendInteger(new StringBuilder(6), number, symbols.zero).toString();
+    		return printed;
+    	}
+
+    	int slot = (int)((n * 0x9E3779B97F4A7C15L) >>> (64 - FRACTION_CACHE_BITS));
+    	PrintedFraction printed = symbols.fractions[slot];
+    	if(printed==null || printed.value!=n)
+    	{
+    		printed = new PrintedFraction(n, appendFraction(new StringBuilder(16), n, symbols).toString());
+    		symbols.fractions[slot] = printed;  // Immutable, so other threads see all of it or nothing
+    	}
+    	return printed.text;
+    }
+
+    public static StringBuilder appendPrintedNumber(StringBuilder sb, long n)
+    {
+    	Symbols symbols = getSymbols();
+    	if(Rational.isInteger(n))
+    		return appendInteger(sb, Rational.numerator(n), symbols.zero);
+    	return appendFraction(sb, n, symbols);
+    }
+
+    private static StringBuilder appendInteger(StringBuilder sb, int n, char zero)
+    {
+    	if(n<0)
+    		sb.append('-');
+    	appendDigits(sb, Math.abs((long)n), zero);
+    	return sb;
+    }
+
+    // Rounded half up to 2 decimals, like %.02f. That rounds the double's shortest decimal representation,
+    // which rounds the same as the exact fraction unless the double is off by enough to cross a rounding boundary -
+    // fractions can't get that close to one unless they're huge, those are left to String.format.
+    private static StringBuilder appendFraction(StringBuilder sb, long n, Symbols symbols)
+    {
+    	long num = Rational.numerator(n), den = Rational.denominator(n);
+    	double value = Rational.toDouble(n);
+    	if(Math.ulp(value) * 200 * den >= 1)
+    		return sb.append(String.format(symbols.locale, "%.02f", value));
+
+    	if(num<0)
+    		sb.append('-');
+    	long magnitude = Math.abs(num) * 100;
+    	long hundredths = magnitude / den;
+    	if(2 * (magnitude % den) >= den)
+    		hundredths++;
+
+    	appendDigits(sb, hundredths / 100, symbols.zero);
+    	sb.append(symbols.separator);
+    	sb.append((char)(symbols.zero + hundredths / 10 % 10));
+    	sb.append((char)(symbols.zero + hundredths % 10));
+    	return sb;
+    }
+
+    private static void appendDigits(StringBuilder sb, long n, char zero)
+    {
+    	if(n>=10)
+    		appendDigits(sb, n / 10, zero);
+    	sb.append((char)(zero + n % 10));
+    }
+
+    // Returns Rational.INVALID when dividing by zero
+    public static long applyOperation(long a, long b, char op)
+    {
+    	return Rational.apply(a, b, op);
+    }
+}
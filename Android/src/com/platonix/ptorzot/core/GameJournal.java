@@ -0,0 +1,220 @@
+package com.platonix.ptorzot.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+// Keeps the game in progress in a small memory mapped file, so it survives the process being killed.
+// Every change is appended as a tiny record - a write to the mapping, which the kernel writes back on its own,
+// so nothing ever waits for the disk. Only a power cut before that can lose the last few plays.
+//
+// The file has two halves. Each starts with a snapshot of a game (GameStateCodec) followed by records of
+// the plays and undos made since. When a half fills up, or the game is replaced, a snapshot of the current game
+// is written to the other half under the next generation, and records go there from then on. The half with the
+// newest valid snapshot wins on restore, so a crash while writing a snapshot falls back on the older half.
+// Every snapshot and record carries a CRC32 of its contents, generation and position - stale and torn records
+// fail it, and replay stops at the first one that does.
+//
+// Format of a half (big endian):
+//   snapshot - magic, generation, encoded game length (1 byte), encoded game (padded), CRC32 - SNAPSHOT_SIZE bytes
+//   records  - RECORD_SIZE bytes each: type, encoded play (for PLAY), 2 reserved bytes, CRC32
+public class GameJournal
+{
+	public static final int MAGIC = 0x505A474A;  // "PZGJ"
+	private static final int MAX_ENCODED_SIZE = GameStateCodec.MAX_ENCODED_SIZE;
+	public static final int SNAPSHOT_SIZE = MAX_ENCODED_SIZE + 13;  // Room for any game the codec encodes
+	public static final int RECORD_SIZE = 8;
+	public static final int HALF_SIZE = 512;
+	public static final int FILE_SIZE = 2 * HALF_SIZE;
+
+	private static final byte PLAY = 1;
+	private static final byte UNDO = 2;
+
+	private final ByteBuffer _buffer;
+	private final CRC32 _crc = new CRC32();
+	private int _half, _generation;  // Of the newest snapshot
+	private int _position;  // Of the next record
+	private GameState _game;  // The game journaled, and its last play as of the last record
+	private GameState.OnePlay _last;
+
+	public GameJournal(ByteBuffer buffer)
+	{
+		if(buffer.capacity()<FILE_SIZE)
+			throw new IllegalArgumentException("A journal takes " + FILE_SIZE + " bytes");
+		_buffer = buffer;
+
+		int first = readGeneration(0), second = readGeneration(1);
+		_half = second>first || (first<0 && second<0) ? 1 : 0;  // An empty journal starts at half 0
+		_generation = Math.max(0, Math.max(first, second));
+	}
+
+	// Maps the file, creating it if it's not there yet
+	public static GameJournal open(File file) throws IOException
+	{
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try
+		{
+			if(raf.length()!=FILE_SIZE)
+				raf.setLength(FILE_SIZE);
+			return new GameJournal(raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE));
+		}
+		finally
+		{
+			raf.close();  // The mapping stays valid after the channel is closed
+		}
+	}
+
+	public int getGeneration() { return _generation; }
+
+	// The game as it was journaled, null if the journal is empty or unreadable. Later changes to it are
+	// journaled by update.
+	public GameState restore()
+	{
+		if(_generation==0)
+			return null;
+
+		_game = readSnapshot(_half);
+		_position = _half*HALF_SIZE + SNAPSHOT_SIZE;
+
+		for(; _position<(_half+1)*HALF_SIZE; _position+=RECORD_SIZE)
+		{
+			byte type = _buffer.get(_position);
+			byte play = _buffer.get(_position+1);
+			if(_buffer.getInt(_position+4)!=recordChecksum(type, play, _position))
+				break;
+			try
+			{
+				if(type==PLAY)
+					GameStateCodec.decodePlay(_game, play);
+				else if(type!=UNDO || !_game.undo())
+					break;
+			}
+			catch(IllegalArgumentException e)
+			{
+				break;
+			}
+		}
+		_last = _game.getLastPlay();
+		return _game;
+	}
+
+	// Journals a new game
+	public void start(GameState game)
+	{
+		_game = game;
+		compact();
+	}
+
+	// Journals whatever changed in the game since the last call - called after every input
+	public void update(GameState game)
+	{
+		if(game!=_game)
+		{
+			start(game);
+			return;
+		}
+
+		GameState.OnePlay last = game.getLastPlay();
+		if(last==_last)
+			return;
+		if(_position+RECORD_SIZE>(_half+1)*HALF_SIZE)
+			compact();
+		else if(last!=null && last.getPrevious()==_last)
+			writeRecord(PLAY, GameStateCodec.encodePlay(last));
+		else if(_last!=null && _last.getPrevious()==last)
+			writeRecord(UNDO, (byte)0);
+		else
+			compact();  // Jumped elsewhere in the game's tree
+		_last = last;
+	}
+
+	// Snapshots the game into the other half, and carries on there
+	private void compact()
+	{
+		byte[] encoded = GameStateCodec.encode(_game);
+		if(encoded.length>MAX_ENCODED_SIZE)
+			throw new IllegalArgumentException("The game is too big to journal");
+
+		int half = 1 - _half;
+		int start = half*HALF_SIZE;
+		_generation++;
+		_buffer.putInt(start, MAGIC);
+		_buffer.putInt(start+4, _generation);
+		_buffer.put(start+8, (byte)encoded.length);
+		for(int i=0; i<MAX_ENCODED_SIZE; i++)
+			_buffer.put(start+9+i, i<encoded.length ? encoded[i] : 0);
+		_buffer.putInt(start+SNAPSHOT_SIZE-4, snapshotChecksum(half));
+
+		_half = half;
+		_position = start + SNAPSHOT_SIZE;
+		_buffer.put(_position, (byte)0);  // Whatever was there can't pass for a record of this generation anyway
+		_last = _game.getLastPlay();
+	}
+
+	private void writeRecord(byte type, byte play)
+	{
+		_buffer.put(_position, type);
+		_buffer.put(_position+1, play);
+		_buffer.putShort(_position+2, (short)0);
+		_buffer.putInt(_position+4, recordChecksum(type, play, _position));
+		_position += RECORD_SIZE;
+	}
+
+	// The generation of the half's snapshot, -1 if it isn't a valid one
+	private int readGeneration(int half)
+	{
+		int start = half*HALF_SIZE;
+		if(_buffer.getInt(start)!=MAGIC || _buffer.getInt(start+SNAPSHOT_SIZE-4)!=snapshotChecksum(half))
+			return -1;
+		try
+		{
+			readSnapshot(half);
+		}
+		catch(IllegalArgumentException e)
+		{
+			return -1;
+		}
+		return _buffer.getInt(start+4);
+	}
+
+	private GameState readSnapshot(int half)
+	{
+		int start = half*HALF_SIZE;
+		int length = _buffer.get(start+8);
+		if(length<0 || length>MAX_ENCODED_SIZE)
+			throw new IllegalArgumentException("Bad snapshot length");
+		byte[] encoded = new byte[length];
+		for(int i=0; i<length; i++)
+			encoded[i] = _buffer.get(start+9+i);
+		return GameStateCodec.decode(encoded);
+	}
+
+	private int snapshotChecksum(int half)
+	{
+		_crc.reset();
+		for(int i=half*HALF_SIZE; i<(half*HALF_SIZE)+SNAPSHOT_SIZE-4; i++)
+			_crc.update(_buffer.get(i));
+		return (int)_crc.getValue();
+	}
+
+	private int recordChecksum(byte type, byte play, int position)
+	{
+		_crc.reset();
+		_crc.update(type);
+		_crc.update(play);
+		updateInt(_generation);
+		updateInt(position);
+		return (int)_crc.getValue();
+	}
+
+	private void updateInt(int value)
+	{
+		_crc.update(value >>> 24);
+		_crc.update(value >>> 16);
+		_crc.update(value >>> 8);
+		_crc.update(value);
+	}
+}
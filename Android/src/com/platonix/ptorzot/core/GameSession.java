@@ -0,0 +1,241 @@
+package com.platonix.ptorzot.core;
+
+import com.platonix.ptorzot.math.Rational;
+
+// The rules engine of one game: the plays so far, the labels of the numbers left, and the player's
+// entry of the next play (number, op, number). Inputs come in through onNumber, onOperation and onBack,
+// each returning what the UI should do about it. Nothing here knows about Android - GameActivity is a view
+// of a GameSession, and SessionReplay drives one straight from recorded input.
+// Every play keeps the labels it leaves, so undo, redo and jumping around the game's tree of plays don't
+// work them out again.
+public class GameSession
+{
+	public enum Result
+	{
+		Updated,   // The entry changed
+		Rejected,  // The input isn't allowed now (or is a division by zero), bzzzt
+		Played,    // A play was made, more numbers are left
+		Finished,  // The last play was made, check the result
+		Undone,    // The last play was taken back, its entry is back up to the op
+		AskExit    // Back was pressed over and over at the start of the game
+	}
+	
+	public static final String OPS = "+-*/";
+	private static final int BACK_REJECTIONS = 2;  // Back presses rejected at the start before asking to exit
+	
+	private final GameState _game;
+	private final Expression[] _startLabels;  // Later labels are compounded by the plays, and kept in them
+	private EntryState _entryState = EntryState.Empty;
+	private int _firstNumber, _secondNumber;
+	private char _operation;
+	private int _backRejections = 0;
+	
+	public GameSession(GameState game)
+	{
+		_game = game;
+		_startLabels = new Expression[game.getNumbers().length];
+		for(int i=0; i<_startLabels.length; i++)
+			_startLabels[i] = Expression.of(game.getNumbers()[i]);
+	}
+	
+	public GameState getGame() { return _game; }
+	public String getLabel(int index) { return getLabels()[index].toString(); }
+	public Expression getExpression(int index) { return getLabels()[index]; }
+	public EntryState getEntryState() { return _entryState; }
+	public int getFirstNumber() { return _firstNumber; }
+	public int getSecondNumber() { return _secondNumber; }
+	public char getOperation() { return _operation; }
+	
+	public int getActiveNumbers()
+	{
+		return _game.getNumbers().length - _game.getPlayCount();
+	}
+	
+	public boolean isFinished()
+	{
+		return getActiveNumbers()==1;
+	}
+	
+	// The value of the last number left, once the game is finished
+	public long getResult()
+	{
+		return isFinished() ? getLastPlay().getNumbersPost()[0] : Rational.INVALID;
+	}
+	
+	public boolean isSolved()
+	{
+		return isFinished() && getResult()==Rational.of(_game.getTarget());
+	}
+	
+	public GameState.OnePlay getLastPlay()
+	{
+		return _game.getLastPlay();
+	}
+	
+	// Whether the number's button can be pressed - the first number can't be the second one too
+	public boolean isNumberEnabled(int index)
+	{
+		if(index>=getActiveNumbers())
+			return false;
+		return index!=_firstNumber || (_entryState!=EntryState.Operation && _entryState!=EntryState.SecondNumber);
+	}
+	
+	private Expression[] getLabels()
+	{
+		GameState.OnePlay last = _game.getLastPlay();
+		if(last==null)
+			return _startLabels;
+		if(last._labels==null)
+			initLabels(last);
+		return last._labels;
+	}
+	
+	// Plays are labelled the first time they're shown - plays made straight through the GameState
+	// (say, when it's read from a parcel) are labelled along with the plays before them
+	private void initLabels(GameState.OnePlay play)
+	{
+		GameState.OnePlay previous = play.getPrevious();
+		if(previous!=null && previous._labels==null)
+			initLabels(previous);
+		play._labels = (previous==null ? _startLabels : previous._labels).clone();
+		_game.getLevel().getNextLabels(play._labels, play);
+	}
+	
+	// The play entered so far, with only the parentheses its op needs
+	public String getScratchPad()
+	{
+		String text = "";
+		
+		switch(_entryState)
+		{
+		case SecondNumber:
+			text = getExpression(_secondNumber).toOperand(_operation, true);
+		case Operation:
+			text = " " + Formattings.getOpString(_operation) + " " + text;
+		case FirstNumber:
+			if(_entryState==EntryState.FirstNumber)
+				text = getLabel(_firstNumber);
+			else
+				text = getExpression(_firstNumber).toOperand(_operation, false) + text;
+		case Empty:
+			break;
+		}
+		
+		return text;
+	}
+	
+	public Result onNumber(int index)
+	{
+		if(index<0 || !isNumberEnabled(index))
+			return Result.Rejected;
+		
+		switch(_entryState)
+		{
+		case Empty:
+			_entryState = EntryState.FirstNumber;
+		case FirstNumber:
+			_firstNumber = index;
+			return Result.Updated;
+		case Operation:
+			_entryState = EntryState.SecondNumber;
+		case SecondNumber:
+		default:
+			_secondNumber = index;
+			return nextPlay();
+		}
+	}
+	
+	public Result onOperation(char op)
+	{
+		if(OPS.indexOf(op)<0)
+			return Result.Rejected;
+		
+		switch(_entryState)
+		{
+		case FirstNumber:
+			_entryState = EntryState.Operation;
+		case Operation:
+			_operation = op;
+			return Result.Updated;
+		case Empty:
+		case SecondNumber:
+		default:
+			return Result.Rejected;
+		}
+	}
+	
+	public Result onBack()
+	{
+		switch(_entryState)
+		{
+		case SecondNumber:
+			_entryState = EntryState.Operation;
+			return Result.Updated;
+		case Operation:
+			_entryState = EntryState.FirstNumber;
+			return Result.Updated;
+		case FirstNumber:
+			_entryState = EntryState.Empty;
+			return Result.Updated;
+		case Empty:
+		default:
+			if(_game.getLastPlay()!=null)
+				return prevPlay();
+			
+			_backRejections++;
+			if(_backRejections > BACK_REJECTIONS)
+			{
+				_backRejections = 0;
+				return Result.AskExit;
+			}
+			return Result.Rejected;
+		}
+	}
+	
+	private Result nextPlay()
+	{
+		try
+		{
+			_game.play(_firstNumber, _secondNumber, _operation);  // getActiveNumbers is updated here
+		}
+		catch(ArithmeticException e) // Division by zero, let the player pick another second number
+		{
+			_entryState = EntryState.Operation;
+			return Result.Rejected;
+		}
+		_entryState = EntryState.Empty;  // If the result is wrong, onBack takes the last play back
+		return isFinished() ? Result.Finished : Result.Played;
+	}
+	
+	// Takes back the last play, with its entry up to the op, so the player can pick another second number
+	private Result prevPlay()
+	{
+		GameState.OnePlay last = _game.getLastPlay();
+		_game.undo();
+		
+		_firstNumber = last.getFirst();
+		_secondNumber = last.getSecond();
+		_operation = last.getOp();
+		_entryState = EntryState.Operation;
+		return Result.Undone;
+	}
+	
+	// Plays again the last play taken back, with the entry cleared. Rejected if there's nothing to redo.
+	public Result redo()
+	{
+		GameState.OnePlay play = _game.redo();
+		if(play==null)
+			return Result.Rejected;
+		
+		_entryState = EntryState.Empty;
+		return isFinished() ? Result.Finished : Result.Played;
+	}
+	
+	// Goes to any play made so far in this game, null for the start, with the entry cleared
+	public Result jumpTo(GameState.OnePlay play)
+	{
+		_game.jumpTo(play);
+		_entryState = EntryState.Empty;
+		return isFinished() ? Result.Finished : Result.Played;
+	}
+}
@@ -0,0 +1,219 @@
+package com.platonix.ptorzot.core;
+
+import java.util.AbstractList;
+import java.util.List;
+
+import com.platonix.ptorzot.level.GameLevel;
+import com.platonix.ptorzot.math.Rational;
+
+// A game - its numbers, target and the plays made so far. Parcelled by GameStateParcel.
+// Plays are kept in a tree: undoing a play keeps it as a branch, a play made again from the same place reuses it,
+// and the game can go back and forth to any play in the tree. Every play holds only the numbers it leaves,
+// the numbers before it are its previous play's, so the tree shares all it can and moving around in it is
+// just moving the current play - nothing is copied or allocated.
+public class GameState
+{
+	public static final int MIN_NUMBERS = 4;
+	public static final int MAX_NUMBERS = 8;  // Plays keep indices in 3 bits (GameStateCodec, Move)
+	
+	private int[] _numbers;
+	private int _target;
+	private GameLevel _level;
+	private final OnePlay _start;  // The root of the tree, before any play
+	private OnePlay _current;
+	private final List<OnePlay> _line = new Line();
+	
+	// The OnePlay class
+	public static class OnePlay
+	{
+		private final OnePlay _previous;  // The start of the game for a first play
+		private final long[] _numbersPost;  // Rational values. Shared, never modified.
+		private final int _first, _second, _depth;
+		private final char _op;
+		private OnePlay _firstChild, _nextSibling;  // Plays made after this one, once it's in a game's tree
+		private OnePlay _redo;  // The child redo plays again - the one last taken back or jumped out of
+		private GameState _game;  // The game whose tree this play is in, null if it isn't in one
+		Expression[] _labels;  // Kept by GameSession
+		
+		private OnePlay(GameState game, long[] numbers)  // The start of a game
+		{
+			_game = game;
+			_previous = null;
+			_numbersPost = numbers;
+			_first = -1;
+			_second = -1;
+			_op = 0;
+			_depth = 0;
+		}
+		
+		// A play not in the game's tree (yet) - GameState.play adds plays to it
+		public OnePlay(int first, int second, char op, GameState game, OnePlay previous)
+		{			
+			_first = first;
+			_second = second;
+			_op = op;
+			checkPlay();
+			
+			_previous = previous==null ? game._start : previous;
+			_depth = _previous._depth + 1;
+			_numbersPost = createNumbersPost(_previous._numbersPost);
+		}
+		
+		private void checkPlay()
+		{
+			if(_op!='+' && _op!='-' && _op!='*' && _op!='/')
+				throw new IllegalArgumentException("Op cannot be '" + _op + "'");
+			
+			if(_first<0 || _second<0 || _first==_second)
+				throw new IllegalArgumentException("First and second must be non-negative and different");			
+		}
+		
+		private long[] createNumbersPost(long[] numbersPre)
+		{
+	    	long result = Formattings.applyOperation(numbersPre[_first], numbersPre[_second], _op);
+	    	if(!Rational.isValid(result))
+	    		throw new ArithmeticException("Can't calculate " + Rational.toString(numbersPre[_first]) + " " + _op + " " + Rational.toString(numbersPre[_second]));
+	    	
+	    	long[] numbersPost = new long[numbersPre.length];
+	    	System.arraycopy(numbersPre, 0, numbersPost, 0, numbersPre.length);
+	    	numbersPost[_first] = result;
+	    	for(int i=_second; i<numbersPre.length-1; i++)
+	    		numbersPost[i] = numbersPost[i+1];
+	    	return numbersPost;
+		}
+		
+		private boolean isMove(int first, int second, char op)
+		{
+			return _first==first && _second==second && _op==op;
+		}
+		
+		public int getFirst() { return _first; }
+		public int getSecond() { return _second;  }
+		public char getOp() { return _op; }
+		public int getDepth() { return _depth; }  // 1 for the first play
+		public OnePlay getPrevious() { return _previous._depth==0 ? null : _previous; }
+		public OnePlay getFirstChild() { return _firstChild; }
+		public OnePlay getNextSibling() { return _nextSibling; }
+		// Don't modify these, they're shared with the plays before and after
+		public long[] getNumbersPre() { return _previous._numbersPost; }
+		public long[] getNumbersPost() { return _numbersPost; }
+	}
+	
+	// The plays from the start of the game to the current one, read only
+	private class Line extends AbstractList<OnePlay>
+	{
+		@Override
+		public int size() 
+		{
+			return _current._depth;
+		}
+		
+		@Override
+		public OnePlay get(int index) 
+		{
+			if(index<0 || index>=_current._depth)
+				throw new IndexOutOfBoundsException("No play " + index + " of " + _current._depth);
+			OnePlay play = _current;
+			for(int i=_current._depth-1; i>index; i--)
+				play = play._previous;
+			return play;
+		}
+	}
+
+	// Properties
+	public int[] getNumbers() { return _numbers; }
+	public int getTarget() { return _target; }
+	public List<OnePlay> getPlays() { return _line; }
+	public GameLevel getLevel() { return _level; }
+	
+	public GameState(GameLevel level, int [] numbers, int target)
+	{
+		if(numbers.length<MIN_NUMBERS || numbers.length>MAX_NUMBERS)
+			throw new IllegalArgumentException("Games have " + MIN_NUMBERS + " to " + MAX_NUMBERS + " numbers");
+		
+		_level = level;
+		_numbers = numbers;
+		_target = target;
+		
+		long[] values = new long[numbers.length];
+		for(int i=0; i<numbers.length; i++)
+			values[i] = Rational.of(numbers[i]);
+		_start = new OnePlay(this, values);
+		_current = _start;
+	}
+	
+	// The current play, null at the start of the game
+	public OnePlay getLastPlay()
+	{
+		return _current==_start ? null : _current;
+	}
+	
+	// The first plays made from the start of the game, the rest of the tree is reached through them
+	public OnePlay getFirstPlay()
+	{
+		return _start._firstChild;
+	}
+	
+	public int getPlayCount()
+	{
+		return _current._depth;
+	}
+	
+	// The numbers left after the current play
+	public long[] getValues()
+	{
+		return _current._numbersPost;
+	}
+	
+	// Makes a play after the current one. The same play made here before is reused, with everything after it.
+	// Throws IllegalArgumentException for a bad play and ArithmeticException for a division by zero.
+	public OnePlay play(int first, int second, char op)
+	{
+		OnePlay play = _current._firstChild;
+		while(play!=null && !play.isMove(first, second, op))
+			play = play._nextSibling;
+		
+		if(play==null)
+		{
+			play = new OnePlay(first, second, op, this, _current);
+			play._game = this;
+			play._nextSibling = _current._firstChild;
+			_current._firstChild = play;
+		}
+		_current._redo = play;
+		_current = play;
+		return play;
+	}
+	
+	// Takes back the current play, it stays in the tree for redo. Returns false at the start of the game.
+	public boolean undo()
+	{
+		if(_current==_start)
+			return false;
+		_current = _current._previous;
+		return true;
+	}
+	
+	// Plays again the play last taken back from the current one, null if there's none
+	public OnePlay redo()
+	{
+		if(_current._redo==null)
+			return null;
+		_current = _current._redo;
+		return _current;
+	}
+	
+	// Goes back (or forward) to any play in the tree, null for the start of the game.
+	// Redo from the plays before it leads back to it.
+	public void jumpTo(OnePlay play)
+	{
+		if(play==null)
+			play = _start;
+		if(play._game!=this)
+			throw new IllegalArgumentException("The play isn't in this game");
+		
+		for(OnePlay next=play; next!=_start; next=next._previous)
+			next._previous._redo = next;
+		_current = play;
+	}
+}
@@ -0,0 +1,184 @@
+package com.platonix.ptorzot.core;
+
+import com.platonix.ptorzot.level.GameLevel;
+
+// Packs a GameState into a few bytes - parcels, saved instance state and anything else storing or sending games
+// use it. Only the numbers, the target and the plays leading to the current one are kept, everything else is
+// worked out again by replaying the plays. A whole game of 5 numbers takes 11 or 12 bytes.
+//
+// Format:
+//   version       - 1 byte, NIBBLES_VERSION if all the numbers are up to MAX_NIBBLE, VARINTS_VERSION otherwise
+//   level, count  - 1 byte, the level's value (NO_LEVEL for none) in the high nibble, the number count in the low one
+//   numbers       - NIBBLES_VERSION: a nibble each (1..15), high nibble first, padded to a whole byte
+//                   VARINTS_VERSION: each like the target
+//   target        - unsigned, 7 bits per byte, low bits first, the high bit set on all the bytes but the last
+//   play count    - 1 byte
+//   plays         - 1 byte each: first (3 bits), second (3 bits), op (2 bits, its index in GameSession.OPS)
+public final class GameStateCodec
+{
+	public static final int NIBBLES_VERSION = 1;
+	public static final int VARINTS_VERSION = 2;
+	public static final int MAX_NIBBLE = 15;
+	public static final int MAX_NUMBERS = GameState.MAX_NUMBERS;
+	private static final int MAX_VARINT_SIZE = 5;  // 32 bits, 7 a byte
+	// The longest a game can take: the numbers and target as the largest varints, and a play fewer than numbers
+	public static final int MAX_ENCODED_SIZE = 2 + (MAX_NUMBERS+1) * MAX_VARINT_SIZE + 1 + MAX_NUMBERS-1;
+	private static final int NO_LEVEL = 0xF;
+
+	private GameStateCodec()
+	{
+	}
+
+	private static int getVarintSize(int value)
+	{
+		int size = 1;
+		while((value >>>= 7)!=0)
+			size++;
+		return size;
+	}
+
+	private static boolean fitsNibbles(int[] numbers)
+	{
+		for(int number: numbers)
+			if(number>MAX_NIBBLE)
+				return false;
+		return true;
+	}
+
+	public static int getEncodedSize(GameState game)
+	{
+		int[] numbers = game.getNumbers();
+		int numbersSize = 0;
+		if(fitsNibbles(numbers))
+			numbersSize = (numbers.length+1)/2;
+		else
+			for(int number: numbers)
+				numbersSize += getVarintSize(number);
+		return 2 + numbersSize + getVarintSize(game.getTarget()) + 1 + game.getPlayCount();
+	}
+
+	public static byte[] encode(GameState game)
+	{
+		int[] numbers = game.getNumbers();
+		if(numbers.length>MAX_NUMBERS)
+			throw new IllegalArgumentException("Can't encode more than " + MAX_NUMBERS + " numbers");
+		for(int number: numbers)
+			if(number<1)
+				throw new IllegalArgumentException("Can't encode the number " + number);
+
+		byte[] bytes = new byte[getEncodedSize(game)];
+		int pos = 0;
+		boolean nibbles = fitsNibbles(numbers);
+		bytes[pos++] = (byte)(nibbles ? NIBBLES_VERSION : VARINTS_VERSION);
+		int level = game.getLevel()==null ? NO_LEVEL : game.getLevel().getValue();
+		bytes[pos++] = (byte)(level<<4 | numbers.length);
+
+		if(nibbles)
+		{
+			for(int i=0; i<numbers.length; i++)
+			{
+				if(i%2==0)
+					bytes[pos] = (byte)(numbers[i]<<4);
+				else
+					bytes[pos++] |= numbers[i];
+			}
+			if(numbers.length%2!=0)
+				pos++;
+		}
+		else
+			for(int number: numbers)
+				pos = writeVarint(bytes, pos, number);
+
+		pos = writeVarint(bytes, pos, game.getTarget());
+		bytes[pos++] = (byte)game.getPlayCount();
+		for(GameState.OnePlay play: game.getPlays())
+			bytes[pos++] = encodePlay(play);
+		return bytes;
+	}
+
+	private static int writeVarint(byte[] bytes, int pos, int value)
+	{
+		while((value & ~0x7F)!=0)
+		{
+			bytes[pos++] = (byte)(value & 0x7F | 0x80);
+			value >>>= 7;
+		}
+		bytes[pos++] = (byte)value;
+		return pos;
+	}
+
+	static byte encodePlay(GameState.OnePlay play)
+	{
+		return (byte)(play.getFirst()<<5 | play.getSecond()<<2 | GameSession.OPS.indexOf(play.getOp()));
+	}
+
+	// Makes an encoded play, throwing IllegalArgumentException if it can't be made
+	static void decodePlay(GameState game, byte play)
+	{
+		int first = (play & 0xFF) >>> 5, second = (play >>> 2) & 0x7;
+		int active = game.getNumbers().length - game.getPlayCount();
+		if(first>=active || second>=active)
+			throw new IllegalArgumentException("Bad play");
+		try
+		{
+			game.play(first, second, GameSession.OPS.charAt(play & 0x3));
+		}
+		catch(ArithmeticException e)
+		{
+			throw new IllegalArgumentException("Division by zero");
+		}
+	}
+
+	// Throws IllegalArgumentException if the bytes aren't a game encoded by this version, or its plays can't be made
+	public static GameState decode(byte[] bytes)
+	{
+		try
+		{
+			int[] pos = { 0 };
+			int version = bytes[pos[0]++];
+			if(version!=NIBBLES_VERSION && version!=VARINTS_VERSION)
+				throw new IllegalArgumentException("Unsupported game encoding version " + version);
+			int level = (bytes[pos[0]] & 0xFF) >>> 4;
+			int[] numbers = new int[bytes[pos[0]++] & 0xF];
+
+			if(version==NIBBLES_VERSION)
+			{
+				for(int i=0; i<numbers.length; i++)
+					numbers[i] = i%2==0 ? (bytes[pos[0]] & 0xFF) >>> 4 : bytes[pos[0]++] & 0xF;
+				if(numbers.length%2!=0)
+					pos[0]++;
+			}
+			else
+				for(int i=0; i<numbers.length; i++)
+					numbers[i] = readVarint(bytes, pos);
+			int target = readVarint(bytes, pos);
+
+			GameState game = new GameState(level==NO_LEVEL ? null : GameLevel.fromValue(level), numbers, target);
+			int plays = bytes[pos[0]++];
+			for(int i=0; i<plays; i++)
+				decodePlay(game, bytes[pos[0]++]);
+			if(pos[0]!=bytes.length)
+				throw new IllegalArgumentException("Trailing bytes after the game");
+			return game;
+		}
+		catch(ArrayIndexOutOfBoundsException e)
+		{
+			throw new IllegalArgumentException("The encoded game is truncated");
+		}
+	}
+
+	// Reads the varint at pos[0], and moves pos[0] past it
+	private static int readVarint(byte[] bytes, int[] pos)
+	{
+		int value = 0;
+		for(int shift=0; ; shift+=7)
+		{
+			if(shift>28)
+				throw new IllegalArgumentException("Bad varint");
+			int b = bytes[pos[0]++];
+			value |= (b & 0x7F) << shift;
+			if((b & 0x80)==0)
+				return value;
+		}
+	}
+}
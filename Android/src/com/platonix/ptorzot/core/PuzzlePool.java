@@ -0,0 +1,310 @@
+package com.platonix.ptorzot.core;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import com.platonix.ptorzot.level.GameLevel;
+
+// New games made ahead of time, so starting one is just taking it off a queue. A background thread keeps
+// every level's queue topped up - the default level's with POOL_SIZE games, the others with RESERVE_SIZE -
+// checking each game is solvable before it's queued. The queues are saved to a file whenever they're topped up,
+// so the first game after the process starts is ready too.
+// A level whose queue is empty (the thread hasn't caught up yet) makes its game on the spot.
+//
+// File format: MAGIC, the number of games, then each game's length (1 byte) and its GameStateCodec encoding.
+public class PuzzlePool
+{
+	public static final int MAGIC = 0x505A5050;  // "PZPP"
+	public static final int POOL_SIZE = 8;
+	public static final int RESERVE_SIZE = 2;
+	private static final int MAX_UNSOLVABLE = 10;  // Unsolvable games in a row before a refill gives up
+
+	private static final GameLevel[] LEVELS = { GameLevel.Easy, GameLevel.Medium, GameLevel.Hard, GameLevel.Unique };
+
+	private static final Trace.Span GENERATE = Trace.span("pool.generate");
+	private static final Trace.Span GENERATE_NOW = Trace.span("pool.generateNow");  // On the taker's thread
+	private static final Trace.Counter HITS = Trace.counter("pool.hits");
+	private static final Trace.Counter MISSES = Trace.counter("pool.misses");
+	private static final Trace.Counter FAILURES = Trace.counter("pool.failures");
+
+	private final File _file;
+	private final List<LinkedList<GameState>> _queues;  // By level value - ArrayDeque is missing before API level 9
+	private GameLevel _defaultLevel = GameLevel.Medium;
+	private boolean _refilling;  // A refill is queued or running
+	private boolean _loaded;  // Nothing is refilled before load, so the saved games aren't written over unread
+	private final ExecutorService _executor;
+
+	public PuzzlePool(File file)
+	{
+		_file = file;
+		_queues = new ArrayList<LinkedList<GameState>>(LEVELS.length);
+		for(int i=0; i<LEVELS.length; i++)
+			_queues.add(new LinkedList<GameState>());
+		_executor = Executors.newSingleThreadExecutor(new ThreadFactory()
+		{
+			public Thread newThread(Runnable r)
+			{
+				Thread thread = new Thread(r, "PuzzlePool");
+				thread.setDaemon(true);
+				thread.setPriority(Thread.MIN_PRIORITY);
+				return thread;
+			}
+		});
+	}
+
+	// Reads the games saved last time, and starts topping up. Games that can't be read are dropped,
+	// a file that can't be read at all just leaves the queues to be filled from scratch.
+	// Games can be taken before it's called, they're all made on the spot until then.
+	public void load() throws IOException
+	{
+		try
+		{
+			new File(_file.getPath() + ".tmp").delete();  // Left by a write that failed
+			if(_file.exists())
+				read();
+		}
+		finally
+		{
+			synchronized(this)
+			{
+				_loaded = true;
+				scheduleRefill();
+			}
+		}
+	}
+
+	// The default level's queue is kept fullest - changing it tops the new one up
+	public synchronized void setDefaultLevel(GameLevel level)
+	{
+		if(level==_defaultLevel)
+			return;
+		_defaultLevel = level;
+		scheduleRefill();
+	}
+
+	public synchronized int size(GameLevel level)
+	{
+		return _queues.get(level.getValue()).size();
+	}
+
+	// A new game of the level, made right here if none is ready. Games made before GameLevel.setPuzzleSpec
+	// changed the puzzles are thrown away. The game counts as played only now (GameLevel.setPlayed), so the games
+	// thrown away or never taken can be dealt again.
+	public GameState take(GameLevel level)
+	{
+		GameState game;
+		synchronized(this)
+		{
+			LinkedList<GameState> queue = _queues.get(level.getValue());
+			do
+				game = queue.poll();
+			while(game!=null && !GameLevel.getPuzzleSpec().matches(game.getNumbers()));
+			if(game!=null)
+				GameLevel.setPlayed(game.getNumbers(), game.getTarget());
+			scheduleRefill();
+		}
+		if(game!=null)
+		{
+			HITS.increment();
+			return game;
+		}
+		MISSES.increment();
+		long start = Trace.now();
+		game = level.createNewGame();
+		GENERATE_NOW.end(start);
+		GameLevel.setPlayed(game.getNumbers(), game.getTarget());
+		scheduleRefill();  // Again, in case the refill was done already - it saves the played puzzles
+		return game;
+	}
+
+	private synchronized void scheduleRefill()
+	{
+		if(_refilling || !_loaded)
+			return;
+		_refilling = true;
+		_executor.execute(new Runnable()
+		{
+			public void run()
+			{
+				refill();
+			}
+		});
+	}
+
+	private int getCapacity(GameLevel level)
+	{
+		return level==_defaultLevel ? POOL_SIZE : RESERVE_SIZE;
+	}
+
+	// The level missing the most games, the default one first - null once they're all full
+	private synchronized GameLevel getNeediestLevel()
+	{
+		if(_queues.get(_defaultLevel.getValue()).size()<getCapacity(_defaultLevel))
+			return _defaultLevel;
+		GameLevel neediest = null;
+		int missing = 0;
+		for(GameLevel level: LEVELS)
+		{
+			int levelMissing = getCapacity(level) - _queues.get(level.getValue()).size();
+			if(levelMissing>missing)
+			{
+				neediest = level;
+				missing = levelMissing;
+			}
+		}
+		if(neediest==null)
+			_refilling = false;  // Under the lock, so a take from now on schedules another refill
+		return neediest;
+	}
+
+	private void refill()
+	{
+		boolean changed = false, full = false;
+		try
+		{
+			int unsolvable = 0;
+			GameLevel level;
+			while((level = getNeediestLevel())!=null)
+			{
+				long start = Trace.now();
+				GameState game = level.createNewGame();
+				GENERATE.end(start);
+				if(!GameLevel.isSolvable(game.getNumbers(), game.getTarget()))
+				{
+					if(++unsolvable==MAX_UNSOLVABLE)
+						break;
+					continue;
+				}
+				unsolvable = 0;
+				synchronized(this)
+				{
+					_queues.get(level.getValue()).add(game);
+				}
+				changed = true;
+			}
+			full = level==null;  // getNeediestLevel cleared _refilling
+		}
+		catch(RuntimeException e)
+		{
+			// The level can't make games now - no puzzle in range, a bad asset - takes make their own
+			FAILURES.increment();
+		}
+		finally
+		{
+			if(!full)
+				synchronized(this)
+				{
+					_refilling = false;  // Try again on the next take
+				}
+		}
+
+		if(changed)
+		{
+			try
+			{
+				write();
+			}
+			catch(IOException e)
+			{
+				// The games are still queued, they just won't outlive the process
+			}
+		}
+		try
+		{
+			GameLevel.savePlayed();  // Here rather than on the taker's thread
+		}
+		catch(IOException e)
+		{
+			// Saved on the next refill
+		}
+	}
+
+	private void read() throws IOException
+	{
+		DataInputStream in = new DataInputStream(new FileInputStream(_file));
+		try
+		{
+			if(in.readInt()!=MAGIC)
+				return;
+			int count = in.readUnsignedShort();
+			for(int i=0; i<count; i++)
+			{
+				byte[] encoded = new byte[in.readUnsignedByte()];
+				in.readFully(encoded);
+				try
+				{
+					GameState game = GameStateCodec.decode(encoded);
+					if(game.getLevel()!=null && game.getPlayCount()==0)
+						synchronized(this)
+						{
+							_queues.get(game.getLevel().getValue()).add(game);
+						}
+				}
+				catch(IllegalArgumentException e)
+				{
+					// Written by another version, skip it
+				}
+			}
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	// Written next to the file and renamed over it, so a half written file is never read
+	private void write() throws IOException
+	{
+		byte[][] games;
+		synchronized(this)
+		{
+			int count = 0;
+			for(LinkedList<GameState> queue: _queues)
+				count += queue.size();
+			games = new byte[count][];
+			int i = 0;
+			for(LinkedList<GameState> queue: _queues)
+				for(GameState game: queue)
+					games[i++] = GameStateCodec.encode(game);
+		}
+
+		File temp = new File(_file.getPath() + ".tmp");
+		boolean written = false;
+		try
+		{
+			DataOutputStream out = new DataOutputStream(new FileOutputStream(temp));
+			try
+			{
+				out.writeInt(MAGIC);
+				out.writeShort(games.length);
+				for(byte[] game: games)
+				{
+					out.writeByte(game.length);
+					out.write(game);
+				}
+			}
+			finally
+			{
+				out.close();
+			}
+			if(!temp.renameTo(_file))
+				throw new IOException("Can't rename " + temp + " to " + _file);
+			written = true;
+		}
+		finally
+		{
+			if(!written)
+				temp.delete();
+		}
+	}
+}
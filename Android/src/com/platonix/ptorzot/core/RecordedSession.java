@@ -0,0 +1,65 @@
+package com.platonix.ptorzot.core;
+
+import com.platonix.ptorzot.level.GameLevel;
+
+// A game and the player's input over it, one line of text:
+//     <level value> <numbers, comma separated> <target> <inputs>
+// e.g. "1 3,7,2,9,5 43 1-00*21+20+1" - (7-3)*9 + (2+5). The inputs are one character each - a digit is a press on
+// that number's button, an op is a press on the op's button and BACK is the back button.
+public class RecordedSession
+{
+	public static final char BACK = '<';
+	
+	private final int _level;
+	private final int[] _numbers;
+	private final int _target;
+	private final String _inputs;
+	
+	public RecordedSession(int level, int[] numbers, int target, String inputs)
+	{
+		_level = level;
+		_numbers = numbers;
+		_target = target;
+		_inputs = inputs;
+	}
+	
+	public int getLevel() { return _level; }
+	public int[] getNumbers() { return _numbers; }
+	public int getTarget() { return _target; }
+	public String getInputs() { return _inputs; }
+	
+	// A fresh game, as the player started it
+	public GameState createGame()
+	{
+		return new GameState(GameLevel.fromValue(_level), _numbers.clone(), _target);
+	}
+	
+	public static RecordedSession parse(String line)
+	{
+		String[] fields = line.trim().split(" +");
+		if(fields.length!=3 && fields.length!=4)
+			throw new IllegalArgumentException("Bad session '" + line + "'");
+		
+		String[] numberFields = fields[1].split(",");
+		int[] numbers = new int[numberFields.length];
+		for(int i=0; i<numbers.length; i++)
+			numbers[i] = Integer.parseInt(numberFields[i]);
+		return new RecordedSession(Integer.parseInt(fields[0]), numbers, Integer.parseInt(fields[2]),
+				fields.length==4 ? fields[3] : "");
+	}
+	
+	@Override
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append(_level).append(' ');
+		for(int i=0; i<_numbers.length; i++)
+		{
+			if(i>0)
+				sb.append(',');
+			sb.append(_numbers[i]);
+		}
+		sb.append(' ').append(_target).append(' ').append(_inputs);
+		return sb.toString();
+	}
+}
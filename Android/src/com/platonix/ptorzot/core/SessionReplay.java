@@ -0,0 +1,66 @@
+package com.platonix.ptorzot.core;
+
+// Pushes recorded sessions through GameSession as fast as it can, for regression tests and profiling.
+// Everything GameActivity does with the session's results is done here too, except for drawing: a wrong
+// result is taken back, and a solved game ends the session (the rest of its inputs are ignored).
+// Keeps count of every result over all the sessions replayed.
+public class SessionReplay
+{
+	private final long[] _results = new long[GameSession.Result.values().length];
+	private long _sessions, _inputs, _solved;
+	
+	public long getSessions() { return _sessions; }
+	public long getInputs() { return _inputs; }
+	public long getSolved() { return _solved; }
+	public long getResultCount(GameSession.Result result) { return _results[result.ordinal()]; }
+	
+	// Returns the session as it was after the last input
+	public GameSession replay(RecordedSession recorded)
+	{
+		GameSession session = new GameSession(recorded.createGame());
+		String inputs = recorded.getInputs();
+		_sessions++;
+		
+		for(int i=0; i<inputs.length(); i++)
+		{
+			GameSession.Result result = input(session, inputs.charAt(i));
+			_inputs++;
+			_results[result.ordinal()]++;
+			
+			if(result==GameSession.Result.Finished)
+			{
+				if(session.isSolved())
+				{
+					_solved++;
+					break;
+				}
+				_results[session.onBack().ordinal()]++;  // As CheckResultActivity's WRONG_RESULT does
+			}
+		}
+		return session;
+	}
+	
+	private static GameSession.Result input(GameSession session, char input)
+	{
+		if(input>='0' && input<='9')
+			return session.onNumber(input - '0');
+		if(input==RecordedSession.BACK)
+			return session.onBack();
+		return session.onOperation(input);
+	}
+	
+	// One line describing where the session ended, to compare replays of the same sessions
+	public static String describe(GameSession session)
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append(session.getGame().getPlayCount()).append(' ');
+		sb.append(session.isSolved() ? "solved" : session.getEntryState().toString()).append(' ');
+		for(int i=0; i<session.getActiveNumbers(); i++)
+		{
+			if(i>0)
+				sb.append(" | ");
+			sb.append(session.getLabel(i));
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,244 @@
+package com.platonix.ptorzot.core;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Cheap always-on timing of named spans, and counters. Spans and counters are made once, as static fields of
+// the classes using them, and are then recorded without locks or allocations:
+//
+//   private static final Trace.Span CREATE = Trace.span("app.create");
+//   ...
+//   long start = Trace.now();
+//   ...
+//   CREATE.end(start);
+//
+// Every span keeps its count, total, max and a histogram of durations in power of two microsecond buckets.
+// The last RING_SIZE spans ended are also kept in a ring buffer - writers claim a slot with one atomic increment
+// and mark it with its sequence number once written, readers skip slots being written or already overwritten.
+// dump() puts it all in a text report, spans with a budget they went over are marked.
+public final class Trace
+{
+	public static final int RING_SIZE = 256;  // A power of 2
+	private static final int BUCKETS = 32;  // Bucket i holds durations of [2^(i-1), 2^i) microseconds, 0 below 1us
+	private static final long BEGINNING = now();
+
+	private static final ArrayList<Span> _spans = new ArrayList<Span>();
+	private static final ArrayList<Counter> _counters = new ArrayList<Counter>();
+
+	private static final AtomicLong _cursor = new AtomicLong();
+	private static final AtomicLongArray _ringSequence = new AtomicLongArray(RING_SIZE);
+	private static final Span[] _ringSpan = new Span[RING_SIZE];
+	private static final long[] _ringStart = new long[RING_SIZE];
+	private static final long[] _ringDuration = new long[RING_SIZE];
+
+	static
+	{
+		for(int i=0; i<RING_SIZE; i++)
+			_ringSequence.set(i, -1);
+	}
+
+	private Trace()
+	{
+	}
+
+	public static long now()
+	{
+		return System.nanoTime();
+	}
+
+	public static final class Span
+	{
+		private final String _name;
+		private final AtomicLong _count = new AtomicLong(), _total = new AtomicLong(), _max = new AtomicLong();
+		private final AtomicLongArray _buckets = new AtomicLongArray(BUCKETS);
+		private volatile long _budget = Long.MAX_VALUE;
+
+		private Span(String name)
+		{
+			_name = name;
+		}
+
+		public String getName() { return _name; }
+		public long getCount() { return _count.get(); }
+		public long getTotalNanos() { return _total.get(); }
+		public long getMaxNanos() { return _max.get(); }
+
+		public void setBudgetMillis(long millis)
+		{
+			_budget = millis * 1000000;
+		}
+
+		public boolean isOverBudget()
+		{
+			return _max.get()>_budget;
+		}
+
+		// Records the span from start (a Trace.now()) until now, and returns its duration in nanoseconds
+		public long end(long start)
+		{
+			long end = now();
+			long duration = end - start;
+			_count.incrementAndGet();
+			_total.addAndGet(duration);
+			long max;
+			while(duration>(max = _max.get()) && !_max.compareAndSet(max, duration))
+				;
+			_buckets.incrementAndGet(getBucket(duration));
+
+			long sequence = _cursor.getAndIncrement();
+			int slot = (int)sequence & (RING_SIZE-1);
+			_ringSequence.set(slot, -1);  // Being written
+			_ringSpan[slot] = this;
+			_ringStart[slot] = start;
+			_ringDuration[slot] = duration;
+			_ringSequence.set(slot, sequence);
+			return duration;
+		}
+
+		// The upper bound of the bucket holding the fraction's duration, in microseconds
+		public long getPercentileMicros(double fraction)
+		{
+			long count = 0;
+			for(int i=0; i<BUCKETS; i++)
+				count += _buckets.get(i);
+			long rank = (long)Math.ceil(fraction * count);
+			for(int i=0; i<BUCKETS; i++)
+			{
+				rank -= _buckets.get(i);
+				if(rank<=0)
+					return 1L << i;
+			}
+			return 0;
+		}
+	}
+
+	public static final class Counter
+	{
+		private final String _name;
+		private final AtomicLong _value = new AtomicLong();
+
+		private Counter(String name)
+		{
+			_name = name;
+		}
+
+		public String getName() { return _name; }
+		public long get() { return _value.get(); }
+
+		public void increment()
+		{
+			_value.incrementAndGet();
+		}
+
+		public void add(long amount)
+		{
+			_value.addAndGet(amount);
+		}
+	}
+
+	// The span of that name, made the first time it's asked for
+	public static Span span(String name)
+	{
+		synchronized(_spans)
+		{
+			for(Span span: _spans)
+				if(span._name.equals(name))
+					return span;
+			Span span = new Span(name);
+			_spans.add(span);
+			return span;
+		}
+	}
+
+	public static Counter counter(String name)
+	{
+		synchronized(_counters)
+		{
+			for(Counter counter: _counters)
+				if(counter._name.equals(name))
+					return counter;
+			Counter counter = new Counter(name);
+			_counters.add(counter);
+			return counter;
+		}
+	}
+
+	private static int getBucket(long nanos)
+	{
+		long micros = nanos / 1000;
+		return Math.min(BUCKETS-1, 64 - Long.numberOfLeadingZeros(micros));
+	}
+
+	// Times in milliseconds, the recent spans' starts since Trace was loaded
+	public static String dump()
+	{
+		StringBuilder sb = new StringBuilder(4096);
+		sb.append("span: count, mean, p50, p90, max (ms)\n");
+		Span[] spans;
+		synchronized(_spans)
+		{
+			spans = _spans.toArray(new Span[_spans.size()]);
+		}
+		for(Span span: spans)
+		{
+			long count = span.getCount();
+			sb.append(span._name).append(": ").append(count);
+			if(count>0)
+			{
+				sb.append(", ");
+				appendMillis(sb, span.getTotalNanos() / count);
+				sb.append(", <");
+				appendMillis(sb, span.getPercentileMicros(0.5) * 1000);
+				sb.append(", <");
+				appendMillis(sb, span.getPercentileMicros(0.9) * 1000);
+				sb.append(", ");
+				appendMillis(sb, span.getMaxNanos());
+			}
+			if(span._budget!=Long.MAX_VALUE)
+			{
+				sb.append(span.isOverBudget() ? " OVER BUDGET " : " budget ");
+				appendMillis(sb, span._budget);
+			}
+			sb.append('\n');
+		}
+
+		sb.append("\ncounters\n");
+		synchronized(_counters)
+		{
+			for(Counter counter: _counters)
+				sb.append(counter._name).append(": ").append(counter.get()).append('\n');
+		}
+
+		sb.append("\nrecent spans: start, duration (ms)\n");
+		long last = _cursor.get();
+		for(long sequence=Math.max(0, last-RING_SIZE); sequence<last; sequence++)
+		{
+			int slot = (int)sequence & (RING_SIZE-1);
+			if(_ringSequence.get(slot)!=sequence)
+				continue;
+			Span span = _ringSpan[slot];
+			long start = _ringStart[slot], duration = _ringDuration[slot];
+			if(_ringSequence.get(slot)!=sequence)  // Overwritten while reading it
+				continue;
+			sb.append(span._name).append(": ");
+			appendMillis(sb, start - BEGINNING);
+			sb.append(", ");
+			appendMillis(sb, duration);
+			sb.append('\n');
+		}
+		return sb.toString();
+	}
+
+	private static void appendMillis(StringBuilder sb, long nanos)
+	{
+		long micros = nanos / 1000;
+		sb.append(micros / 1000).append('.');
+		long fraction = Math.abs(micros % 1000);
+		if(fraction<100)
+			sb.append('0');
+		if(fraction<10)
+			sb.append('0');
+		sb.append(fraction);
+	}
+}
@@ -1,29 +1,32 @@
 package com.platonix.ptorzot.level;
 
-import com.platonix.ptorzot.Formattings;
-import com.platonix.ptorzot.GameState;
-import com.platonix.ptorzot.R;
-import com.platonix.ptorzot.GameState.OnePlay;
+import com.platonix.ptorzot.core.Expression;
+import com.platonix.ptorzot.core.GameState;
+import com.platonix.ptorzot.core.GameState.OnePlay;
+import com.platonix.ptorzot.solver.PuzzleScore;
 
 public class EasyLevel extends GameLevel 
 {
 	public EasyLevel()
 	{
-		super(0, R.drawable.green, R.string.level1_short, R.string.level1_long);
+		super(0);
 	}
 	
 	@Override
 	public GameState createNewGame() 
 	{
-		int[] numbers = new int[5];
-		int target = createSolvableGame(numbers, 11, 40);
+		PuzzleSpec spec = getPuzzleSpec();
+		int[] numbers = new int[spec.getSize()];
+		int target = createCalibratedGame(spec, numbers);
+		if(target<0)
+			target = createScoredGame(spec, numbers, 11, 40, 0, PuzzleScore.MEDIUM_DIFFICULTY);
     	return new GameState(this, numbers, target);
 	}
 
 	@Override
-	public void getNextLabels(String[] labels, OnePlay play) 
+	public void getNextLabels(Expression[] labels, OnePlay play) 
 	{
-		for(int i=0; i<5; i++)
-			labels[i] = Formattings.getPrintedNumber(play.getNumbersPost()[i]);
+		for(int i=0; i<labels.length; i++)
+			labels[i] = Expression.of(play.getNumbersPost()[i]);
 	}
 }
@@ -1,84 +1,298 @@
 package com.platonix.ptorzot.level;
 
+import java.io.IOException;
 import java.util.Random;
 
-import com.platonix.ptorzot.Formattings;
-import com.platonix.ptorzot.GameState;
+import com.platonix.ptorzot.core.Expression;
+import com.platonix.ptorzot.core.GameState;
+import com.platonix.ptorzot.solver.ChainHistogram;
+import com.platonix.ptorzot.solver.DifficultyScorer;
+import com.platonix.ptorzot.solver.LevelTable;
+import com.platonix.ptorzot.solver.PuzzleGenerator;
+import com.platonix.ptorzot.solver.PuzzleScore;
+import com.platonix.ptorzot.solver.PuzzleSequencer;
+import com.platonix.ptorzot.solver.ReachabilityIndex;
+import com.platonix.ptorzot.solver.Solver;
+import com.platonix.ptorzot.solver.StateSearch;
+import com.platonix.ptorzot.solver.SubsetOracle;
+import com.platonix.ptorzot.solver.UniqueSolutions;
 
 public abstract class GameLevel 
 {
-	private int _levelValue, _imageId, _stringId, _longStringId;
-	private final static int MAX_ITERS = 1000;
+	private int _levelValue;
+	private final static int MAX_DRAWS = 100;
+	private final static int MAX_SCORED_DRAWS = 10;
+	private final static int MAX_TARGET_TRIES = 10;
+	// Solver and DifficultyScorer search every move sequence, and SubsetOracle makes every value of every subset,
+	// which is only quick up to 5 numbers - bigger puzzles are solved with StateSearch, and not scored
+	protected final static int MAX_FULL_SEARCH_SIZE = 5;
+	private final static long MAX_DRAW_STATES = 20000;  // Before trying another target when drawing with StateSearch
+	private final static int MAX_CHAINS = 8192;  // Op chains targets are picked from, of as many orderings as fit
+	// Set by GameApplication's loading thread once the asset is mapped, null until then
+	private static volatile ReachabilityIndex _index;
+	private static volatile UniqueSolutions _uniqueSolutions;  // Likewise, for UniqueLevel
+	private static volatile LevelTable _levelTable;  // Likewise
+	private static volatile PuzzleSequencer _sequencer;  // Deals the level table's puzzles without repeats, once loaded
+	// One generator for all the games - seeding a new one per game made games too alike
+	private static final Random RANDOM = new Random();
+	private static volatile PuzzleSpec _spec = PuzzleSpec.STANDARD;
+	private PuzzleGenerator _generator;
 	
-	protected GameLevel(int levelValue, int imageId, int stringId, int longStringId)
+	// Images and strings are in LevelResources, keeping the levels free of Android
+	protected GameLevel(int levelValue)
 	{
 		_levelValue = levelValue;
-		_imageId = imageId;
-		_stringId = stringId;
-		_longStringId = longStringId;
 	}
 	
 	public int getValue() { return _levelValue; }
-	public int getLevelImageId() { return _imageId; }
-	public int getLevelTextId() { return _stringId; }
-	public int getLevelLongTextId() { return _longStringId; }
+	
+	// The puzzles all the levels make from now on
+	public static void setPuzzleSpec(PuzzleSpec spec)
+	{
+		_spec = spec;
+	}
+	
+	public static PuzzleSpec getPuzzleSpec() { return _spec; }
 
-	protected int createSolvableGame(int[] numbers, int minTarget, int maxTarget)
+	// Draws a puzzle of the spec, filling numbers (of the spec's size) and returning the target. Standard puzzles
+	// are drawn uniformly from all the solvable ones with a target in range, when the index is there.
+	protected int createSolvableGame(PuzzleSpec spec, int[] numbers, int minTarget, int maxTarget)
 	{
-		if(numbers.length!=5)
-			throw new IllegalArgumentException("numbers must be an array of size 5");
+		if(numbers.length!=spec.getSize())
+			throw new IllegalArgumentException("numbers must be an array of size " + spec.getSize());
 		
-		Random random = new Random();
-		for(int i=0; i<5; i++)
-			numbers[i] = random.nextInt(9) + 1;
-		int target = findSolvableTarget(random, numbers, minTarget, maxTarget);
+		PuzzleGenerator generator = spec.equals(PuzzleSpec.STANDARD) ? getGenerator(minTarget, maxTarget) : null;
+		if(generator!=null)
+			return generator.generate(RANDOM, numbers);
 		
-		return target;
+		// No index, solve random numbers until some target in range can be reached
+		int range = spec.getMaxNumber() - spec.getMinNumber() + 1;
+		for(int draw=0; draw<MAX_DRAWS; draw++)
+		{
+			for(int i=0; i<numbers.length; i++)
+				numbers[i] = spec.getMinNumber() + RANDOM.nextInt(range);
+			int target = findSolvableTarget(RANDOM, numbers, minTarget, maxTarget);
+			if(target>=0)
+				return target;
+		}
+		throw new IllegalStateException("Can't find a game with a target between " + minTarget + " and " + maxTarget);
 	}
 	
-	protected int findSolvableTarget(Random random, int[] numbers, int minTarget, int maxTarget)
+	// Deals the level's next puzzle from the level table, -1 if there is no table, it doesn't cover the spec
+	// or has no such level - the level then makes its own with createScoredGame.
+	// Without the sequencer the puzzle is just drawn, and may repeat.
+	protected int createCalibratedGame(PuzzleSpec spec, int[] numbers)
 	{
-		String ops = "+-*/";
-		int loopCount = 0;
-		int minFound = 99999999, maxFound=-1;
-		int iTarget = 0;
+		LevelTable table = _levelTable;
+		if(table==null || _levelValue>=table.getLevelCount() || table.getMultisets().getSize()!=spec.getSize() ||
+				spec.getMinNumber()!=1 || table.getMultisets().getMaxNumber()!=spec.getMaxNumber())
+			return -1;
+		PuzzleSequencer sequencer = _sequencer;
+		if(sequencer!=null && sequencer.getTable()==table)
+			return sequencer.next(_levelValue, RANDOM, numbers);
+		return table.generate(_levelValue, RANDOM, numbers);
+	}
+	
+	protected static Random getRandom() { return RANDOM; }
+	
+	// Like createSolvableGame, but also keeps to a band of PuzzleScore.getDifficulty - draws up to
+	// MAX_SCORED_DRAWS puzzles and keeps the first one in the band, or the one closest to it.
+	// Puzzles too big to score are just drawn.
+	protected int createScoredGame(PuzzleSpec spec, int[] numbers, int minTarget, int maxTarget, 
+			double minDifficulty, double maxDifficulty)
+	{
+		if(spec.getSize()>MAX_FULL_SEARCH_SIZE)
+			return createSolvableGame(spec, numbers, minTarget, maxTarget);
 		
-		do
+		int[] candidate = new int[numbers.length];
+		double bestDistance = Double.POSITIVE_INFINITY;
+		int bestTarget = -1;
+		for(int draw=0; draw<MAX_SCORED_DRAWS && bestDistance>0; draw++)
 		{
-			double target = numbers[0];
-			for(int i=1; i<5; i++)
+			int target = createSolvableGame(spec, candidate, minTarget, maxTarget);
+			double difficulty = scorePuzzle(candidate, target).getDifficulty();
+			double distance = difficulty<minDifficulty ? minDifficulty-difficulty : 
+				difficulty>maxDifficulty ? difficulty-maxDifficulty : 0;
+			if(bestTarget<0 || distance<bestDistance)
 			{
-				char op = ops.charAt(random.nextInt(4));
-				target = Formattings.applyOperation(target, numbers[i], op);
+				System.arraycopy(candidate, 0, numbers, 0, numbers.length);
+				bestDistance = distance;
+				bestTarget = target;
 			}
-			if(!isInt(target) || target<0) // This isn't considered a good target, try again without counting
-				continue;
+		}
+		return bestTarget;
+	}
+	
+	// A full search of the puzzle, about as expensive as counting all its solutions
+	public static PuzzleScore scorePuzzle(int[] numbers, int target)
+	{
+		DifficultyScorer scorer = new DifficultyScorer(numbers.length, target);
+		scorer.score(numbers);
+		return scorer.getScore(target);
+	}
+	
+	private synchronized PuzzleGenerator getGenerator(int minTarget, int maxTarget)
+	{
+		ReachabilityIndex index = _index;
+		if(index==null || minTarget<0 || maxTarget>index.getMaxTarget())
+			return null;
+		if(_generator==null || _generator.getIndex()!=index || 
+				_generator.getMinTarget()!=minTarget || _generator.getMaxTarget()!=maxTarget)
+			_generator = new PuzzleGenerator(index, minTarget, maxTarget);
+		return _generator;
+	}
+	
+	// Picks a random target in range that can be reached from numbers (with any bracketing), -1 if there is none.
+	// All the reachable targets are found at once by SubsetOracle.
+	// Too many numbers to find every reachable target - picks one made by the op chains of a few orderings,
+	// or failing that tries random targets, -1 if none is found quickly, so the caller draws other numbers.
+	protected int findSolvableTarget(Random random, int[] numbers, int minTarget, int maxTarget)
+	{
+		if(numbers.length>MAX_FULL_SEARCH_SIZE)
+		{
+			int target = findChainTarget(random, numbers, minTarget, maxTarget);
+			if(target>=0)
+				return target;
 			
-			iTarget = (int)target;
-			if(iTarget < minFound)
-				minFound = iTarget;
-			if(iTarget > maxFound)
-				maxFound = iTarget;
-			loopCount++;
-		} while((iTarget<minTarget || iTarget>maxTarget) && loopCount<MAX_ITERS);
-
-		if(loopCount==MAX_ITERS)
-			return minFound;
+			StateSearch search = new StateSearch();
+			search.setMaxStates(MAX_DRAW_STATES);
+			for(int i=0; i<MAX_TARGET_TRIES; i++)
+			{
+				target = minTarget + random.nextInt(maxTarget - minTarget + 1);
+				if(search.findOne(numbers, target)!=null)
+					return target;
+			}
+			return -1;
+		}
+		
+		boolean[] reachable = new boolean[maxTarget+1];
+		new SubsetOracle(numbers).getTargets(reachable);
 		
-		return iTarget;
+		int solvable = 0;
+		for(int target=minTarget; target<=maxTarget; target++)
+			if(reachable[target])
+				solvable++;
+		if(solvable==0)
+			return -1;
+		
+		int skip = random.nextInt(solvable);
+		for(int target=minTarget; ; target++)
+			if(reachable[target] && skip--==0)
+				return target;
 	}
+	
+	// A random target in range made by an op chain of some random orderings of the numbers (ChainHistogram),
+	// -1 if there's none. A chain is a solution as it is, so the target needs no checking.
+	private static int findChainTarget(Random random, int[] numbers, int minTarget, int maxTarget)
+	{
+		int maxNumber = 0;
+		for(int number: numbers)
+			maxNumber = Math.max(maxNumber, number);
+		if(!ChainHistogram.canCount(numbers.length, maxNumber))
+			return -1;
+		
+		ChainHistogram chains = new ChainHistogram(numbers.length, maxTarget);
+		int[] ordering = numbers.clone();
+		int orderings = Math.max(MAX_CHAINS >> 2*(numbers.length-1), 1);  // 4^(size-1) chains each
+		for(int i=0; i<orderings; i++)
+		{
+			for(int j=ordering.length-1; j>0; j--)
+			{
+				int k = random.nextInt(j+1), t = ordering[j];
+				ordering[j] = ordering[k];
+				ordering[k] = t;
+			}
+			chains.addOrdering(ordering);
+		}
 		
-	private boolean isInt(double num)
+		int made = 0;
+		for(int target=minTarget; target<=maxTarget; target++)
+			if(chains.getCount(target)>0)
+				made++;
+		if(made==0)
+			return -1;
+		
+		int skip = random.nextInt(made);
+		for(int target=minTarget; ; target++)
+			if(chains.getCount(target)>0 && skip--==0)
+				return target;
+	}
+	
+	public static void setReachabilityIndex(ReachabilityIndex index)
+	{
+		_index = index;
+	}
+	
+	public static void setUniqueSolutions(UniqueSolutions uniqueSolutions)
+	{
+		_uniqueSolutions = uniqueSolutions;
+	}
+	
+	protected static UniqueSolutions getUniqueSolutions() { return _uniqueSolutions; }
+	
+	public static void setLevelTable(LevelTable table)
+	{
+		_levelTable = table;
+	}
+	
+	// Set by GameApplication with the player's saved sequencer of the level table
+	public static void setPuzzleSequencer(PuzzleSequencer sequencer)
 	{
-		return num-Math.floor(num) < 1e-6;
+		_sequencer = sequencer;
+	}
+	
+	// The player was given the game, so the sequencer doesn't deal it again
+	public static void setPlayed(int[] numbers, int target)
+	{
+		PuzzleSequencer sequencer = _sequencer;
+		if(sequencer!=null)
+			sequencer.setPlayed(numbers, target);
+	}
+	
+	// Saves the played puzzles if they changed - a file write, so not on the UI thread
+	public static void savePlayed() throws IOException
+	{
+		PuzzleSequencer sequencer = _sequencer;
+		if(sequencer!=null)
+			sequencer.save();
+	}
+	
+	// Answered from the precomputed index when it covers the game, otherwise by solving
+	public static boolean isSolvable(int[] numbers, int target)
+	{
+		ReachabilityIndex index = _index;
+		if(index!=null && index.covers(numbers, target))
+			return index.isSolvable(numbers, target);
+		if(numbers.length>MAX_FULL_SEARCH_SIZE)
+			return new StateSearch().findOne(numbers, target)!=null;
+		return new Solver(numbers).isSolvable(target);
+	}
+	
+	// The number of move sequences reaching the target (the index saturates at ReachabilityIndex.MAX_COUNT).
+	// A full search, slow for more than MAX_FULL_SEARCH_SIZE numbers.
+	public static int getSolutionCount(int[] numbers, int target)
+	{
+		ReachabilityIndex index = _index;
+		if(index!=null && index.covers(numbers, target))
+			return index.getSolutionCount(numbers, target);
+		return new Solver(numbers).countSolutions(target);
 	}
 	
 	public abstract GameState createNewGame();
-	public abstract void getNextLabels(String[] labels, GameState.OnePlay play);
+	public abstract void getNextLabels(Expression[] labels, GameState.OnePlay play);
+	
+	// The label of the play's result is the expression it was made of - put in first, with second removed
+	protected static void combineLabels(Expression[] labels, GameState.OnePlay play)
+	{
+		labels[play.getFirst()] = Expression.of(labels[play.getFirst()], play.getOp(), labels[play.getSecond()]);
+		for(int i=play.getSecond(); i<labels.length-1; i++)
+			labels[i] = labels[i+1];
+	}
 	
 	public static final GameLevel Easy = new EasyLevel();
 	public static final GameLevel Medium = new MediumLevel();
 	public static final GameLevel Hard = new HardLevel();
+	public static final GameLevel Unique = new UniqueLevel();
 	
 	public static GameLevel fromValue(int value)
 	{
@@ -88,6 +302,8 @@ public abstract class GameLevel
 			return Medium;
 		if(value==Hard.getValue())
 			return Hard;
+		if(value==Unique.getValue())
+			return Unique;
 		throw new IllegalArgumentException("Invalid level value " + ((Integer)value).toString());
 	}
 }
@@ -1,42 +1,33 @@
 package com.platonix.ptorzot.level;
 
-import com.platonix.ptorzot.Formattings;
-import com.platonix.ptorzot.GameState;
-import com.platonix.ptorzot.R;
-import com.platonix.ptorzot.GameState.OnePlay;
+import com.platonix.ptorzot.core.Expression;
+import com.platonix.ptorzot.core.GameState;
+import com.platonix.ptorzot.core.GameState.OnePlay;
+import com.platonix.ptorzot.solver.PuzzleScore;
 
 public class MediumLevel extends GameLevel 
 {
 	public MediumLevel()
 	{
-		super(1, R.drawable.yellow, R.string.level2_short, R.string.level2_long);
+		super(1);
 	}
 	
 	@Override
 	public GameState createNewGame() 
 	{
-		int[] numbers = new int[5];
-		int target = createSolvableGame(numbers, 19, 60);
+		PuzzleSpec spec = getPuzzleSpec();
+		int[] numbers = new int[spec.getSize()];
+		int target = createCalibratedGame(spec, numbers);
+		if(target<0)
+			target = createScoredGame(spec, numbers, 19, 60, PuzzleScore.MEDIUM_DIFFICULTY,
+					PuzzleScore.HARD_DIFFICULTY);
     	return new GameState(this, numbers, target);
 	}
 
 
 	@Override
-	public void getNextLabels(String[] labels, OnePlay play) 
+	public void getNextLabels(Expression[] labels, OnePlay play) 
 	{
-		String first = labels[play.getFirst()];
-		if(first.length() > 2)
-			first = "(" + first + ")";
-	
-		String second = labels[play.getSecond()];
-		if(second.length() > 2)
-			second = "(" + second + ")";
-	
-		String newLabel = first + " " + Formattings.getOpString(play.getOp()) + " " + second;
-		
-    	// Put the new label in first, remove second
-    	labels[play.getFirst()] = newLabel;
-    	for(int i=play.getSecond(); i<4; i++)
-    		labels[i] = labels[i+1];
+		combineLabels(labels, play);
 	}
 }
@@ -0,0 +1,62 @@
+package com.platonix.ptorzot.level;
+
+import com.platonix.ptorzot.core.GameState;
+
+// The shape of the puzzles the levels make - how many numbers, and the range they're drawn from.
+// Immutable, the levels share one (GameLevel.setPuzzleSpec) - the one the player chose, Settings.PUZZLE_SPECS.
+public final class PuzzleSpec
+{
+	// 5 numbers of 1 to 9, the puzzles the reachability index covers (Multisets.STANDARD)
+	public static final PuzzleSpec STANDARD = new PuzzleSpec(5, 1, 9);
+	// 6 numbers of 1 to 100, like Countdown's (without its fixed large numbers)
+	public static final PuzzleSpec COUNTDOWN = new PuzzleSpec(6, 1, 100);
+
+	private final int _size, _minNumber, _maxNumber;
+
+	public PuzzleSpec(int size, int minNumber, int maxNumber)
+	{
+		if(size<GameState.MIN_NUMBERS || size>GameState.MAX_NUMBERS)
+			throw new IllegalArgumentException("Puzzles have " + GameState.MIN_NUMBERS + " to " + GameState.MAX_NUMBERS + " numbers");
+		if(minNumber<1 || minNumber>maxNumber)
+			throw new IllegalArgumentException("Bad number range " + minNumber + ".." + maxNumber);
+		_size = size;
+		_minNumber = minNumber;
+		_maxNumber = maxNumber;
+	}
+
+	public int getSize() { return _size; }
+	public int getMinNumber() { return _minNumber; }
+	public int getMaxNumber() { return _maxNumber; }
+
+	// Whether the numbers could have been drawn for this spec
+	public boolean matches(int[] numbers)
+	{
+		if(numbers.length!=_size)
+			return false;
+		for(int number: numbers)
+			if(number<_minNumber || number>_maxNumber)
+				return false;
+		return true;
+	}
+
+	@Override
+	public boolean equals(Object o)
+	{
+		if(!(o instanceof PuzzleSpec))
+			return false;
+		PuzzleSpec other = (PuzzleSpec)o;
+		return _size==other._size && _minNumber==other._minNumber && _maxNumber==other._maxNumber;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return (_size*31 + _minNumber)*31 + _maxNumber;
+	}
+
+	@Override
+	public String toString()
+	{
+		return _size + " numbers of " + _minNumber + ".." + _maxNumber;
+	}
+}
@@ -0,0 +1,92 @@
+package com.platonix.ptorzot.level;
+
+import java.util.Random;
+
+import com.platonix.ptorzot.core.Expression;
+import com.platonix.ptorzot.core.GameState;
+import com.platonix.ptorzot.core.GameState.OnePlay;
+import com.platonix.ptorzot.solver.PuzzleScore;
+import com.platonix.ptorzot.solver.Solver;
+import com.platonix.ptorzot.solver.UniqueSolutions;
+
+// The hardest level - puzzles with exactly one distinct solution (CanonicalForm), targets like Hard's.
+// They're picked from the UniqueSolutions list when it covers the puzzles (GameLevel.setUniqueSolutions).
+// Without it, puzzles are drawn and searched until one has a single solution, and puzzles too big to search
+// are made like Hard's.
+public class UniqueLevel extends GameLevel
+{
+	public static final int MIN_TARGET = 60;
+	public static final int MAX_TARGET = 120;
+	private static final int MAX_UNIQUE_DRAWS = 50;
+
+	public UniqueLevel()
+	{
+		super(3);
+	}
+
+	@Override
+	public GameState createNewGame()
+	{
+		PuzzleSpec spec = getPuzzleSpec();
+		int[] numbers = new int[spec.getSize()];
+		Random random = getRandom();
+		UniqueSolutions list = getUniqueSolutions();
+		int target;
+		if(list!=null && list.getCount()>0 && covers(list, spec))
+		{
+			int index = random.nextInt(list.getCount());
+			list.getNumbers(index, numbers);
+			shuffle(random, numbers);
+			target = list.getTarget(index);
+		}
+		else if(spec.getSize()<=MAX_FULL_SEARCH_SIZE)
+			target = drawUniqueGame(spec, numbers);
+		else
+			target = createScoredGame(spec, numbers, MIN_TARGET, MAX_TARGET, PuzzleScore.HARD_DIFFICULTY,
+					Double.POSITIVE_INFINITY);
+    	return new GameState(this, numbers, target);
+	}
+
+	private static boolean covers(UniqueSolutions list, PuzzleSpec spec)
+	{
+		return list.getMultisets().getSize()==spec.getSize() && spec.getMinNumber()==1 &&
+				list.getMultisets().getMaxNumber()==spec.getMaxNumber() &&
+				list.getMinTarget()==MIN_TARGET && list.getMaxTarget()==MAX_TARGET;
+	}
+
+	// The list's numbers are sorted
+	private static void shuffle(Random random, int[] numbers)
+	{
+		for(int i=numbers.length-1; i>0; i--)
+		{
+			int j = random.nextInt(i+1), t = numbers[i];
+			numbers[i] = numbers[j];
+			numbers[j] = t;
+		}
+	}
+
+	// Draws puzzles until one has a single distinct solution - or keeps the one with the fewest
+	private int drawUniqueGame(PuzzleSpec spec, int[] numbers)
+	{
+		int[] candidate = new int[numbers.length];
+		int bestTarget = -1, bestCount = Integer.MAX_VALUE;
+		for(int draw=0; draw<MAX_UNIQUE_DRAWS && bestCount>1; draw++)
+		{
+			int target = createSolvableGame(spec, candidate, MIN_TARGET, MAX_TARGET);
+			int count = new Solver(candidate).countDistinctSolutions(target);
+			if(count<bestCount)
+			{
+				System.arraycopy(candidate, 0, numbers, 0, numbers.length);
+				bestCount = count;
+				bestTarget = target;
+			}
+		}
+		return bestTarget;
+	}
+
+	@Override
+	public void getNextLabels(Expression[] labels, OnePlay play)
+	{
+		combineLabels(labels, play);
+	}
+}
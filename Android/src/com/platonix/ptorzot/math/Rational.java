@@ -0,0 +1,149 @@
+package com.platonix.ptorzot.math;
+
+// Exact fractions packed into a single long - the numerator in the high 32 bits, the denominator in the low 32 bits.
+// Values are always kept normalized (positive denominator, no common factors), so two values are equal
+// exactly when their longs are equal, and the long can be used as is for hashing.
+// Nothing here allocates - a value is just a long.
+public final class Rational
+{
+	// Not a value - the result of dividing by zero, or of a calculation that doesn't fit in 32 bits.
+	// Its denominator is 0, so it is never equal to a valid value.
+	public static final long INVALID = 0L;
+
+	public static final long ZERO = of(0);
+	public static final long ONE = of(1);
+
+	private Rational()
+	{
+	}
+
+	public static long of(int n)
+	{
+		return ((long)n << 32) | 1L;
+	}
+
+	// Normalizes num/den, returns INVALID if den is 0 or the normalized value doesn't fit
+	public static long of(long num, long den)
+	{
+		if(den==0)
+			return INVALID;
+		if(den<0)
+		{
+			num = -num;
+			den = -den;
+		}
+		long gcd = gcd(num<0 ? -num : num, den);
+		num /= gcd;
+		den /= gcd;
+		return pack(num, den);
+	}
+
+	private static long pack(long num, long den)
+	{
+		if(num>Integer.MAX_VALUE || num<-Integer.MAX_VALUE || den>Integer.MAX_VALUE)
+			return INVALID;
+		return (num << 32) | den;
+	}
+
+	// Binary gcd of two non-negative numbers, b is never 0. Avoids the slow long divisions of Euclid's algorithm.
+	private static long gcd(long a, long b)
+	{
+		if(a==0)
+			return b;
+		int shift = Long.numberOfTrailingZeros(a | b);
+		a >>= Long.numberOfTrailingZeros(a);
+		do
+		{
+			b >>= Long.numberOfTrailingZeros(b);
+			if(a>b)
+			{
+				long t = a;
+				a = b;
+				b = t;
+			}
+			b -= a;
+		} while(b!=0);
+		return a << shift;
+	}
+
+	public static int numerator(long r) { return (int)(r >> 32); }
+	public static int denominator(long r) { return (int)r; }
+
+	public static boolean isValid(long r) { return denominator(r)!=0; }
+	public static boolean isInteger(long r) { return denominator(r)==1; }
+	public static boolean isZero(long r) { return r==ZERO; }
+	public static int signum(long r) { return r<0 ? -1 : r>=(1L<<32) ? 1 : 0; }
+
+	// The arithmetic works on longs - two 31 bit numbers multiplied and added never overflow a long,
+	// the result is checked when it is packed back. Whole numbers (the common case) skip the gcd.
+	public static long add(long a, long b)
+	{
+		if(!isValid(a) || !isValid(b))
+			return INVALID;
+		if(isInteger(a) && isInteger(b))
+			return pack((long)numerator(a) + numerator(b), 1);
+		return of((long)numerator(a) * denominator(b) + (long)numerator(b) * denominator(a),
+				(long)denominator(a) * denominator(b));
+	}
+
+	public static long subtract(long a, long b)
+	{
+		if(!isValid(a) || !isValid(b))
+			return INVALID;
+		if(isInteger(a) && isInteger(b))
+			return pack((long)numerator(a) - numerator(b), 1);
+		return of((long)numerator(a) * denominator(b) - (long)numerator(b) * denominator(a),
+				(long)denominator(a) * denominator(b));
+	}
+
+	public static long multiply(long a, long b)
+	{
+		if(!isValid(a) || !isValid(b))
+			return INVALID;
+		if(isInteger(a) && isInteger(b))
+			return pack((long)numerator(a) * numerator(b), 1);
+		return of((long)numerator(a) * numerator(b), (long)denominator(a) * denominator(b));
+	}
+
+	// Returns INVALID when b is 0
+	public static long divide(long a, long b)
+	{
+		if(!isValid(a) || !isValid(b))
+			return INVALID;
+		return of((long)numerator(a) * denominator(b), (long)denominator(a) * numerator(b));
+	}
+
+	// Applies one of the game's operations, returns INVALID on division by zero
+	public static long apply(long a, long b, char op)
+	{
+		switch(op)
+		{
+		case '+': return add(a, b);
+		case '-': return subtract(a, b);
+		case '*': return multiply(a, b);
+		case '/': return divide(a, b);
+		default: throw new IllegalArgumentException("Op cannot be '" + op + "'");
+		}
+	}
+
+	public static int compare(long a, long b)
+	{
+		long left = (long)numerator(a) * denominator(b);
+		long right = (long)numerator(b) * denominator(a);
+		return left<right ? -1 : left>right ? 1 : 0;
+	}
+
+	public static double toDouble(long r)
+	{
+		return (double)numerator(r) / denominator(r);
+	}
+
+	public static String toString(long r)
+	{
+		if(!isValid(r))
+			return "NaN";
+		if(isInteger(r))
+			return Integer.toString(numerator(r));
+		return numerator(r) + "/" + denominator(r);
+	}
+}
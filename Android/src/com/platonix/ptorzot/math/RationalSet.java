@@ -0,0 +1,119 @@
+package com.platonix.ptorzot.math;
+
+// A set of Rationals, on primitive arrays - no boxing, no HashSet<Long> entries.
+// The values are kept twice: in an open addressing table (linear probing, INVALID marks an empty slot, so
+// INVALID itself can't be added) for the lookups, and in insertion order in a plain array for iterating,
+// which is what combining sets does most.
+// Not thread safe.
+public final class RationalSet
+{
+	private static final int MIN_CAPACITY = 8;
+
+	private long[] _table;
+	private long[] _values;
+	private int _size;
+
+	public RationalSet()
+	{
+		this(MIN_CAPACITY);
+	}
+
+	public RationalSet(int capacity)
+	{
+		int tableSize = MIN_CAPACITY*2;
+		while(tableSize<capacity*2)
+			tableSize *= 2;
+		_table = new long[tableSize];
+		_values = new long[tableSize/2];
+	}
+
+	public int size() { return _size; }
+
+	// The i'th value added, 0<=i<size()
+	public long get(int i) { return _values[i]; }
+
+	// Murmur3's finalizer folded to an int - a Rational's low bits are its denominator, mostly 1
+	private static int slot(long value, int mask)
+	{
+		value ^= value >>> 33;
+		value *= 0xff51afd7ed558ccdL;
+		value ^= value >>> 33;
+		return (int)value & mask;
+	}
+
+	public boolean contains(long value)
+	{
+		int mask = _table.length - 1;
+		for(int slot=slot(value, mask); ; slot=(slot+1) & mask)
+		{
+			if(_table[slot]==value)
+				return value!=Rational.INVALID;
+			if(_table[slot]==Rational.INVALID)
+				return false;
+		}
+	}
+
+	// False if the value was there already
+	public boolean add(long value)
+	{
+		if(value==Rational.INVALID)
+			throw new IllegalArgumentException("Can't add an invalid value");
+		int mask = _table.length - 1;
+		int slot = slot(value, mask);
+		for(; _table[slot]!=Rational.INVALID; slot=(slot+1) & mask)
+			if(_table[slot]==value)
+				return false;
+
+		if(_size==_values.length)
+		{
+			grow();
+			mask = _table.length - 1;
+			for(slot=slot(value, mask); _table[slot]!=Rational.INVALID; slot=(slot+1) & mask)
+				;
+		}
+		_table[slot] = value;
+		_values[_size++] = value;
+		return true;
+	}
+
+	// Adds all of other's values
+	public void addAll(RationalSet other)
+	{
+		for(int i=0; i<other._size; i++)
+			add(other._values[i]);
+	}
+
+	public void clear()
+	{
+		if(_size==0)
+			return;
+		for(int i=0; i<_table.length; i++)
+			_table[i] = Rational.INVALID;
+		_size = 0;
+	}
+
+	// The values in insertion order
+	public long[] toArray()
+	{
+		long[] values = new long[_size];
+		System.arraycopy(_values, 0, values, 0, _size);
+		return values;
+	}
+
+	// Doubles the table, keeping it at most half full
+	private void grow()
+	{
+		long[] values = new long[_values.length*2];
+		System.arraycopy(_values, 0, values, 0, _size);
+		_values = values;
+		_table = new long[_table.length*2];
+		int mask = _table.length - 1;
+		for(int i=0; i<_size; i++)
+		{
+			int slot = slot(_values[i], mask);
+			while(_table[slot]!=Rational.INVALID)
+				slot = (slot+1) & mask;
+			_table[slot] = _values[i];
+		}
+	}
+}
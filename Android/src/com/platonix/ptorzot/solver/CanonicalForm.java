@@ -0,0 +1,297 @@
+package com.platonix.ptorzot.solver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.platonix.ptorzot.math.Rational;
+
+// The canonical form of a solution, so solutions that only differ in the order of their moves, the order of
+// the operands of + and *, or the grouping of chains of them count once: 3+4 then 7+5 is 5+(4+3).
+// The form is the expression the moves make, with chains of + and - flattened into one sum of terms with signs,
+// chains of * and / into one product of factors with exponents of 1 or -1, and the terms and factors unordered:
+// a-(b-c) is a+c-b, a/(b/c) is a*c/b. Equal numbers are the same leaf, whichever button they came from.
+// Nothing else is normalized - a*1 and a are different, so are a*(b+c) and a*b+a*c.
+//
+// Only a hash of the form is kept: a sum or product node keeps the sums of the mixed hashes of its positive and
+// negative terms, which is what makes the terms unordered and lets a child of the same kind be merged in O(1).
+// Replaying a solution is one step per move, with nothing allocated - cheap enough to dedupe millions of
+// solutions a second. Two different forms sharing a 64 bit hash would count once, at odds of about n^2/2^64
+// for n solutions.
+// Moves use the same indices as Move and GameState.OnePlay, so a game's plays can be replayed one by one.
+// A CanonicalForm keeps its state between calls, so it is not thread safe.
+public class CanonicalForm
+{
+	private static final int LEAF = 0, SUM = 1, PRODUCT = 2;
+	private static final long SUM_SEED = 0x9e3779b97f4a7c15L, PRODUCT_SEED = 0xc2b2ae3d27d4eb4fL;
+	private static final int INITIAL_TABLE_BITS = 10;
+
+	private final long[] _values;
+	private final int _size;
+	// Per value left, as in Solver's pads: its kind, the hash sums of its positive and negative terms (for sums
+	// and products) and its hash
+	private final int[] _kinds;
+	private final long[] _positive, _negative, _hashes;
+	private final int[] _plays;  // The moves since reset, for getText
+	private int _count, _playCount;
+
+	private long[] _seen = new long[1 << INITIAL_TABLE_BITS];  // Hashes passed by distinct, 0 for empty
+	private int _seenSize;
+
+	public CanonicalForm(int[] numbers)
+	{
+		this(toRationals(numbers), numbers.length);
+	}
+
+	// The first count Rational values, like Solver's
+	public CanonicalForm(long[] values, int count)
+	{
+		if(count<1 || count>Move.MAX_INDEX || count>values.length)
+			throw new IllegalArgumentException("Can only replay 1 to " + Move.MAX_INDEX + " numbers");
+		_size = count;
+		_values = new long[count];
+		System.arraycopy(values, 0, _values, 0, count);
+		_kinds = new int[count];
+		_positive = new long[count];
+		_negative = new long[count];
+		_hashes = new long[count];
+		_plays = new int[count];
+		reset();
+	}
+
+	private static long[] toRationals(int[] numbers)
+	{
+		long[] values = new long[numbers.length];
+		for(int i=0; i<numbers.length; i++)
+			values[i] = Rational.of(numbers[i]);
+		return values;
+	}
+
+	// Back to the numbers, before any move
+	public void reset()
+	{
+		for(int i=0; i<_size; i++)
+		{
+			_kinds[i] = LEAF;
+			_hashes[i] = mix(_values[i]);
+		}
+		_count = _size;
+		_playCount = 0;
+	}
+
+	// Murmur3's finalizer, as in StateSearch
+	private static long mix(long value)
+	{
+		value ^= value >>> 33;
+		value *= 0xff51afd7ed558ccdL;
+		value ^= value >>> 33;
+		value *= 0xc4ceb9fe1a85ec53L;
+		value ^= value >>> 33;
+		return value;
+	}
+
+	// Plays a move like OnePlay does - the result is put in first, second is removed
+	public void play(int first, int second, char op)
+	{
+		if(first<0 || second<0 || first>=_count || second>=_count || first==second)
+			throw new IllegalArgumentException("No move " + first + " " + op + " " + second + " with " + _count + " values");
+
+		int opIndex = Move.OPS.indexOf(op);  // "+-*/"
+		if(opIndex<0)
+			throw new IllegalArgumentException("Op cannot be '" + op + "'");
+		int kind = opIndex<2 ? SUM : PRODUCT;
+		boolean inverse = (opIndex & 1)!=0;
+
+		// The first operand's terms, then the second's - swapped between the signs for - and /
+		long positive, negative;
+		if(_kinds[first]==kind)
+		{
+			positive = _positive[first];
+			negative = _negative[first];
+		}
+		else
+		{
+			positive = mix(_hashes[first]);
+			negative = 0;
+		}
+		long secondPositive, secondNegative;
+		if(_kinds[second]==kind)
+		{
+			secondPositive = _positive[second];
+			secondNegative = _negative[second];
+		}
+		else
+		{
+			secondPositive = mix(_hashes[second]);
+			secondNegative = 0;
+		}
+		if(inverse)
+		{
+			positive += secondNegative;
+			negative += secondPositive;
+		}
+		else
+		{
+			positive += secondPositive;
+			negative += secondNegative;
+		}
+
+		_kinds[first] = kind;
+		_positive[first] = positive;
+		_negative[first] = negative;
+		_hashes[first] = mix(positive + mix(negative ^ (kind==SUM ? SUM_SEED : PRODUCT_SEED)));
+		for(int i=second; i<_count-1; i++)
+		{
+			_kinds[i] = _kinds[i+1];
+			_positive[i] = _positive[i+1];
+			_negative[i] = _negative[i+1];
+			_hashes[i] = _hashes[i+1];
+		}
+		_count--;
+		_plays[_playCount++] = (first*Move.MAX_INDEX + second)*Move.OPS.length() + opIndex;
+	}
+
+	// The hash of the canonical form of the value at index
+	public long getHash(int index)
+	{
+		return _hashes[index];
+	}
+
+	// Replays a whole solution from the numbers (all the moves, down to one value), returns the hash of what it made
+	public long getHash(Move[] moves)
+	{
+		reset();
+		for(Move move: moves)
+			play(move.getFirst(), move.getSecond(), move.getOp());
+		return _hashes[0];
+	}
+
+	// The canonical form of the value at index as text, the terms and factors sorted, like "2+3*7/5-1".
+	// Made by replaying the moves again, for showing and debugging.
+	public String getText(int index)
+	{
+		List<List<String>> positive = new ArrayList<List<String>>(), negative = new ArrayList<List<String>>();
+		int[] kinds = new int[_size];
+		for(int i=0; i<_size; i++)
+		{
+			String number = Rational.toString(_values[i]);
+			if(!Rational.isInteger(_values[i]) || Rational.signum(_values[i])<0)
+				number = "(" + number + ")";
+			positive.add(new ArrayList<String>(Collections.singletonList(number)));
+			negative.add(new ArrayList<String>());
+		}
+		for(int p=0; p<_playCount; p++)
+		{
+			int op = _plays[p] % Move.OPS.length(), pair = _plays[p] / Move.OPS.length();
+			int first = pair / Move.MAX_INDEX, second = pair % Move.MAX_INDEX;
+			int kind = op<2 ? SUM : PRODUCT;
+			List<String> firstPositive = terms(kinds, positive, negative, first, kind);
+			List<String> firstNegative = kinds[first]==kind ? negative.get(first) : new ArrayList<String>();
+			List<String> secondPositive = terms(kinds, positive, negative, second, kind);
+			List<String> secondNegative = kinds[second]==kind ? negative.get(second) : new ArrayList<String>();
+			boolean inverse = op==1 || op==3;
+			firstPositive.addAll(inverse ? secondNegative : secondPositive);
+			firstNegative.addAll(inverse ? secondPositive : secondNegative);
+
+			kinds[first] = kind;
+			positive.set(first, firstPositive);
+			negative.set(first, firstNegative);
+			for(int i=second; i<_size-1; i++)
+				kinds[i] = kinds[i+1];
+			positive.remove(second);
+			negative.remove(second);
+		}
+		return text(kinds[index], positive.get(index), negative.get(index));
+	}
+
+	// The value at index as terms of kind - its own, or itself as one term
+	private static List<String> terms(int[] kinds, List<List<String>> positive, List<List<String>> negative,
+			int index, int kind)
+	{
+		if(kinds[index]==kind)
+			return positive.get(index);
+		String text = text(kinds[index], positive.get(index), negative.get(index));
+		// A sum inside a product needs parentheses, a product inside a sum doesn't
+		return new ArrayList<String>(Collections.singletonList(kinds[index]==SUM ? "(" + text + ")" : text));
+	}
+
+	private static String text(int kind, List<String> positive, List<String> negative)
+	{
+		if(kind==LEAF)
+			return positive.get(0);
+		Collections.sort(positive);
+		Collections.sort(negative);
+		StringBuilder sb = new StringBuilder();
+		for(String term: positive)
+		{
+			if(sb.length()>0)
+				sb.append(kind==SUM ? '+' : '*');
+			sb.append(term);
+		}
+		if(positive.isEmpty())
+			sb.append(kind==SUM ? '0' : '1');
+		for(String term: negative)
+			sb.append(kind==SUM ? '-' : '/').append(term);
+		return sb.toString();
+	}
+
+	// Passes on only the solutions whose canonical form visitor hasn't seen yet - the first of each.
+	// What's been seen is kept until clearSeen.
+	public Solver.Visitor distinct(final Solver.Visitor visitor)
+	{
+		return new Solver.Visitor()
+		{
+			public boolean onSolution(Move[] moves)
+			{
+				return !addSeen(getHash(moves)) || visitor.onSolution(moves);
+			}
+		};
+	}
+
+	public void clearSeen()
+	{
+		for(int i=0; i<_seen.length; i++)
+			_seen[i] = 0;
+		_seenSize = 0;
+	}
+
+	// The distinct forms seen since clearSeen
+	public int getSeenCount() { return _seenSize; }
+
+	// Adds the hash to the seen ones, false if it was there already
+	private boolean addSeen(long hash)
+	{
+		if(hash==0)
+			hash = 1;
+		if(2*(_seenSize+1)>_seen.length)
+			growSeen();
+		int mask = _seen.length - 1;
+		for(int slot=(int)(hash ^ hash>>>32) & mask; ; slot=(slot+1) & mask)
+		{
+			if(_seen[slot]==hash)
+				return false;
+			if(_seen[slot]==0)
+			{
+				_seen[slot] = hash;
+				_seenSize++;
+				return true;
+			}
+		}
+	}
+
+	private void growSeen()
+	{
+		long[] old = _seen;
+		_seen = new long[old.length*2];
+		int mask = _seen.length - 1;
+		for(long hash: old)
+		{
+			if(hash==0)
+				continue;
+			int slot = (int)(hash ^ hash>>>32) & mask;
+			while(_seen[slot]!=0)
+				slot = (slot+1) & mask;
+			_seen[slot] = hash;
+		}
+	}
+}
@@ -0,0 +1,199 @@
+package com.platonix.ptorzot.solver;
+
+// Counts the whole targets made by op chains - the numbers in some order, each op applied to the result so far
+// and the next number, ((a op b) op c) op d... - over every assignment of the 4 ops at once. The original
+// target picking drew such chains one at a time until one landed in range; the counts are that draw's
+// distribution, without the drawing.
+// A chain's value is kept as an unreduced fraction, numerator and denominator in two long arrays, laid out
+// so each op is one plain loop over the previous step's values (adds and multiplies the JIT can vectorize):
+// step k holds the 4^k chains of the first k+1 numbers, the op of step k picking the quarter of the array.
+// Nothing is rounded, so a chain makes a target exactly when its numerator divides by its denominator.
+// The buffers are kept between calls, so a ChainHistogram is not thread safe.
+public class ChainHistogram
+{
+	private static final int OPS = 4;  // +, -, *, /
+
+	private final int _size;
+	private final long[] _counts;
+	private final long[] _numerators, _denominators, _nextNumerators, _nextDenominators;
+	private final int[] _ordering;
+	private long _chains;
+
+	// Chains of size numbers, counting targets 0 to maxTarget
+	public ChainHistogram(int size, int maxTarget)
+	{
+		if(size<2 || size>Move.MAX_INDEX)
+			throw new IllegalArgumentException("Chains are of 2 to " + Move.MAX_INDEX + " numbers");
+		_size = size;
+		_counts = new long[maxTarget+1];
+		int last = 1 << 2*(size-2);  // Chains before the last op
+		_numerators = new long[last];
+		_denominators = new long[last];
+		_nextNumerators = new long[last];
+		_nextDenominators = new long[last];
+		_ordering = new int[size];
+	}
+
+	public int getSize() { return _size; }
+	public int getMaxTarget() { return _counts.length - 1; }
+
+	// The chains making target, out of getChains()
+	public long getCount(int target) { return _counts[target]; }
+	// All the chains counted, whatever they made
+	public long getChains() { return _chains; }
+
+	public void clear()
+	{
+		for(int i=0; i<_counts.length; i++)
+			_counts[i] = 0;
+		_chains = 0;
+	}
+
+	// Adds the chains of the numbers in this order. Numbers are from 1 up, and small enough for the exact values
+	// to fit in a long - size numbers of up to 100 are.
+	public void addOrdering(int[] numbers)
+	{
+		addOrdering(numbers, 1);
+	}
+
+	// Adds the chains of every ordering of the numbers - each distinct one once, counted as many times as it
+	// comes up among all the orderings (twice for two equal numbers)
+	public void addAllOrderings(int[] numbers)
+	{
+		check(numbers);
+		for(int i=0; i<_size; i++) // Insertion sort, there are only a few numbers
+		{
+			int n = numbers[i], j = i;
+			for(; j>0 && _ordering[j-1]>n; j--)
+				_ordering[j] = _ordering[j-1];
+			_ordering[j] = n;
+		}
+
+		long repeats = 1;
+		for(int i=1, run=1; i<_size; i++)
+		{
+			run = _ordering[i]==_ordering[i-1] ? run+1 : 1;
+			repeats *= run;
+		}
+		do
+			addOrdering(_ordering, repeats);
+		while(nextPermutation(_ordering));
+	}
+
+	private void check(int[] numbers)
+	{
+		if(numbers.length!=_size)
+			throw new IllegalArgumentException("Expected " + _size + " numbers");
+		int max = 0;
+		for(int number: numbers)
+		{
+			if(number<1)
+				throw new IllegalArgumentException("Numbers must be from 1 up");
+			max = Math.max(max, number);
+		}
+		if(!canCount(_size, max))
+			throw new IllegalArgumentException("Numbers too big for exact chains");
+	}
+
+	// Whether chains of size numbers of up to maxNumber fit in a long -
+	// (2*maxNumber)^size bounds every numerator and denominator
+	public static boolean canCount(int size, int maxNumber)
+	{
+		return size*Math.log(2.0*maxNumber)<62*Math.log(2);
+	}
+
+	// The next ordering in lexicographic order, false after the last one
+	private static boolean nextPermutation(int[] values)
+	{
+		int i = values.length - 2;
+		while(i>=0 && values[i]>=values[i+1])
+			i--;
+		if(i<0)
+			return false;
+		int j = values.length - 1;
+		while(values[j]<=values[i])
+			j--;
+		int t = values[i];
+		values[i] = values[j];
+		values[j] = t;
+		for(int a=i+1, b=values.length-1; a<b; a++, b--)
+		{
+			t = values[a];
+			values[a] = values[b];
+			values[b] = t;
+		}
+		return true;
+	}
+
+	private void addOrdering(int[] numbers, long weight)
+	{
+		if(numbers!=_ordering)
+			check(numbers);
+
+		long[] num = _numerators, den = _denominators;
+		long[] nextNum = _nextNumerators, nextDen = _nextDenominators;
+		num[0] = numbers[0];
+		den[0] = 1;
+		int count = 1;
+		for(int k=1; k<_size-1; k++)
+		{
+			long c = numbers[k];
+			for(int i=0; i<count; i++)
+			{
+				nextNum[i] = num[i] + c*den[i];
+				nextDen[i] = den[i];
+			}
+			for(int i=0; i<count; i++)
+			{
+				nextNum[count+i] = num[i] - c*den[i];
+				nextDen[count+i] = den[i];
+			}
+			for(int i=0; i<count; i++)
+			{
+				nextNum[2*count+i] = num[i]*c;
+				nextDen[2*count+i] = den[i];
+			}
+			for(int i=0; i<count; i++)
+			{
+				nextNum[3*count+i] = num[i];
+				nextDen[3*count+i] = den[i]*c;
+			}
+			count *= OPS;
+
+			long[] t = num;
+			num = nextNum;
+			nextNum = t;
+			t = den;
+			den = nextDen;
+			nextDen = t;
+		}
+
+		// The last op only needs its whole results counted, not stored
+		long c = numbers[_size-1];
+		for(int i=0; i<count; i++)
+		{
+			long n = num[i], d = den[i];
+			mark(n + c*d, d, weight);
+			mark(n - c*d, d, weight);
+			mark(n*c, d, weight);
+			mark(n, d*c, weight);
+		}
+		_chains += weight * OPS * count;
+	}
+
+	// Chains that never divided (most of them) have a denominator of 1, and skip the long division
+	private void mark(long numerator, long denominator, long weight)
+	{
+		if(numerator<0)
+			return;
+		long target = numerator;
+		if(denominator!=1)
+		{
+			if(numerator%denominator!=0)
+				return;
+			target = numerator/denominator;
+		}
+		if(target<_counts.length)
+			_counts[(int)target] += weight;
+	}
+}
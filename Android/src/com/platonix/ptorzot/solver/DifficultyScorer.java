@@ -0,0 +1,238 @@
+package com.platonix.ptorzot.solver;
+
+import java.util.Arrays;
+
+import com.platonix.ptorzot.math.Rational;
+
+// Finds the features of every target of a set of numbers in a single full search, so that a whole
+// multiset is scored at the cost of one Solver.countTargets. The search uses the same moves and pruning as Solver.
+// Solutions are counted once per distinct expression, through CanonicalForm.distinct like
+// Solver.countDistinctSolutions - replaying the moves of each one makes scoring about three times slower.
+// A scorer keeps its buffers between searches, so it is not thread safe - use one per thread.
+public class DifficultyScorer
+{
+	private static final int ADD = 0, SUB = 1, MUL = 2, DIV = 3;
+
+	private final int _size, _maxTarget;
+	private final long[][] _pads;  // _pads[n] holds the n values left, like in Solver
+	private final int[][] _weights;  // _weights[n][i] is how many of the original numbers _pads[n][i] is made of
+	private final Move[] _path;
+	private Solver.Visitor _distinct;  // Counts a solution of _solutionTarget if its form wasn't seen yet
+	private int _solutionTarget;
+
+	// Per target results of the last search
+	private final int[] _solutions, _integerSolutions, _minNumbers, _viableFirstMoves, _firstMoveSeen;
+	private int _firstMove, _firstMoves;
+	private long _nodes, _moves, _sequences;
+
+	public DifficultyScorer(int size, int maxTarget)
+	{
+		if(size<2 || size>Move.MAX_INDEX)
+			throw new IllegalArgumentException("Can only score 2 to " + Move.MAX_INDEX + " numbers");
+		_size = size;
+		_maxTarget = maxTarget;
+		_pads = new long[size+1][];
+		_weights = new int[size+1][];
+		for(int n=1; n<=size; n++)
+		{
+			_pads[n] = new long[n];
+			_weights[n] = new int[n];
+		}
+		_path = new Move[size-1];
+		_solutions = new int[maxTarget+1];
+		_integerSolutions = new int[maxTarget+1];
+		_minNumbers = new int[maxTarget+1];
+		_viableFirstMoves = new int[maxTarget+1];
+		_firstMoveSeen = new int[maxTarget+1];
+	}
+
+	public int getMaxTarget() { return _maxTarget; }
+
+	// Searches all the move sequences of numbers, the results are then read with getScore
+	public void score(int[] numbers)
+	{
+		if(numbers.length!=_size)
+			throw new IllegalArgumentException("Expected " + _size + " numbers");
+
+		Arrays.fill(_solutions, 0);
+		Arrays.fill(_integerSolutions, 0);
+		Arrays.fill(_minNumbers, Integer.MAX_VALUE);
+		Arrays.fill(_viableFirstMoves, 0);
+		Arrays.fill(_firstMoveSeen, -1);
+		_firstMove = -1;
+		_firstMoves = 0;
+		_nodes = _moves = _sequences = 0;
+		_distinct = new CanonicalForm(numbers).distinct(new Solver.Visitor()
+		{
+			public boolean onSolution(Move[] moves)
+			{
+				_solutions[_solutionTarget]++;
+				return true;
+			}
+		});
+
+		for(int i=0; i<_size; i++)
+		{
+			_pads[_size][i] = Rational.of(numbers[i]);
+			_weights[_size][i] = 1;
+			record(_pads[_size][i], 1);
+		}
+		search(_size, true);
+	}
+
+	public PuzzleScore getScore(int target)
+	{
+		if(target<0 || target>_maxTarget)
+			throw new IllegalArgumentException("Target must be between 0 and " + _maxTarget);
+		int minNumbers = _minNumbers[target];
+		return new PuzzleScore(_solutions[target], _integerSolutions[target],
+				minNumbers==Integer.MAX_VALUE ? -1 : minNumbers-1,
+				_viableFirstMoves[target], _firstMoves, (double)_moves / _nodes, _sequences);
+	}
+
+	public int getSolutions(int target) { return _solutions[target]; }
+	public boolean isFractionsOnly(int target) { return _solutions[target]>0 && _integerSolutions[target]==0; }
+
+	private static boolean isCommutative(int op)
+	{
+		return op==ADD || op==MUL;
+	}
+
+	private static long apply(long a, long b, int op)
+	{
+		switch(op)
+		{
+		case ADD: return Rational.add(a, b);
+		case SUB: return Rational.subtract(a, b);
+		case MUL: return Rational.multiply(a, b);
+		default: return Rational.divide(a, b);
+		}
+	}
+
+	// Remembers the fewest numbers a whole value in range was made of, for PuzzleScore.getMinSubsetMoves
+	private void record(long value, int weight)
+	{
+		if(!Rational.isInteger(value))
+			return;
+		int n = Rational.numerator(value);
+		if(n>=0 && n<=_maxTarget && weight<_minNumbers[n])
+			_minNumbers[n] = weight;
+	}
+
+	private void search(int count, boolean integers)
+	{
+		long[] pad = _pads[count];
+		_nodes++;
+		if(count==2 && _size>2)
+		{
+			lastMove(pad[0], pad[1], integers);
+			return;
+		}
+
+		int[] weights = _weights[count];
+		long[] next = _pads[count-1];
+		int[] nextWeights = _weights[count-1];
+
+		for(int first=0; first<count; first++)
+			for(int second=0; second<count; second++)
+			{
+				if(first==second)
+					continue;
+
+				int resultIndex = first<second ? first : first-1;
+				int weight = weights[first] + weights[second];
+				if(count>2)
+				{
+					System.arraycopy(pad, 0, next, 0, second);
+					System.arraycopy(pad, second+1, next, second, count-second-1);
+					System.arraycopy(weights, 0, nextWeights, 0, second);
+					System.arraycopy(weights, second+1, nextWeights, second, count-second-1);
+					nextWeights[resultIndex] = weight;
+				}
+
+				for(int op=0; op<4; op++)
+				{
+					if(isCommutative(op) && first>second)
+						continue;
+					long result = apply(pad[first], pad[second], op);
+					if(!Rational.isValid(result))
+						continue;
+
+					_moves++;
+					if(count==_size)
+						_firstMove = _firstMoves++;
+					_path[_size-count] = Move.of(first, second, op);
+
+					if(count==2)
+						solution(result, integers);
+					else
+					{
+						record(result, weight);
+						next[resultIndex] = result;
+						search(count-1, integers && Rational.isInteger(result));
+					}
+				}
+			}
+	}
+
+	// Like Solver, the results of the last move are not normalized, only checked for being whole
+	private void lastMove(long a, long b, boolean integers)
+	{
+		long an = Rational.numerator(a), ad = Rational.denominator(a);
+		long bn = Rational.numerator(b), bd = Rational.denominator(b);
+		lastResult(an*bd + bn*ad, ad*bd, Move.of(0, 1, ADD), integers);
+		lastResult(an*bd - bn*ad, ad*bd, Move.of(0, 1, SUB), integers);
+		lastResult(bn*ad - an*bd, ad*bd, Move.of(1, 0, SUB), integers);
+		lastResult(an*bn, ad*bd, Move.of(0, 1, MUL), integers);
+		lastResult(an*bd, ad*bn, Move.of(0, 1, DIV), integers);
+		lastResult(bn*ad, bd*an, Move.of(1, 0, DIV), integers);
+	}
+
+	private void lastResult(long num, long den, Move move, boolean integers)
+	{
+		if(den==0)
+			return;
+		_path[_size-2] = move;
+		_moves++;
+		_sequences++;
+		if(den<0)
+		{
+			num = -num;
+			den = -den;
+		}
+		if(den!=1)
+		{
+			if(num % den!=0)
+				return;
+			num /= den;
+		}
+		if(num>=0 && num<=_maxTarget)
+			solution((int)num, integers);
+	}
+
+	private void solution(long result, boolean integers)
+	{
+		_sequences++;
+		if(!Rational.isInteger(result))
+			return;
+		solution(Rational.numerator(result), integers);
+	}
+
+	private void solution(int target, boolean integers)
+	{
+		if(target<0 || target>_maxTarget)
+			return;
+
+		_solutionTarget = target;
+		_distinct.onSolution(_path);
+		if(integers)
+			_integerSolutions[target]++;
+		if(_firstMoveSeen[target]!=_firstMove)
+		{
+			_firstMoveSeen[target] = _firstMove;
+			_viableFirstMoves[target]++;
+		}
+		if(_size<_minNumbers[target])
+			_minNumbers[target] = _size;
+	}
+}
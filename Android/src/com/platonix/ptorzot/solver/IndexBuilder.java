@@ -0,0 +1,88 @@
+package com.platonix.ptorzot.solver;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+// Builds the ReachabilityIndex file offline, by solving every multiset once.
+// Records can be built independently of each other, in any order - Tools/BuildIndex builds them in parallel.
+public class IndexBuilder
+{
+	public static final int DEFAULT_MAX_TARGET = 255;
+
+	private final Multisets _multisets;
+	private final int _maxTarget;
+
+	public IndexBuilder(Multisets multisets, int maxTarget)
+	{
+		if(maxTarget<0)
+			throw new IllegalArgumentException("maxTarget can't be negative");
+		// The index is mapped as one buffer, and the records are built in one array
+		long size = ReachabilityIndex.getFileSize(multisets, maxTarget);
+		if(size>Integer.MAX_VALUE)
+			throw new IllegalArgumentException("An index of " + size + " bytes is too big, 2GB at most");
+		_multisets = multisets;
+		_maxTarget = maxTarget;
+	}
+
+	public Multisets getMultisets() { return _multisets; }
+	public int getMaxTarget() { return _maxTarget; }
+	public int getRecordSize() { return ReachabilityIndex.getRecordSize(_maxTarget); }
+	// All the records, the index less its header - it fits in an int, the constructor checked
+	public int getRecordsSize()
+	{
+		return (int)(ReachabilityIndex.getFileSize(_multisets, _maxTarget) - ReachabilityIndex.HEADER_SIZE);
+	}
+
+	// Solves the multiset of the given rank and writes its record at record's position
+	public void buildRecord(int rank, ByteBuffer record)
+	{
+		int[] numbers = new int[_multisets.getSize()];
+		_multisets.unrank(rank, numbers);
+		int[] counts = new int[_maxTarget+1];
+		new Solver(numbers).countTargets(counts);
+
+		int start = record.position();
+		int bitsetSize = ReachabilityIndex.getBitsetSize(_maxTarget);
+		for(int word=0; word<bitsetSize/8; word++)
+		{
+			long bits = 0;
+			for(int bit=0; bit<64 && word*64+bit<=_maxTarget; bit++)
+				if(counts[word*64+bit]>0)
+					bits |= 1L << bit;
+			record.putLong(bits);
+		}
+		for(int target=0; target<=_maxTarget; target++)
+			record.putShort((short)Math.min(counts[target], ReachabilityIndex.MAX_COUNT));
+		record.position(start + getRecordSize());
+	}
+
+	public ByteBuffer createHeader(int checksum)
+	{
+		ByteBuffer header = ByteBuffer.allocate(ReachabilityIndex.HEADER_SIZE);
+		header.putInt(ReachabilityIndex.MAGIC);
+		header.putInt(ReachabilityIndex.VERSION);
+		header.putInt(_multisets.getSize());
+		header.putInt(_multisets.getMaxNumber());
+		header.putInt(_maxTarget);
+		header.putInt(_multisets.getCount());
+		header.putInt(checksum);
+		header.putInt(0);
+		header.flip();
+		return header;
+	}
+
+	// Builds all the records, one after the other
+	public void write(OutputStream out) throws IOException
+	{
+		ByteBuffer records = ByteBuffer.allocate(getRecordsSize());
+		for(int rank=0; rank<_multisets.getCount(); rank++)
+			buildRecord(rank, records);
+
+		CRC32 crc = new CRC32();
+		crc.update(records.array());
+		out.write(createHeader((int)crc.getValue()).array());
+		out.write(records.array());
+	}
+}
@@ -0,0 +1,149 @@
+package com.platonix.ptorzot.solver;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+
+// Which puzzles each level deals, by difficulty. Every solvable puzzle of the multisets and a target range is
+// scored offline by LevelTableBuilder, the puzzles are sorted from easiest to hardest, and each level gets a
+// range of them between two difficulty percentiles. Read straight from a memory mapped file like
+// ReachabilityIndex - drawing a puzzle of a level is one random number and a buffer read.
+//
+// File format (big endian):
+//   header  - magic, version, size, maxNumber, minTarget, maxTarget, level count, CRC32 of the rest
+//   bounds  - level count + 1 ints, level i's puzzles are the records from bounds[i] up to bounds[i+1]
+//   records - one int per puzzle, rank*(maxTarget+1) + target (Multisets rank), easiest first
+public class LevelTable
+{
+	public static final int MAGIC = 0x505A4C54;  // "PZLT"
+	public static final int VERSION = 1;
+	public static final int HEADER_SIZE = 32;
+	public static final int RECORD_SIZE = 4;
+
+	private final ByteBuffer _buffer;
+	private final Multisets _multisets;
+	private final int _minTarget, _maxTarget, _levelCount, _checksum, _recordsOffset;
+
+	public LevelTable(ByteBuffer buffer) throws IOException
+	{
+		_buffer = buffer;
+		if(buffer.capacity()<HEADER_SIZE || buffer.getInt(0)!=MAGIC)
+			throw new IOException("Not a level table");
+		if(buffer.getInt(4)!=VERSION)
+			throw new IOException("Unsupported level table version " + buffer.getInt(4));
+
+		_multisets = new Multisets(buffer.getInt(8), buffer.getInt(12));
+		_minTarget = buffer.getInt(16);
+		_maxTarget = buffer.getInt(20);
+		_levelCount = buffer.getInt(24);
+		_checksum = buffer.getInt(28);
+		_recordsOffset = HEADER_SIZE + (_levelCount+1) * RECORD_SIZE;
+		if(_levelCount<1 || buffer.capacity()<_recordsOffset ||
+				buffer.capacity()!=_recordsOffset + (long)getBound(_levelCount) * RECORD_SIZE)
+			throw new IOException("Level table is truncated or corrupt");
+	}
+
+	// Maps the file, nothing is read until it is used
+	public static LevelTable open(File file) throws IOException
+	{
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try
+		{
+			return map(raf.getChannel(), 0, raf.length());
+		}
+		finally
+		{
+			raf.close();  // The mapping stays valid after the channel is closed
+		}
+	}
+
+	public static LevelTable map(FileChannel channel, long offset, long length) throws IOException
+	{
+		return new LevelTable(channel.map(FileChannel.MapMode.READ_ONLY, offset, length));
+	}
+
+	static int encode(int rank, int target, int maxTarget)
+	{
+		return rank * (maxTarget+1) + target;
+	}
+
+	public Multisets getMultisets() { return _multisets; }
+	public int getMinTarget() { return _minTarget; }
+	public int getMaxTarget() { return _maxTarget; }
+	public int getLevelCount() { return _levelCount; }
+	public int getChecksum() { return _checksum; }
+	// All the puzzles, of all the levels
+	public int getCount() { return getBound(_levelCount); }
+
+	private int getBound(int i)
+	{
+		return _buffer.getInt(HEADER_SIZE + i * RECORD_SIZE);
+	}
+
+	// The index of the level's easiest puzzle
+	public int getStart(int level)
+	{
+		checkLevel(level);
+		return getBound(level);
+	}
+
+	// One past the index of the level's hardest puzzle
+	public int getEnd(int level)
+	{
+		checkLevel(level);
+		return getBound(level+1);
+	}
+
+	private void checkLevel(int level)
+	{
+		if(level<0 || level>=_levelCount)
+			throw new IllegalArgumentException("Level must be between 0 and " + (_levelCount-1));
+	}
+
+	// The puzzle's id, rank*(maxTarget+1) + target - the same puzzle has the same id in any table of the
+	// same multisets and maxTarget
+	public int getId(int index)
+	{
+		if(index<0 || index>=getCount())
+			throw new IllegalArgumentException("Index must be between 0 and " + (getCount()-1));
+		return _buffer.getInt(_recordsOffset + index * RECORD_SIZE);
+	}
+
+	public int getTarget(int index)
+	{
+		return getId(index) % (_maxTarget+1);
+	}
+
+	// Fills numbers with the puzzle's numbers, sorted
+	public void getNumbers(int index, int[] numbers)
+	{
+		_multisets.unrank(getId(index) / (_maxTarget+1), numbers);
+	}
+
+	// Fills numbers with a random puzzle of the level, in random order, and returns its target
+	public int generate(int level, Random random, int[] numbers)
+	{
+		int start = getStart(level), end = getEnd(level);
+		if(start==end)
+			throw new IllegalStateException("Level " + level + " has no puzzles");
+
+		return generateAt(start + random.nextInt(end - start), random, numbers);
+	}
+
+	// Fills numbers with the puzzle at index, shuffled by random, and returns its target
+	public int generateAt(int index, Random random, int[] numbers)
+	{
+		getNumbers(index, numbers);
+		for(int i=numbers.length-1; i>0; i--)
+		{
+			int j = random.nextInt(i+1);
+			int t = numbers[i];
+			numbers[i] = numbers[j];
+			numbers[j] = t;
+		}
+		return getTarget(index);
+	}
+}
@@ -0,0 +1,132 @@
+package com.platonix.ptorzot.solver;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+// Builds the LevelTable file offline: each multiset is scored for all its targets in one DifficultyScorer
+// search, every solvable puzzle in the target range is sorted by PuzzleScore.getDifficulty, and the levels are
+// cut at the given percentiles of the sorted puzzles. Multisets can be scored independently of each other,
+// in any order - Tools/BuildLevelTable scores them in parallel.
+// Puzzles are sorted by their difficulty in fixed point and then by id, so the table comes out the same on
+// every run, whatever order the multisets were scored in.
+public class LevelTableBuilder
+{
+	private static final double DIFFICULTY_SCALE = 1 << 16;
+
+	private final Multisets _multisets;
+	private final int _minTarget, _maxTarget;
+	private final double[] _percentiles;
+
+	// percentiles are where one level ends and the next begins, increasing between 0 and 100 -
+	// one less than the levels
+	public LevelTableBuilder(Multisets multisets, int minTarget, int maxTarget, double[] percentiles)
+	{
+		if(minTarget<0 || minTarget>maxTarget)
+			throw new IllegalArgumentException("Bad target range " + minTarget + ".." + maxTarget);
+		for(int i=0; i<percentiles.length; i++)
+			if(percentiles[i]<=0 || percentiles[i]>=100 || (i>0 && percentiles[i]<=percentiles[i-1]))
+				throw new IllegalArgumentException("Percentiles must be increasing between 0 and 100");
+		_multisets = multisets;
+		_minTarget = minTarget;
+		_maxTarget = maxTarget;
+		_percentiles = percentiles.clone();
+	}
+
+	public Multisets getMultisets() { return _multisets; }
+	public int getMinTarget() { return _minTarget; }
+	public int getMaxTarget() { return _maxTarget; }
+	public int getLevelCount() { return _percentiles.length + 1; }
+
+	// The sort keys of the solvable puzzles of the multiset of the given rank - difficulty in the high int,
+	// puzzle id in the low one
+	public long[] scoreMultiset(int rank)
+	{
+		int[] numbers = new int[_multisets.getSize()];
+		_multisets.unrank(rank, numbers);
+		DifficultyScorer scorer = new DifficultyScorer(numbers.length, _maxTarget);
+		scorer.score(numbers);
+
+		long[] keys = new long[_maxTarget - _minTarget + 1];
+		int found = 0;
+		for(int target=_minTarget; target<=_maxTarget; target++)
+		{
+			if(scorer.getSolutions(target)==0)
+				continue;
+			long difficulty = Math.round(scorer.getScore(target).getDifficulty() * DIFFICULTY_SCALE);
+			keys[found++] = difficulty<<32 | LevelTable.encode(rank, target, _maxTarget);
+		}
+		long[] result = new long[found];
+		System.arraycopy(keys, 0, result, 0, found);
+		return result;
+	}
+
+	// All the multisets' puzzles, keys[rank] as found by scoreMultiset, easiest first
+	public long[] sort(long[][] keys)
+	{
+		int count = 0;
+		for(long[] rankKeys: keys)
+			count += rankKeys.length;
+		long[] sorted = new long[count];
+		int at = 0;
+		for(long[] rankKeys: keys)
+		{
+			System.arraycopy(rankKeys, 0, sorted, at, rankKeys.length);
+			at += rankKeys.length;
+		}
+		Arrays.sort(sorted);
+		return sorted;
+	}
+
+	// Where each level starts in the sorted puzzles, and where the last one ends
+	public int[] createBounds(int count)
+	{
+		int[] bounds = new int[getLevelCount()+1];
+		for(int i=0; i<_percentiles.length; i++)
+			bounds[i+1] = (int)(count * _percentiles[i] / 100);
+		bounds[bounds.length-1] = count;
+		return bounds;
+	}
+
+	// The difficulty of a sorted puzzle's key
+	public static double getDifficulty(long key)
+	{
+		return (key>>>32) / DIFFICULTY_SCALE;
+	}
+
+	// Writes the table of all the puzzles, as sorted by sort
+	public void write(long[] sorted, OutputStream out) throws IOException
+	{
+		int[] bounds = createBounds(sorted.length);
+		ByteBuffer body = ByteBuffer.allocate((bounds.length + sorted.length) * LevelTable.RECORD_SIZE);
+		for(int bound: bounds)
+			body.putInt(bound);
+		for(long key: sorted)
+			body.putInt((int)key);
+
+		CRC32 crc = new CRC32();
+		crc.update(body.array());
+		ByteBuffer header = ByteBuffer.allocate(LevelTable.HEADER_SIZE);
+		header.putInt(LevelTable.MAGIC);
+		header.putInt(LevelTable.VERSION);
+		header.putInt(_multisets.getSize());
+		header.putInt(_multisets.getMaxNumber());
+		header.putInt(_minTarget);
+		header.putInt(_maxTarget);
+		header.putInt(getLevelCount());
+		header.putInt((int)crc.getValue());
+		out.write(header.array());
+		out.write(body.array());
+	}
+
+	// Scores all the multisets, one after the other, and writes the table
+	public void write(OutputStream out) throws IOException
+	{
+		long[][] keys = new long[_multisets.getCount()][];
+		for(int rank=0; rank<_multisets.getCount(); rank++)
+			keys[rank] = scoreMultiset(rank);
+		write(sort(keys), out);
+	}
+}
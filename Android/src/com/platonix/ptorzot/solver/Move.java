@@ -0,0 +1,58 @@
+package com.platonix.ptorzot.solver;
+
+// A single move, using the same indices as GameState.OnePlay - the result is put in first, second is removed
+public final class Move
+{
+	public static final String OPS = "+-*/";
+	public static final int MAX_INDEX = 8;
+
+	private final int _first, _second;
+	private final char _op;
+
+	// All the possible moves are created once, so the solver never allocates them
+	private static final Move[] _moves = new Move[MAX_INDEX * MAX_INDEX * OPS.length()];
+	static
+	{
+		for(int first=0; first<MAX_INDEX; first++)
+			for(int second=0; second<MAX_INDEX; second++)
+				for(int op=0; op<OPS.length(); op++)
+					_moves[index(first, second, op)] = new Move(first, second, OPS.charAt(op));
+	}
+
+	private Move(int first, int second, char op)
+	{
+		_first = first;
+		_second = second;
+		_op = op;
+	}
+
+	private static int index(int first, int second, int opIndex)
+	{
+		return (first * MAX_INDEX + second) * OPS.length() + opIndex;
+	}
+
+	public static Move of(int first, int second, char op)
+	{
+		int opIndex = OPS.indexOf(op);
+		if(opIndex<0)
+			throw new IllegalArgumentException("Op cannot be '" + op + "'");
+		if(first<0 || second<0 || first>=MAX_INDEX || second>=MAX_INDEX || first==second)
+			throw new IllegalArgumentException("First and second must be different and between 0 and " + (MAX_INDEX-1));
+		return _moves[index(first, second, opIndex)];
+	}
+
+	static Move of(int first, int second, int opIndex)
+	{
+		return _moves[index(first, second, opIndex)];
+	}
+
+	public int getFirst() { return _first; }
+	public int getSecond() { return _second; }
+	public char getOp() { return _op; }
+
+	@Override
+	public String toString()
+	{
+		return "(" + _first + " " + _op + " " + _second + ")";
+	}
+}
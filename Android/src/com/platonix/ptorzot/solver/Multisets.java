@@ -0,0 +1,81 @@
+package com.platonix.ptorzot.solver;
+
+// Numbers a game is made of, ignoring their order. A game with size numbers between 1 and maxNumber
+// is one of C(maxNumber+size-1, size) multisets, which are ranked 0..count-1 (colex order of the sorted numbers).
+// Ranking needs no tables beyond a few binomials, so it can be used as an index into precomputed data.
+public class Multisets
+{
+	public static final Multisets STANDARD = new Multisets(5, 9);  // What GameLevel.createSolvableGame draws
+
+	private final int _size, _maxNumber, _count;
+	private final int[][] _binomials;
+
+	public Multisets(int size, int maxNumber)
+	{
+		if(size<1 || maxNumber<1)
+			throw new IllegalArgumentException("size and maxNumber must be positive");
+		_size = size;
+		_maxNumber = maxNumber;
+
+		int n = maxNumber + size;
+		_binomials = new int[n][size+1];
+		for(int i=0; i<n; i++)
+		{
+			_binomials[i][0] = 1;
+			for(int k=1; k<=size && k<=i; k++)
+			{
+				// Saturated rather than overflowed - ranking only uses binomials up to the count
+				long binomial = (long)_binomials[i-1][k-1] + (k<i ? _binomials[i-1][k] : 0);
+				_binomials[i][k] = (int)Math.min(binomial, Integer.MAX_VALUE);
+			}
+		}
+		_count = _binomials[maxNumber+size-1][size];
+		if(_count==Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Too many multisets of " + size + " numbers 1.." + maxNumber + " to rank");
+	}
+
+	public int getSize() { return _size; }
+	public int getMaxNumber() { return _maxNumber; }
+	public int getCount() { return _count; }
+
+	// Returns the rank of numbers, in whatever order they are
+	public int rank(int[] numbers)
+	{
+		if(numbers.length!=_size)
+			throw new IllegalArgumentException("Expected " + _size + " numbers");
+
+		int[] sorted = numbers.clone();
+		for(int i=1; i<_size; i++) // Insertion sort, there are only a few numbers
+		{
+			int n = sorted[i], j = i;
+			for(; j>0 && sorted[j-1]>n; j--)
+				sorted[j] = sorted[j-1];
+			sorted[j] = n;
+		}
+
+		int rank = 0;
+		for(int i=0; i<_size; i++)
+		{
+			if(sorted[i]<1 || sorted[i]>_maxNumber)
+				throw new IllegalArgumentException("Numbers must be between 1 and " + _maxNumber);
+			rank += _binomials[sorted[i]-1+i][i+1];
+		}
+		return rank;
+	}
+
+	// Fills numbers with the sorted multiset of the given rank
+	public void unrank(int rank, int[] numbers)
+	{
+		if(rank<0 || rank>=_count)
+			throw new IllegalArgumentException("Rank must be between 0 and " + (_count-1));
+
+		int c = _maxNumber + _size - 2;
+		for(int i=_size-1; i>=0; i--)
+		{
+			while(_binomials[c][i+1] > rank)
+				c--;
+			rank -= _binomials[c][i+1];
+			numbers[i] = c - i + 1;
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package com.platonix.ptorzot.solver;
+
+import java.util.Random;
+
+// Draws puzzles uniformly from all the solvable (multiset, target) pairs with a target in [minTarget, maxTarget].
+// A prefix sum of the number of solvable targets per multiset is built once from the ReachabilityIndex,
+// after that a puzzle costs one random number, a binary search and a scan of one bitset - no retries.
+// Immutable once built, so it can be shared between threads.
+public class PuzzleGenerator
+{
+	private final ReachabilityIndex _index;
+	private final int _minTarget, _maxTarget;
+	private final int[] _prefix;  // _prefix[rank] is the number of puzzles of all the multisets before rank
+
+	public PuzzleGenerator(ReachabilityIndex index, int minTarget, int maxTarget)
+	{
+		if(minTarget<0 || maxTarget>index.getMaxTarget() || minTarget>maxTarget)
+			throw new IllegalArgumentException("Target range must be within 0.." + index.getMaxTarget());
+
+		_index = index;
+		_minTarget = minTarget;
+		_maxTarget = maxTarget;
+
+		int count = index.getMultisets().getCount();
+		_prefix = new int[count+1];
+		for(int rank=0; rank<count; rank++)
+			_prefix[rank+1] = _prefix[rank] + countTargets(rank);
+		if(getPuzzleCount()==0)
+			throw new IllegalArgumentException("No solvable puzzles with targets between " + minTarget + " and " + maxTarget);
+	}
+
+	public ReachabilityIndex getIndex() { return _index; }
+	public int getMinTarget() { return _minTarget; }
+	public int getMaxTarget() { return _maxTarget; }
+	public int getPuzzleCount() { return _prefix[_prefix.length-1]; }
+
+	private int countTargets(int rank)
+	{
+		int count = 0;
+		for(int target=_minTarget; target<=_maxTarget; target++)
+			if(_index.isSolvable(rank, target))
+				count++;
+		return count;
+	}
+
+	// Fills numbers with a random puzzle's numbers, in random order, and returns its target
+	public int generate(Random random, int[] numbers)
+	{
+		return generate(random.nextInt(getPuzzleCount()), random, numbers);
+	}
+
+	// Fills numbers with the puzzle of the given id (0..getPuzzleCount()-1), shuffled by random, and returns its target
+	public int generate(int puzzle, Random random, int[] numbers)
+	{
+		if(puzzle<0 || puzzle>=getPuzzleCount())
+			throw new IllegalArgumentException("Puzzle must be between 0 and " + (getPuzzleCount()-1));
+
+		// The last rank with _prefix[rank] <= puzzle
+		int low = 0, high = _prefix.length - 2;
+		while(low<high)
+		{
+			int mid = (low + high + 1) >>> 1;
+			if(_prefix[mid]<=puzzle)
+				low = mid;
+			else
+				high = mid - 1;
+		}
+
+		int skip = puzzle - _prefix[low];
+		int target = _minTarget;
+		for(;; target++)
+			if(_index.isSolvable(low, target) && skip--==0)
+				break;
+
+		_index.getMultisets().unrank(low, numbers);
+		for(int i=numbers.length-1; i>0; i--)
+		{
+			int j = random.nextInt(i+1);
+			int t = numbers[i];
+			numbers[i] = numbers[j];
+			numbers[j] = t;
+		}
+		return target;
+	}
+}
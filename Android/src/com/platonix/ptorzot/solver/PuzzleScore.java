@@ -0,0 +1,74 @@
+package com.platonix.ptorzot.solver;
+
+// The features of one puzzle (numbers and target), as found by DifficultyScorer, and a difficulty score made of them.
+public class PuzzleScore
+{
+	// Where the shipped level table (Tools/BuildLevelTable, three equal levels) starts Medium and Hard. Levels
+	// making their own puzzles keep to the same bands - Easy below MEDIUM_DIFFICULTY, Medium from there up to
+	// HARD_DIFFICULTY, Hard and Unique above. Update them whenever the table is rebuilt.
+	public static final double MEDIUM_DIFFICULTY = 17.55;
+	public static final double HARD_DIFFICULTY = 21.12;
+
+	// Weights of the difficulty score, in "bits" like the rarity of a solution
+	private static final double FRACTIONS_WEIGHT = 3.0;
+	private static final double MOVE_WEIGHT = 1.0;
+
+	private final int _solutions, _integerSolutions, _minSubsetMoves, _viableFirstMoves, _firstMoves;
+	private final double _branching, _sequences;
+
+	public PuzzleScore(int solutions, int integerSolutions, int minSubsetMoves, int viableFirstMoves, int firstMoves,
+			double branching, double sequences)
+	{
+		_solutions = solutions;
+		_integerSolutions = integerSolutions;
+		_minSubsetMoves = minSubsetMoves;
+		_viableFirstMoves = viableFirstMoves;
+		_firstMoves = firstMoves;
+		_branching = branching;
+		_sequences = sequences;
+	}
+
+	// Distinct solutions reaching the target, one per expression however many move orders make it (CanonicalForm)
+	public int getSolutions() { return _solutions; }
+	// Move sequences reaching the target whose intermediate results are all whole numbers
+	public int getIntegerSolutions() { return _integerSolutions; }
+	// The fewest moves it takes to make the target out of some of the numbers, -1 if it can't be made.
+	// Not what a solution takes - a game uses all the numbers, always in size-1 moves - but how soon the target
+	// can show up on the board, the shortcut a player sees first. 0 when it's one of the numbers.
+	public int getMinSubsetMoves() { return _minSubsetMoves; }
+	// First moves that still lead to a solution, out of getFirstMoves()
+	public int getViableFirstMoves() { return _viableFirstMoves; }
+	public int getFirstMoves() { return _firstMoves; }
+	// The average number of moves available at each step of the game
+	public double getBranching() { return _branching; }
+
+	public boolean isSolvable() { return _solutions>0; }
+	// Every solution goes through a fraction
+	public boolean isFractionsOnly() { return _solutions>0 && _integerSolutions==0; }
+
+	// Higher is harder. Mostly how rare solutions are among all the sequences of moves (in bits),
+	// plus a penalty when fractions can't be avoided, plus the moves to make the target of some of the numbers.
+	// Infinite for unsolvable puzzles.
+	public double getDifficulty()
+	{
+		if(!isSolvable())
+			return Double.POSITIVE_INFINITY;
+
+		double rarity = log2(_sequences / _solutions);
+		double dead = log2((double)_firstMoves / _viableFirstMoves);
+		double fractions = isFractionsOnly() ? FRACTIONS_WEIGHT : 0;
+		return rarity + dead + fractions + MOVE_WEIGHT * _minSubsetMoves;
+	}
+
+	private static double log2(double x)
+	{
+		return Math.log(x) / Math.log(2);
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("solutions=%d integer=%d minSubsetMoves=%d viable=%d/%d branching=%.1f difficulty=%.2f",
+				_solutions, _integerSolutions, _minSubsetMoves, _viableFirstMoves, _firstMoves, _branching, getDifficulty());
+	}
+}
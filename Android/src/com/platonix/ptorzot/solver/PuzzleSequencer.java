@@ -0,0 +1,264 @@
+package com.platonix.ptorzot.solver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+
+// Deals each level's puzzles of a LevelTable without repeats: a level walks its range of the table in a
+// pseudorandom order of the player's own - a keyed Feistel permutation, so the order is a seed and a position,
+// not a shuffled array - and only starts over, in a new order, once the whole range was walked.
+// The puzzles the player was given (setPlayed, when a game is taken rather than when it's made ahead) are kept
+// in a PuzzleSet by id, and the walk skips them, so the ids played before the table was rebuilt (same multisets
+// and targets, new levels) aren't dealt again either. A puzzle dealt but thrown away comes back on the next walk.
+// Nothing is written while dealing - save writes the seed, the positions and the set, a few KB after thousands
+// of games, when they changed. Thread safe, the PuzzlePool thread and the UI thread can both deal.
+//
+// File format: MAGIC, VERSION, size, maxNumber and maxTarget of the table's ids, the table's checksum, the seed,
+// the level count and each level's pass and position, then the PuzzleSet.
+public class PuzzleSequencer
+{
+	public static final int MAGIC = 0x505A5053;  // "PZPS"
+	public static final int VERSION = 1;
+	private static final int ROUNDS = 4;
+	private static final long ROUND_SEED = 0x9e3779b97f4a7c15L;
+
+	private final LevelTable _table;
+	private final File _file;
+	private long _seed;
+	private final int[] _passes, _positions;  // Per level - how many times it started over, and where it is
+	private PuzzleSet _played = new PuzzleSet();
+	private boolean _dirty;  // Changed since the last save
+	private final Object _fileLock = new Object();  // Held while writing, without holding up dealing
+
+	// A new player's sequencer, saved to file (null to keep it in memory)
+	public PuzzleSequencer(LevelTable table, File file)
+	{
+		this(table, file, new Random().nextLong());
+	}
+
+	public PuzzleSequencer(LevelTable table, File file, long seed)
+	{
+		_table = table;
+		_file = file;
+		_seed = seed;
+		_passes = new int[table.getLevelCount()];
+		_positions = new int[table.getLevelCount()];
+	}
+
+	public LevelTable getTable() { return _table; }
+	public synchronized int getPlayedCount() { return _played.size(); }
+	public synchronized boolean isPlayed(int id) { return _played.contains(id); }
+
+	// Fills numbers with the level's next puzzle, shuffled by random, and returns its target
+	public synchronized int next(int level, Random random, int[] numbers)
+	{
+		int start = _table.getStart(level), size = _table.getEnd(level) - start;
+		if(size==0)
+			throw new IllegalStateException("Level " + level + " has no puzzles");
+
+		int index;
+		do
+		{
+			if(_positions[level]==size)
+				startOver(level);
+			index = start + permute(_positions[level]++, size, getKey(level));
+		}
+		while(_played.contains(_table.getId(index)));
+		_dirty = true;
+		return _table.generateAt(index, random, numbers);
+	}
+
+	// The id of the puzzle in the table's ids, -1 if it has none
+	public int getId(int[] numbers, int target)
+	{
+		Multisets multisets = _table.getMultisets();
+		if(numbers.length!=multisets.getSize() || target<0 || target>_table.getMaxTarget())
+			return -1;
+		for(int number: numbers)
+			if(number<1 || number>multisets.getMaxNumber())
+				return -1;
+		return LevelTable.encode(multisets.rank(numbers), target, _table.getMaxTarget());
+	}
+
+	// The player was given the puzzle - it won't be dealt again until its level starts over
+	public synchronized void setPlayed(int[] numbers, int target)
+	{
+		int id = getId(numbers, target);
+		if(id>=0 && _played.add(id))
+			_dirty = true;
+	}
+
+	// The whole level was walked - forgets its played puzzles and walks it again, in another order
+	private void startOver(int level)
+	{
+		for(int index=_table.getStart(level); index<_table.getEnd(level); index++)
+			_played.remove(_table.getId(index));
+		_passes[level]++;
+		_positions[level] = 0;
+	}
+
+	private long getKey(int level)
+	{
+		return mix(_seed + mix(level + 1L) + mix(_passes[level] + ROUND_SEED));
+	}
+
+	// A bijection of 0..size-1 picked by key: a balanced Feistel network over the smallest even number of bits
+	// covering size, walking the cycle until it comes back in range - under 4 tries on average
+	static int permute(int position, int size, long key)
+	{
+		int bits = 32 - Integer.numberOfLeadingZeros(Math.max(size-1, 1));
+		int half = (bits + 1) / 2, mask = (1<<half) - 1;
+		int value = position;
+		do
+		{
+			int left = value>>>half, right = value & mask;
+			for(int round=0; round<ROUNDS; round++)
+			{
+				int next = left ^ (int)mix(key + round*ROUND_SEED ^ right) & mask;
+				left = right;
+				right = next;
+			}
+			value = left<<half | right;
+		}
+		while(value>=size);
+		return value;
+	}
+
+	// Murmur3's finalizer, as in StateSearch
+	private static long mix(long value)
+	{
+		value ^= value >>> 33;
+		value *= 0xff51afd7ed558ccdL;
+		value ^= value >>> 33;
+		value *= 0xc4ceb9fe1a85ec53L;
+		value ^= value >>> 33;
+		return value;
+	}
+
+	// Reads what was saved last time. The positions are kept only if the table didn't change, the played puzzles
+	// as long as its ids mean the same puzzles. Nothing is kept from a file that can't be read.
+	public synchronized void load() throws IOException
+	{
+		if(_file==null)
+			return;
+		new File(_file.getPath() + ".tmp").delete();  // Left by a save that failed
+		if(!_file.exists())
+			return;
+		DataInputStream in = new DataInputStream(new FileInputStream(_file));
+		try
+		{
+			if(in.readInt()!=MAGIC || in.readInt()!=VERSION)
+				return;
+			Multisets multisets = _table.getMultisets();
+			boolean sameIds = in.readInt()==multisets.getSize() & in.readInt()==multisets.getMaxNumber() &
+					in.readInt()==_table.getMaxTarget();
+			boolean sameTable = in.readInt()==_table.getChecksum() & sameIds;
+			long seed = in.readLong();
+			int levels = in.readInt();
+			if(levels<0 || levels>0xFF)
+				throw new IOException("Bad level count " + levels);
+			int[] passes = new int[levels], positions = new int[levels];
+			for(int level=0; level<levels; level++)
+			{
+				passes[level] = in.readInt();
+				positions[level] = in.readInt();
+			}
+			PuzzleSet played = new PuzzleSet();
+			if(sameIds)
+				played.read(in);
+			if(sameTable && levels==_positions.length)
+				for(int level=0; level<levels; level++)
+					if(positions[level]<0 || positions[level]>_table.getEnd(level) - _table.getStart(level))
+						throw new IOException("Bad position " + positions[level] + " of level " + level);
+
+			_seed = seed;
+			_played = played;
+			if(sameTable && levels==_positions.length)
+			{
+				System.arraycopy(passes, 0, _passes, 0, levels);
+				System.arraycopy(positions, 0, _positions, 0, levels);
+			}
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	// Writes the state if it changed since the last save. It's copied under the lock and written without it,
+	// so a deal while the pool's thread saves waits microseconds, not the write's milliseconds.
+	public void save() throws IOException
+	{
+		if(_file==null)
+			return;
+		synchronized(_fileLock)
+		{
+			byte[] state;
+			synchronized(this)
+			{
+				if(!_dirty)
+					return;
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				write(new DataOutputStream(bytes));
+				state = bytes.toByteArray();
+				_dirty = false;
+			}
+
+			// Written next to the file and renamed over it, so a half written file is never read
+			File temp = new File(_file.getPath() + ".tmp");
+			boolean written = false;
+			try
+			{
+				OutputStream out = new FileOutputStream(temp);
+				try
+				{
+					out.write(state);
+				}
+				finally
+				{
+					out.close();
+				}
+				if(!temp.renameTo(_file))
+					throw new IOException("Can't rename " + temp + " to " + _file);
+				written = true;
+			}
+			finally
+			{
+				if(!written)
+				{
+					temp.delete();
+					synchronized(this)
+					{
+						_dirty = true;  // Try again on the next save
+					}
+				}
+			}
+		}
+	}
+
+	private void write(DataOutputStream out) throws IOException
+	{
+		Multisets multisets = _table.getMultisets();
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(multisets.getSize());
+		out.writeInt(multisets.getMaxNumber());
+		out.writeInt(_table.getMaxTarget());
+		out.writeInt(_table.getChecksum());
+		out.writeLong(_seed);
+		out.writeInt(_positions.length);
+		for(int level=0; level<_positions.length; level++)
+		{
+			out.writeInt(_passes[level]);
+			out.writeInt(_positions[level]);
+		}
+		_played.write(out);
+		out.flush();
+	}
+}
@@ -0,0 +1,241 @@
+package com.platonix.ptorzot.solver;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+// A set of puzzle ids (non-negative ints), compressed like a roaring bitmap: the ids are split by their high
+// 16 bits into containers, and each container keeps the low 16 bits of its ids either as a sorted array of
+// chars, while it holds up to ARRAY_MAX of them, or as a bitmap of all 65536 once it holds more - whichever
+// is smaller. A few thousand ids scattered over the puzzle space take 2 bytes each, and the whole space at
+// most 8KB per container. contains and add search at most ARRAY_MAX chars or test one bit.
+// Not thread safe.
+public class PuzzleSet
+{
+	private static final int ARRAY_MAX = 4096;  // As many chars as a bitmap's 1024 longs
+	private static final int BITMAP_LONGS = 1 << 10;
+	private static final int INITIAL_ARRAY_SIZE = 16;
+
+	// Per container, by the high 16 bits: its sorted low bits or its bitmap (the other one null), and its size
+	private char[][] _arrays = new char[0][];
+	private long[][] _bitmaps = new long[0][];
+	private int[] _sizes = new int[0];
+	private int _size;
+
+	public int size() { return _size; }
+
+	public void clear()
+	{
+		_arrays = new char[0][];
+		_bitmaps = new long[0][];
+		_sizes = new int[0];
+		_size = 0;
+	}
+
+	public boolean contains(int id)
+	{
+		int high = id>>>16;
+		if(high>=_sizes.length)
+			return false;
+		char low = (char)id;
+		if(_bitmaps[high]!=null)
+			return (_bitmaps[high][low>>>6] & 1L<<low)!=0;
+		return _arrays[high]!=null && search(_arrays[high], _sizes[high], low)>=0;
+	}
+
+	// The index of low in the array's first size chars, or -(where it would go)-1
+	private static int search(char[] array, int size, char low)
+	{
+		int from = 0, to = size - 1;
+		while(from<=to)
+		{
+			int middle = (from + to) >>> 1;
+			if(array[middle]<low)
+				from = middle + 1;
+			else if(array[middle]>low)
+				to = middle - 1;
+			else
+				return middle;
+		}
+		return -from-1;
+	}
+
+	// Adds the id, false if it was there already
+	public boolean add(int id)
+	{
+		if(id<0)
+			throw new IllegalArgumentException("Ids can't be negative");
+		int high = id>>>16;
+		if(high>=_sizes.length)
+			grow(high+1);
+		char low = (char)id;
+
+		if(_bitmaps[high]==null && _sizes[high]==ARRAY_MAX)
+			toBitmap(high);
+		if(_bitmaps[high]!=null)
+		{
+			long[] bitmap = _bitmaps[high];
+			if((bitmap[low>>>6] & 1L<<low)!=0)
+				return false;
+			bitmap[low>>>6] |= 1L<<low;
+		}
+		else
+		{
+			char[] array = _arrays[high];
+			if(array==null)
+				array = _arrays[high] = new char[INITIAL_ARRAY_SIZE];
+			int size = _sizes[high];
+			int at = search(array, size, low);
+			if(at>=0)
+				return false;
+			at = -at-1;
+			if(size==array.length)
+			{
+				char[] bigger = new char[Math.min(2*size, ARRAY_MAX)];
+				System.arraycopy(array, 0, bigger, 0, size);
+				array = _arrays[high] = bigger;
+			}
+			System.arraycopy(array, at, array, at+1, size-at);
+			array[at] = low;
+		}
+		_sizes[high]++;
+		_size++;
+		return true;
+	}
+
+	// Removes the id, false if it wasn't there
+	public boolean remove(int id)
+	{
+		int high = id>>>16;
+		if(id<0 || high>=_sizes.length)
+			return false;
+		char low = (char)id;
+
+		if(_bitmaps[high]!=null)
+		{
+			long[] bitmap = _bitmaps[high];
+			if((bitmap[low>>>6] & 1L<<low)==0)
+				return false;
+			bitmap[low>>>6] &= ~(1L<<low);
+		}
+		else
+		{
+			char[] array = _arrays[high];
+			int size = _sizes[high];
+			int at = array==null ? -1 : search(array, size, low);
+			if(at<0)
+				return false;
+			System.arraycopy(array, at+1, array, at, size-at-1);
+		}
+		_sizes[high]--;
+		_size--;
+		if(_bitmaps[high]!=null && _sizes[high]<=ARRAY_MAX/2)
+			toArray(high);  // Well below ARRAY_MAX, so removing and adding around it doesn't convert each time
+		return true;
+	}
+
+	private void grow(int count)
+	{
+		char[][] arrays = new char[count][];
+		long[][] bitmaps = new long[count][];
+		int[] sizes = new int[count];
+		System.arraycopy(_arrays, 0, arrays, 0, _arrays.length);
+		System.arraycopy(_bitmaps, 0, bitmaps, 0, _bitmaps.length);
+		System.arraycopy(_sizes, 0, sizes, 0, _sizes.length);
+		_arrays = arrays;
+		_bitmaps = bitmaps;
+		_sizes = sizes;
+	}
+
+	private void toBitmap(int high)
+	{
+		long[] bitmap = new long[BITMAP_LONGS];
+		char[] array = _arrays[high];
+		for(int i=0; i<_sizes[high]; i++)
+			bitmap[array[i]>>>6] |= 1L<<array[i];
+		_bitmaps[high] = bitmap;
+		_arrays[high] = null;
+	}
+
+	private void toArray(int high)
+	{
+		char[] array = new char[ARRAY_MAX];
+		long[] bitmap = _bitmaps[high];
+		int size = 0;
+		for(int i=0; i<BITMAP_LONGS; i++)
+			for(long bits=bitmap[i]; bits!=0; bits &= bits-1)
+				array[size++] = (char)(i<<6 | Long.numberOfTrailingZeros(bits));
+		_arrays[high] = array;
+		_bitmaps[high] = null;
+	}
+
+	// The containers that aren't empty: the high bits and size of each, then its chars or its bitmap's longs
+	public void write(DataOutputStream out) throws IOException
+	{
+		int containers = 0;
+		for(int size: _sizes)
+			if(size>0)
+				containers++;
+		out.writeShort(containers);
+		for(int high=0; high<_sizes.length; high++)
+		{
+			int size = _sizes[high];
+			if(size==0)
+				continue;
+			out.writeShort(high);
+			out.writeInt(size);
+			if(size>ARRAY_MAX)
+			{
+				long[] bitmap = _bitmaps[high];
+				for(int i=0; i<BITMAP_LONGS; i++)
+					out.writeLong(bitmap[i]);
+			}
+			else if(_bitmaps[high]!=null)
+			{
+				// A bitmap not converted back yet, written as the array it would be
+				toArray(high);
+				writeArray(out, high);
+			}
+			else
+				writeArray(out, high);
+		}
+	}
+
+	private void writeArray(DataOutputStream out, int high) throws IOException
+	{
+		char[] array = _arrays[high];
+		for(int i=0; i<_sizes[high]; i++)
+			out.writeChar(array[i]);
+	}
+
+	// Replaces the set with the one write wrote
+	public void read(DataInputStream in) throws IOException
+	{
+		clear();
+		int containers = in.readUnsignedShort();
+		for(int c=0; c<containers; c++)
+		{
+			int high = in.readUnsignedShort();
+			int size = in.readInt();
+			if(high<_sizes.length || size<1 || size>1<<16)
+				throw new IOException("Bad puzzle set container " + high);
+			grow(high+1);
+			if(size>ARRAY_MAX)
+			{
+				long[] bitmap = new long[BITMAP_LONGS];
+				for(int i=0; i<BITMAP_LONGS; i++)
+					bitmap[i] = in.readLong();
+				_bitmaps[high] = bitmap;
+			}
+			else
+			{
+				char[] array = new char[Math.max(size, INITIAL_ARRAY_SIZE)];
+				for(int i=0; i<size; i++)
+					array[i] = in.readChar();
+				_arrays[high] = array;
+			}
+			_sizes[high] = size;
+			_size += size;
+		}
+	}
+}
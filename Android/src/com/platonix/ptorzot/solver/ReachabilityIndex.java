@@ -0,0 +1,131 @@
+package com.platonix.ptorzot.solver;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+// Precomputed answers for every multiset of numbers - which whole targets between 0 and maxTarget
+// can be reached, and with how many move sequences. The index is built offline by IndexBuilder and
+// read straight from a memory mapped file, so a lookup is a few buffer reads.
+//
+// File format (big endian):
+//   header  - magic, version, size, maxNumber, maxTarget, multiset count, CRC32 of the records, reserved
+//   records - one per multiset, by Multisets rank: a bitset of reachable targets (maxTarget+1 bits in longs),
+//             then a solution count per target (unsigned short, saturated at 65535)
+public class ReachabilityIndex
+{
+	public static final int MAGIC = 0x505A5249;  // "PZRI"
+	public static final int VERSION = 1;
+	public static final int HEADER_SIZE = 32;
+	public static final int MAX_COUNT = 0xFFFF;
+
+	private final ByteBuffer _buffer;
+	private final Multisets _multisets;
+	private final int _maxTarget, _bitsetSize, _recordSize, _checksum;
+
+	public ReachabilityIndex(ByteBuffer buffer) throws IOException
+	{
+		_buffer = buffer;
+		if(buffer.capacity()<HEADER_SIZE || buffer.getInt(0)!=MAGIC)
+			throw new IOException("Not a reachability index");
+		if(buffer.getInt(4)!=VERSION)
+			throw new IOException("Unsupported reachability index version " + buffer.getInt(4));
+
+		_multisets = new Multisets(buffer.getInt(8), buffer.getInt(12));
+		_maxTarget = buffer.getInt(16);
+		_checksum = buffer.getInt(24);
+		_bitsetSize = getBitsetSize(_maxTarget);
+		_recordSize = getRecordSize(_maxTarget);
+
+		if(buffer.getInt(20)!=_multisets.getCount() || buffer.capacity()!=getFileSize(_multisets, _maxTarget))
+			throw new IOException("Reachability index is truncated or corrupt");
+	}
+
+	// Maps the file, nothing is read until it is used
+	public static ReachabilityIndex open(File file) throws IOException
+	{
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try
+		{
+			return map(raf.getChannel(), 0, raf.length());
+		}
+		finally
+		{
+			raf.close();  // The mapping stays valid after the channel is closed
+		}
+	}
+
+	public static ReachabilityIndex map(FileChannel channel, long offset, long length) throws IOException
+	{
+		return new ReachabilityIndex(channel.map(FileChannel.MapMode.READ_ONLY, offset, length));
+	}
+
+	static int getBitsetSize(int maxTarget)
+	{
+		return (maxTarget/64 + 1) * 8;
+	}
+
+	static int getRecordSize(int maxTarget)
+	{
+		return getBitsetSize(maxTarget) + (maxTarget+1) * 2;
+	}
+
+	static long getFileSize(Multisets multisets, int maxTarget)
+	{
+		return HEADER_SIZE + (long)multisets.getCount() * getRecordSize(maxTarget);
+	}
+
+	public Multisets getMultisets() { return _multisets; }
+	public int getMaxTarget() { return _maxTarget; }
+	public int getChecksum() { return _checksum; }
+
+	// Whether the index has the answer for these numbers and target
+	public boolean covers(int[] numbers, int target)
+	{
+		if(numbers.length!=_multisets.getSize() || target<0 || target>_maxTarget)
+			return false;
+		for(int n: numbers)
+			if(n<1 || n>_multisets.getMaxNumber())
+				return false;
+		return true;
+	}
+
+	public boolean isSolvable(int[] numbers, int target)
+	{
+		return isSolvable(_multisets.rank(numbers), target);
+	}
+
+	public int getSolutionCount(int[] numbers, int target)
+	{
+		return getSolutionCount(_multisets.rank(numbers), target);
+	}
+
+	public boolean isSolvable(int rank, int target)
+	{
+		checkTarget(target);
+		long word = _buffer.getLong(getRecordOffset(rank) + (target >>> 6) * 8);
+		return (word & (1L << (target & 63)))!=0;
+	}
+
+	// The number of move sequences reaching target, MAX_COUNT means at least that many
+	public int getSolutionCount(int rank, int target)
+	{
+		checkTarget(target);
+		return _buffer.getShort(getRecordOffset(rank) + _bitsetSize + target*2) & 0xFFFF;
+	}
+
+	private int getRecordOffset(int rank)
+	{
+		if(rank<0 || rank>=_multisets.getCount())
+			throw new IllegalArgumentException("Rank must be between 0 and " + (_multisets.getCount()-1));
+		return HEADER_SIZE + rank * _recordSize;
+	}
+
+	private void checkTarget(int target)
+	{
+		if(target<0 || target>_maxTarget)
+			throw new IllegalArgumentException("Target must be between 0 and " + _maxTarget);
+	}
+}
@@ -0,0 +1,427 @@
+package com.platonix.ptorzot.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.platonix.ptorzot.math.Rational;
+
+// Exhaustive solver for a set of numbers and a target.
+// Solutions are sequences of Moves that can be played as is with GameState.OnePlay.
+// Commutative duplicates are pruned like Solver.py's OpEnumerator.get_ops does - + and * are only
+// tried with first<second, - and / are tried both ways.
+// All the arithmetic is exact (Rational), so hitting the target is a plain comparison.
+// findOne and isSolvable only need one solution, so they also prune like StateSearch: each pair of values and each
+// distinct result of a pair is tried once, and negative results are skipped unless the target or a number is
+// negative. That more than halves their time, to ~45us on a desktop for random 5 number puzzles. The full
+// search - findAll, the counts - visits every one of the ~233,000 last moves, around 0.8ms on a desktop and a few
+// times that on a phone, which is why the game reads the counts from the ReachabilityIndex rather than search
+// inline.
+// A Solver keeps its scratch buffers between searches, so it is not thread safe.
+public class Solver
+{
+	public interface Visitor
+	{
+		// Called for every solution found. The moves array is reused - copy it if you need to keep it.
+		// Return false to stop the search.
+		boolean onSolution(Move[] moves);
+	}
+
+	private static final int ADD = 0, SUB = 1, MUL = 2, DIV = 3;
+	// The moves tried on a pair a, b by the pruned search - a op b, or b op a where swapped
+	private static final int[] PAIR_OPS = { ADD, SUB, SUB, MUL, DIV, DIV };
+	private static final boolean[] PAIR_SWAPPED = { false, false, true, false, false, true };
+
+	private final int _size;
+	private final long[][] _pads;  // _pads[n] holds the n numbers left after _size-n moves
+	private final Move[] _path;
+	private final long[][] _results;  // The distinct results of the pair being tried, per level, when pruning
+
+	private long _target, _targetNumerator;
+	private Visitor _visitor;
+	private int[] _counts;  // When set, the search counts solutions per target instead of visiting them
+	private boolean _stopped;
+	private boolean _pruned;  // Any one solution will do
+	private boolean _positive;  // When pruning, only results from 0 up - the target and the numbers are
+
+	public Solver(int[] numbers)
+	{
+		this(toRationals(numbers), numbers.length);
+	}
+
+	// Solves the first count Rational values - for instance what's left of a game, OnePlay.getNumbersPost()
+	public Solver(long[] values, int count)
+	{
+		if(count<2 || count>Move.MAX_INDEX || count>values.length)
+			throw new IllegalArgumentException("Can only solve 2 to " + Move.MAX_INDEX + " numbers");
+
+		_size = count;
+		_pads = new long[_size+1][];
+		for(int n=1; n<=_size; n++)
+			_pads[n] = new long[n];
+		System.arraycopy(values, 0, _pads[_size], 0, _size);
+		_path = new Move[_size-1];
+		_results = new long[_size+1][PAIR_OPS.length];
+	}
+
+	private static long[] toRationals(int[] numbers)
+	{
+		long[] values = new long[numbers.length];
+		for(int i=0; i<numbers.length; i++)
+			values[i] = Rational.of(numbers[i]);
+		return values;
+	}
+
+	public int getSize() { return _size; }
+
+	// Runs the search, calling visitor for each solution
+	public void solve(int target, Visitor visitor)
+	{
+		_target = Rational.of(target);
+		_targetNumerator = target;
+		_visitor = visitor;
+		_stopped = false;
+		search(_size);
+		_visitor = null;
+	}
+
+	// Like solve, for a visitor that stops at the first solution - equivalent branches are searched once
+	private void solveOne(int target, Visitor visitor)
+	{
+		_pruned = true;
+		_positive = target>=0;
+		for(int i=0; i<_size; i++)
+			if(Rational.numerator(_pads[_size][i])<0)
+				_positive = false;
+		try
+		{
+			solve(target, visitor);
+		}
+		finally
+		{
+			_pruned = false;
+		}
+	}
+
+	public List<Move[]> findAll(int target)
+	{
+		final List<Move[]> solutions = new ArrayList<Move[]>();
+		solve(target, new Visitor()
+		{
+			public boolean onSolution(Move[] moves)
+			{
+				solutions.add(moves.clone());
+				return true;
+			}
+		});
+		return solutions;
+	}
+
+	// Returns the first solution found, or null if there is none
+	public Move[] findOne(int target)
+	{
+		final Move[][] found = new Move[1][];
+		solveOne(target, new Visitor()
+		{
+			public boolean onSolution(Move[] moves)
+			{
+				found[0] = moves.clone();
+				return false;
+			}
+		});
+		return found[0];
+	}
+
+	public boolean isSolvable(int target)
+	{
+		return findOne(target)!=null;
+	}
+
+	public int countSolutions(int target)
+	{
+		final int[] count = new int[1];
+		solve(target, new Visitor()
+		{
+			public boolean onSolution(Move[] moves)
+			{
+				count[0]++;
+				return true;
+			}
+		});
+		return count[0];
+	}
+
+	// The solutions that are different expressions, one move sequence each (see CanonicalForm)
+	public List<Move[]> findDistinct(int target)
+	{
+		final List<Move[]> solutions = new ArrayList<Move[]>();
+		solve(target, new CanonicalForm(_pads[_size], _size).distinct(new Visitor()
+		{
+			public boolean onSolution(Move[] moves)
+			{
+				solutions.add(moves.clone());
+				return true;
+			}
+		}));
+		return solutions;
+	}
+
+	// The number of different expressions reaching the target - countSolutions counts move sequences, several
+	// for most expressions (a+b+c alone is 3 pairs to start with, times 2 groupings)
+	public int countDistinctSolutions(int target)
+	{
+		CanonicalForm forms = new CanonicalForm(_pads[_size], _size);
+		solve(target, forms.distinct(new Visitor()
+		{
+			public boolean onSolution(Move[] moves)
+			{
+				return true;
+			}
+		}));
+		return forms.getSeenCount();
+	}
+
+	// Counts the solutions for every target at once - counts[t] is incremented for every move sequence
+	// ending with t, for all whole t between 0 and counts.length-1. Much cheaper than a search per target.
+	public void countTargets(int[] counts)
+	{
+		_counts = counts;
+		_stopped = false;
+		search(_size);
+		_counts = null;
+	}
+
+	private static boolean isCommutative(int op)
+	{
+		return op==ADD || op==MUL;
+	}
+
+	private static long apply(long a, long b, int op)
+	{
+		switch(op)
+		{
+		case ADD: return Rational.add(a, b);
+		case SUB: return Rational.subtract(a, b);
+		case MUL: return Rational.multiply(a, b);
+		default: return Rational.divide(a, b);
+		}
+	}
+
+	private void search(int count)
+	{
+		long[] pad = _pads[count];
+		if(count==2)
+		{
+			lastMove(pad[0], pad[1]);
+			return;
+		}
+		if(_pruned)
+		{
+			searchPruned(count);
+			return;
+		}
+		if(count==3)
+		{
+			search3(pad[0], pad[1], pad[2]);
+			return;
+		}
+
+		long[] next = _pads[count-1];
+		int depth = _size - count;
+		for(int first=0; first<count; first++)
+			for(int second=0; second<count; second++)
+			{
+				if(first==second)
+					continue;
+
+				// Same as OnePlay.createNumbersPost - result goes in first, second is removed
+				System.arraycopy(pad, 0, next, 0, second);
+				System.arraycopy(pad, second+1, next, second, count-second-1);
+				int resultIndex = first<second ? first : first-1;
+
+				long a = pad[first], b = pad[second];
+				for(int op=0; op<4; op++)
+				{
+					if(isCommutative(op) && first>second)
+						continue;
+					long result = apply(a, b, op);
+					if(!Rational.isValid(result)) // Division by zero or overflow - a dead branch
+						continue;
+
+					next[resultIndex] = result;
+					_path[depth] = Move.of(first, second, op);
+					search(count-1);
+					if(_stopped)
+						return;
+				}
+			}
+	}
+
+	// Each pair of values once - a pair of the same values as an earlier pair leaves the same numbers - and each
+	// distinct result of the pair once, not going below 0 unless something is negative (see StateSearch)
+	private void searchPruned(int count)
+	{
+		long[] pad = _pads[count];
+		long[] next = _pads[count-1];
+		int depth = _size - count;
+		long[] results = _results[count];
+		for(int i=0; i<count; i++)
+			for(int j=i+1; j<count; j++)
+			{
+				long a = pad[i], b = pad[j];
+				if(isPairTried(pad, i, j))
+					continue;
+				int distinct = 0;
+				for(int k=0; k<PAIR_OPS.length; k++)
+				{
+					int op = PAIR_OPS[k];
+					boolean swapped = PAIR_SWAPPED[k];  // b op a puts the result at j and removes i
+					long result = swapped ? apply(b, a, op) : apply(a, b, op);
+					if(!Rational.isValid(result) || (_positive && Rational.numerator(result)<0) ||
+							contains(results, distinct, result))
+						continue;
+					results[distinct++] = result;
+
+					int first = swapped ? j : i, second = swapped ? i : j;
+					System.arraycopy(pad, 0, next, 0, second);
+					System.arraycopy(pad, second+1, next, second, count-second-1);
+					next[first<second ? first : first-1] = result;
+					_path[depth] = Move.of(first, second, op);
+					search(count-1);
+					if(_stopped)
+						return;
+				}
+			}
+	}
+
+	// Whether a pair before i, j holds the same two values
+	private static boolean isPairTried(long[] pad, int i, int j)
+	{
+		long a = pad[i], b = pad[j];
+		for(int k=0; k<=i; k++)
+			for(int l=k+1; l<(k==i ? j : pad.length); l++)
+				if(pad[k]==a && pad[l]==b || pad[k]==b && pad[l]==a)
+					return true;
+		return false;
+	}
+
+	private static boolean contains(long[] values, int count, long value)
+	{
+		for(int i=0; i<count; i++)
+			if(values[i]==value)
+				return true;
+		return false;
+	}
+
+	// Three numbers left - the last two levels are unrolled, since this is where almost all the time goes
+	private void search3(long x0, long x1, long x2)
+	{
+		if(!_stopped)
+			pair3(0, 1, x0, x1, x2);
+		if(!_stopped)
+			pair3(0, 2, x0, x2, x1);
+		if(!_stopped)
+			pair3(1, 2, x1, x2, x0);
+	}
+
+	// Combines a (at lo) with b (at hi), then tries the last move with rest.
+	// The result comes first in the remaining pair, unless rest is at 0 or first is at 2.
+	private void pair3(int lo, int hi, long a, long b, long rest)
+	{
+		int depth = _size - 3;
+		boolean restFirst = lo!=0;
+
+		_path[depth] = Move.of(lo, hi, ADD);
+		lastMove3(Rational.add(a, b), rest, restFirst);
+		_path[depth] = Move.of(lo, hi, SUB);
+		lastMove3(Rational.subtract(a, b), rest, restFirst);
+		_path[depth] = Move.of(hi, lo, SUB);
+		lastMove3(Rational.subtract(b, a), rest, hi==2);
+		_path[depth] = Move.of(lo, hi, MUL);
+		lastMove3(Rational.multiply(a, b), rest, restFirst);
+		_path[depth] = Move.of(lo, hi, DIV);
+		lastMove3(Rational.divide(a, b), rest, restFirst);
+		_path[depth] = Move.of(hi, lo, DIV);
+		lastMove3(Rational.divide(b, a), rest, hi==2);
+	}
+
+	private void lastMove3(long result, long rest, boolean restFirst)
+	{
+		if(_stopped || !Rational.isValid(result))
+			return;
+		if(restFirst)
+			lastMove(rest, result);
+		else
+			lastMove(result, rest);
+	}
+
+	// The last move is checked directly against the target instead of going down another level.
+	// The results are never normalized, only cross multiplied with the target.
+	private void lastMove(long a, long b)
+	{
+		long an = Rational.numerator(a), ad = Rational.denominator(a);
+		long bn = Rational.numerator(b), bd = Rational.denominator(b);
+		if(_counts!=null)
+		{
+			countLastMove(an, ad, bn, bd);
+			return;
+		}
+
+		int last = _size - 2;
+
+		if(isTarget(an*bd + bn*ad, ad*bd))
+			hit(last, 0, 1, ADD);
+		if(!_stopped && isTarget(an*bd - bn*ad, ad*bd))
+			hit(last, 0, 1, SUB);
+		if(!_stopped && isTarget(bn*ad - an*bd, ad*bd))
+			hit(last, 1, 0, SUB);
+		if(!_stopped && isTarget(an*bn, ad*bd))
+			hit(last, 0, 1, MUL);
+		if(!_stopped && isTarget(an*bd, ad*bn))
+			hit(last, 0, 1, DIV);
+		if(!_stopped && isTarget(bn*ad, bd*an))
+			hit(last, 1, 0, DIV);
+	}
+
+	// Checks num/den==target, den 0 is a division by zero and never hits
+	private boolean isTarget(long num, long den)
+	{
+		if(den>Integer.MAX_VALUE || den<-Integer.MAX_VALUE) // target*den might overflow, do it the slow way
+			return Rational.of(num, den)==_target;
+		return den!=0 && num==_targetNumerator*den;
+	}
+
+	private void countLastMove(long an, long ad, long bn, long bd)
+	{
+		count(an*bd + bn*ad, ad*bd);
+		count(an*bd - bn*ad, ad*bd);
+		count(bn*ad - an*bd, ad*bd);
+		count(an*bn, ad*bd);
+		count(an*bd, ad*bn);
+		count(bn*ad, bd*an);
+	}
+
+	private void count(long num, long den)
+	{
+		if(den<0)
+		{
+			num = -num;
+			den = -den;
+		}
+		if(den==0 || num<0)
+			return;
+		if(den!=1)
+		{
+			if(num % den!=0)
+				return;
+			num /= den;
+		}
+		if(num<_counts.length)
+			_counts[(int)num]++;
+	}
+
+	private void hit(int depth, int first, int second, int op)
+	{
+		_path[depth] = Move.of(first, second, op);
+		_stopped = !_visitor.onSolution(_path);
+	}
+}
@@ -0,0 +1,175 @@
+package com.platonix.ptorzot.solver;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.platonix.ptorzot.math.Rational;
+
+// Remembers every value that can be reached from a set of values (using all of them), keyed on the sorted values,
+// so the same state met again - after different first moves, or in another game - isn't searched again.
+// Sub-states are looked up in the cache too, so filling it is a memoized search.
+// Entries are dropped least recently used first whenever the estimated size goes over the cap.
+// Thread safe.
+public class StateCache
+{
+	// Rough per entry overhead - map entry, key object, two array headers
+	private static final int ENTRY_OVERHEAD = 96;
+
+	private final long _maxBytes;
+	private final LinkedHashMap<Key, long[]> _map = new LinkedHashMap<Key, long[]>(64, 0.75f, true);
+	private long _bytes, _hits, _misses, _evictions;
+
+	private static final class Key
+	{
+		private final long[] _values;  // Sorted
+		private final int _hash;
+
+		Key(long[] values)
+		{
+			_values = values;
+			_hash = Arrays.hashCode(values);
+		}
+
+		@Override
+		public int hashCode() { return _hash; }
+
+		@Override
+		public boolean equals(Object o)
+		{
+			return o instanceof Key && Arrays.equals(_values, ((Key)o)._values);
+		}
+	}
+
+	public StateCache(long maxBytes)
+	{
+		_maxBytes = maxBytes;
+	}
+
+	public synchronized long getHits() { return _hits; }
+	public synchronized long getMisses() { return _misses; }
+	public synchronized long getEvictions() { return _evictions; }
+	public synchronized long getBytes() { return _bytes; }
+	public synchronized int size() { return _map.size(); }
+	public long getMaxBytes() { return _maxBytes; }
+
+	public synchronized void clear()
+	{
+		_map.clear();
+		_bytes = 0;
+	}
+
+	// Whether target can be reached from the first count values (Rationals, in any order)
+	public boolean canReach(long[] values, int count, long target)
+	{
+		return Arrays.binarySearch(getReachable(values, count), target)>=0;
+	}
+
+	// All the values reachable from the first count values, sorted. Don't modify the returned array.
+	public synchronized long[] getReachable(long[] values, int count)
+	{
+		long[] sorted = new long[count];
+		System.arraycopy(values, 0, sorted, 0, count);
+		Arrays.sort(sorted);
+		return getReachable(sorted);
+	}
+
+	private long[] getReachable(long[] sorted)
+	{
+		if(sorted.length==1)
+			return sorted;
+
+		Key key = new Key(sorted);
+		long[] reachable = _map.get(key);
+		if(reachable!=null)
+		{
+			_hits++;
+			return reachable;
+		}
+
+		_misses++;
+		reachable = search(sorted);
+		_map.put(key, reachable);
+		_bytes += entrySize(sorted, reachable);
+		evict();
+		return reachable;
+	}
+
+	private static long entrySize(long[] key, long[] reachable)
+	{
+		return ENTRY_OVERHEAD + 8L * (key.length + reachable.length);
+	}
+
+	private void evict()
+	{
+		Iterator<Map.Entry<Key, long[]>> eldest = _map.entrySet().iterator();
+		while(_bytes>_maxBytes && eldest.hasNext())
+		{
+			Map.Entry<Key, long[]> entry = eldest.next();
+			_bytes -= entrySize(entry.getKey()._values, entry.getValue());
+			eldest.remove();
+			_evictions++;
+		}
+	}
+
+	// Every pair is combined with every op (both ways for - and /), what's left is looked up recursively
+	private long[] search(long[] sorted)
+	{
+		int count = sorted.length;
+		long[] next = new long[count-1];
+		long[] found = new long[64];
+		int size = 0;
+
+		for(int first=0; first<count; first++)
+			for(int second=first+1; second<count; second++)
+			{
+				long a = sorted[first], b = sorted[second];
+				long[] results = { Rational.add(a, b), Rational.subtract(a, b), Rational.subtract(b, a),
+						Rational.multiply(a, b), Rational.divide(a, b), Rational.divide(b, a) };
+				for(long result: results)
+				{
+					if(!Rational.isValid(result))
+						continue;
+
+					// The rest of the values plus the result, kept sorted
+					int n = 0;
+					boolean placed = false;
+					for(int i=0; i<count; i++)
+					{
+						if(i==first || i==second)
+							continue;
+						if(!placed && result<sorted[i])
+						{
+							next[n++] = result;
+							placed = true;
+						}
+						next[n++] = sorted[i];
+					}
+					if(!placed)
+						next[n] = result;
+
+					long[] reachable = getReachable(next.clone());
+					if(size+reachable.length>found.length)
+						found = copyOf(found, size, Math.max(found.length*2, size+reachable.length));
+					System.arraycopy(reachable, 0, found, size, reachable.length);
+					size += reachable.length;
+				}
+			}
+
+		Arrays.sort(found, 0, size);
+		int distinct = 0;
+		for(int i=0; i<size; i++)
+			if(distinct==0 || found[i]!=found[distinct-1])
+				found[distinct++] = found[i];
+		return copyOf(found, distinct, distinct);
+	}
+
+	// Arrays.copyOf is missing before API level 9
+	private static long[] copyOf(long[] array, int length, int newLength)
+	{
+		long[] copy = new long[newLength];
+		System.arraycopy(array, 0, copy, 0, length);
+		return copy;
+	}
+}
@@ -0,0 +1,255 @@
+package com.platonix.ptorzot.solver;
+
+import java.util.Arrays;
+
+import com.platonix.ptorzot.math.Rational;
+
+// Finds one solution of puzzles too big for Solver's full search - 6 to 8 numbers, or large numbers.
+// Solver tries every move sequence, and sequences grow faster than factorially with the numbers. Most of them
+// go through the same states though: 3+4 then 2*5 leaves the same numbers as 2*5 then 4+3. This search is
+// depth first like Solver, but remembers every multiset of values it has searched and doesn't search one twice,
+// and tries each distinct result of a pair of values once (a-b and b-a are the same for a==b, 2+2 is 2*2).
+// Negative results are skipped too, nothing is lost by that: whatever an expression makes, its absolute value
+// can be made with the same numbers without going below 0 - |a+b| and |a-b| are |a|+|b| or the larger of |a|, |b|
+// less the smaller, |a*b| is |a|*|b| and |a/b| is |a|/|b|. So every target from 0 up is still found, as long as
+// the numbers are from 0 up too. A negative target or number turns the skipping off.
+//
+// Searched multisets are remembered by a 64 bit hash, the sum of a mix of each value - order doesn't matter, and
+// a move updates it with three mixes. Two multisets sharing a hash would hide one of them, at odds of about
+// states^2/2^64 per search. The number of states searched can be capped with setMaxStates, past which the
+// search gives up.
+// A StateSearch keeps its buffers between searches, so it is not thread safe.
+public class StateSearch
+{
+	public static final int NOT_FOUND = 0, FOUND = 1, GAVE_UP = 2;
+
+	private static final int ADD = 0, SUB = 1, MUL = 2, DIV = 3;
+	// The moves tried on a pair a, b - a op b, or b op a where swapped
+	private static final int[] PAIR_OPS = { ADD, SUB, SUB, MUL, DIV, DIV };
+	private static final boolean[] PAIR_SWAPPED = { false, false, true, false, false, true };
+	private static final int INITIAL_TABLE_BITS = 10;
+
+	private long[][] _pads = new long[0][];  // _pads[n] holds the n values left, like in Solver
+	private long[][] _results = new long[0][];  // The distinct results of the pair being tried, per level
+	private Move[] _path = new Move[0];
+	private int _size;
+	private long _target, _targetNumerator;
+
+	private long[] _table = new long[1 << INITIAL_TABLE_BITS];  // Hashes of the multisets searched, 0 for empty
+	private int _tableSize;
+	private long _states, _maxStates = Long.MAX_VALUE;
+	private boolean _integers;  // Only whole intermediate results
+	private boolean _positive;  // Only results from 0 up - the target and the values are
+
+	public void setMaxStates(long maxStates)
+	{
+		_maxStates = maxStates;
+	}
+
+	// The multisets searched by the last search
+	public long getStates() { return _states; }
+
+	// The moves of the solution found by the last search, to play as is with GameState.OnePlay.
+	// Only valid after a search returned FOUND, and reused by the next one.
+	public Move[] getSolution() { return _path; }
+
+	// A solution as moves, null if there's none or the search gave up
+	public Move[] findOne(int[] numbers, int target)
+	{
+		long[] values = new long[numbers.length];
+		for(int i=0; i<numbers.length; i++)
+			values[i] = Rational.of(numbers[i]);
+		return search(values, numbers.length, target)==FOUND ? _path.clone() : null;
+	}
+
+	// Searches the first count Rational values for target, returns NOT_FOUND, FOUND or GAVE_UP
+	public int search(long[] values, int count, int target)
+	{
+		if(count<2 || count>Move.MAX_INDEX || count>values.length)
+			throw new IllegalArgumentException("Can only solve 2 to " + Move.MAX_INDEX + " numbers");
+
+		if(_pads.length<=count)
+		{
+			_pads = new long[count+1][];
+			_results = new long[count+1][];
+			for(int n=1; n<=count; n++)
+			{
+				_pads[n] = new long[n];
+				_results[n] = new long[PAIR_OPS.length];
+			}
+		}
+		if(_path.length!=count-1)
+			_path = new Move[count-1];
+		_size = count;
+		_target = Rational.of(target);
+		_targetNumerator = target;
+		_positive = target>=0;
+		for(int i=0; i<count; i++)
+			if(Rational.numerator(values[i])<0)
+				_positive = false;
+		_states = 0;
+
+		// Most solutions can be made with whole numbers all the way, and there are far fewer states that way -
+		// try those first, then everything
+		int found = search(values, count, true);
+		if(found==NOT_FOUND)
+			found = search(values, count, false);
+		return found;
+	}
+
+	private int search(long[] values, int count, boolean integers)
+	{
+		_integers = integers;
+		Arrays.fill(_table, 0);
+		_tableSize = 0;
+
+		long hash = 0;
+		for(int i=0; i<count; i++)
+		{
+			_pads[count][i] = values[i];
+			hash += mix(values[i]);
+		}
+		return search(count, hash);
+	}
+
+	// Murmur3's finalizer - every bit of the value changes about half the bits of the mix
+	private static long mix(long value)
+	{
+		value ^= value >>> 33;
+		value *= 0xff51afd7ed558ccdL;
+		value ^= value >>> 33;
+		value *= 0xc4ceb9fe1a85ec53L;
+		value ^= value >>> 33;
+		return value;
+	}
+
+	private static long apply(long a, long b, int op)
+	{
+		switch(op)
+		{
+		case ADD: return Rational.add(a, b);
+		case SUB: return Rational.subtract(a, b);
+		case MUL: return Rational.multiply(a, b);
+		default: return Rational.divide(a, b);
+		}
+	}
+
+	private int search(int count, long hash)
+	{
+		long[] pad = _pads[count];
+		if(count==2)
+			return lastMove(pad[0], pad[1]) ? FOUND : NOT_FOUND;
+		if(!add(hash))
+			return NOT_FOUND;  // Searched already, from another order of the same moves
+		if(++_states>_maxStates)
+			return GAVE_UP;
+
+		long[] next = _pads[count-1];
+		int depth = _size - count;
+		long[] results = _results[count];
+		for(int i=0; i<count; i++)
+			for(int j=i+1; j<count; j++)
+			{
+				long a = pad[i], b = pad[j];
+				long pairHash = hash - mix(a) - mix(b);
+				int distinct = 0;
+				for(int k=0; k<PAIR_OPS.length; k++)
+				{
+					int op = PAIR_OPS[k];
+					boolean swapped = PAIR_SWAPPED[k];  // b op a puts the result at j and removes i
+					long result = swapped ? apply(b, a, op) : apply(a, b, op);
+					if(!Rational.isValid(result) || (_positive && Rational.numerator(result)<0) ||
+							(_integers && !Rational.isInteger(result)) || contains(results, distinct, result))
+						continue;
+					results[distinct++] = result;
+
+					int first = swapped ? j : i, second = swapped ? i : j;
+					System.arraycopy(pad, 0, next, 0, second);
+					System.arraycopy(pad, second+1, next, second, count-second-1);
+					next[first<second ? first : first-1] = result;
+					_path[depth] = Move.of(first, second, op);
+
+					int found = search(count-1, pairHash + mix(result));
+					if(found!=NOT_FOUND)
+						return found;
+				}
+			}
+		return NOT_FOUND;
+	}
+
+	private static boolean contains(long[] values, int count, long value)
+	{
+		for(int i=0; i<count; i++)
+			if(values[i]==value)
+				return true;
+		return false;
+	}
+
+	// Like Solver's, the last move is checked against the target by cross multiplying
+	private boolean lastMove(long a, long b)
+	{
+		long an = Rational.numerator(a), ad = Rational.denominator(a);
+		long bn = Rational.numerator(b), bd = Rational.denominator(b);
+		int last = _size - 2;
+
+		if(isTarget(an*bd + bn*ad, ad*bd))
+			_path[last] = Move.of(0, 1, ADD);
+		else if(isTarget(an*bd - bn*ad, ad*bd))
+			_path[last] = Move.of(0, 1, SUB);
+		else if(isTarget(bn*ad - an*bd, ad*bd))
+			_path[last] = Move.of(1, 0, SUB);
+		else if(isTarget(an*bn, ad*bd))
+			_path[last] = Move.of(0, 1, MUL);
+		else if(isTarget(an*bd, ad*bn))
+			_path[last] = Move.of(0, 1, DIV);
+		else if(isTarget(bn*ad, bd*an))
+			_path[last] = Move.of(1, 0, DIV);
+		else
+			return false;
+		return true;
+	}
+
+	private boolean isTarget(long num, long den)
+	{
+		if(den>Integer.MAX_VALUE || den<-Integer.MAX_VALUE)
+			return Rational.of(num, den)==_target;
+		return den!=0 && num==_targetNumerator*den;
+	}
+
+	// Adds the multiset's hash to the table, false if it was there already
+	private boolean add(long hash)
+	{
+		if(hash==0)
+			hash = 1;
+		if(2*(_tableSize+1)>_table.length)
+			grow();
+		int mask = _table.length - 1;
+		for(int slot=(int)(hash ^ hash>>>32) & mask; ; slot=(slot+1) & mask)
+		{
+			if(_table[slot]==hash)
+				return false;
+			if(_table[slot]==0)
+			{
+				_table[slot] = hash;
+				_tableSize++;
+				return true;
+			}
+		}
+	}
+
+	private void grow()
+	{
+		long[] old = _table;
+		_table = new long[old.length*2];
+		int mask = _table.length - 1;
+		for(long hash: old)
+		{
+			if(hash==0)
+				continue;
+			int slot = (int)(hash ^ hash>>>32) & mask;
+			while(_table[slot]!=0)
+				slot = (slot+1) & mask;
+			_table[slot] = hash;
+		}
+	}
+}
@@ -0,0 +1,278 @@
+package com.platonix.ptorzot.solver;
+
+import com.platonix.ptorzot.math.Rational;
+import com.platonix.ptorzot.math.RationalSet;
+
+// Every value that can be made from a game's numbers, found in one pass - for the questions that are about
+// many targets at once (which targets can be drawn, which ones are still reachable), where Solver and
+// StateSearch would be run once per target.
+// Dynamic programming over the subsets of the numbers: each subset, a bit mask, gets the set of values made
+// from all of its numbers. A single number makes itself; a bigger subset makes whatever the last move can make
+// of a value of one part and a value of the rest, over all the ways to split it in two. Masks are visited
+// in increasing order, so both parts of a split are always done already.
+// Like StateSearch, only values from 0 up are kept - |a op b| can always be made from |a| and |b| without
+// going below 0 (see StateSearch), so nothing from 0 up is lost. Subsets of the same numbers (two 7s, either
+// of them) share one set, and their splits are combined once.
+public class SubsetOracle
+{
+	private final int _count;
+	private final long[] _values;  // Sorted, so equal numbers are next to each other
+	private final RationalSet[] _sets;  // Per mask, shared by masks of the same numbers
+	private final RationalSet[] _splits;  // Scratch for getSplits, the pairs of sets a mask splits into
+	private RationalSet _any;
+	private long _combined;
+
+	public SubsetOracle(int[] numbers)
+	{
+		this(toRationals(numbers), numbers.length);
+	}
+
+	// The first count Rational values (from 0 up), like Solver's
+	public SubsetOracle(long[] values, int count)
+	{
+		if(count<1 || count>Move.MAX_INDEX || count>values.length)
+			throw new IllegalArgumentException("Can only solve 1 to " + Move.MAX_INDEX + " numbers");
+
+		_count = count;
+		_values = new long[count];
+		for(int i=0; i<count; i++) // Insertion sort, there are only a few numbers
+		{
+			long value = values[i];
+			if(!Rational.isValid(value) || Rational.signum(value)<0)
+				throw new IllegalArgumentException("Values must be from 0 up");
+			int j = i;
+			for(; j>0 && _values[j-1]>value; j--)
+				_values[j] = _values[j-1];
+			_values[j] = value;
+		}
+		_sets = new RationalSet[1 << count];
+		_splits = new RationalSet[1 << count];
+		solve();
+	}
+
+	private static long[] toRationals(int[] numbers)
+	{
+		long[] values = new long[numbers.length];
+		for(int i=0; i<numbers.length; i++)
+			values[i] = Rational.of(numbers[i]);
+		return values;
+	}
+
+	// The values made from all the numbers - the game's possible targets. Built on first use, the questions
+	// below don't need it. Don't modify it.
+	public synchronized RationalSet getReachable()
+	{
+		int full = _sets.length - 1;
+		if(_sets[full]==null)
+			_sets[full] = build(full);
+		return _sets[full];
+	}
+
+	// The values made from some of the numbers, any of them
+	public synchronized RationalSet getReachableByAny()
+	{
+		if(_any==null)
+		{
+			_any = new RationalSet(getReachable().size());
+			for(int mask=1; mask<_sets.length; mask++)
+				if(canonical(mask)==mask)
+					_any.addAll(_sets[mask]);
+		}
+		return _any;
+	}
+
+	// Whether target can be made from all the numbers - false below 0, the values kept don't say. Without building
+	// the full set: for each split and each value x of its smaller part, the values of the other part the last
+	// move would need are looked up - y = x+t or x-t for |x-y|=t, t-x for x+y=t, t/x for x*y=t, x/t and x*t for
+	// the divisions.
+	public synchronized boolean isSolvable(int target)
+	{
+		if(target<0)
+			return false;
+		long t = Rational.of(target);
+		int full = _sets.length - 1;
+		if(_sets[full]!=null)
+			return _sets[full].contains(t);
+
+		int count = getSplits(full);
+		for(int i=0; i<count; i+=2)
+		{
+			RationalSet a = _splits[i], b = _splits[i+1];
+			if(a.size()>b.size())
+			{
+				RationalSet swap = a;
+				a = b;
+				b = swap;
+			}
+			for(int j=0; j<a.size(); j++)
+			{
+				long x = a.get(j);
+				if(Rational.isZero(x))
+				{
+					if(Rational.isZero(t) || b.contains(t))  // 0*y, or 0+y
+						return true;
+					continue;
+				}
+				if(containsValid(b, Rational.add(x, t)) || containsValid(b, Rational.subtract(x, t)) ||
+						containsValid(b, Rational.subtract(t, x)) || containsValid(b, Rational.divide(t, x)) ||
+						containsValid(b, Rational.divide(x, t)) || containsValid(b, Rational.multiply(x, t)))
+					return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean containsValid(RationalSet set, long value)
+	{
+		return Rational.isValid(value) && Rational.signum(value)>=0 && set.contains(value);
+	}
+
+	// Marks solvable[target] for each target from 0 to solvable.length-1 made from all the numbers, returns how
+	// many there are. The last moves are tried on every split without keeping their results, which is most of
+	// the cost of getReachable saved.
+	public synchronized int getTargets(boolean[] solvable)
+	{
+		int full = _sets.length - 1;
+		if(_sets[full]!=null)
+		{
+			for(int i=0; i<_sets[full].size(); i++)
+				mark(solvable, _sets[full].get(i));
+		}
+		else
+		{
+			int count = getSplits(full);
+			for(int i=0; i<count; i+=2)
+				combine(_splits[i], _splits[i+1], null, solvable);
+		}
+
+		int found = 0;
+		for(boolean b: solvable)
+			if(b)
+				found++;
+		return found;
+	}
+
+	// The pairs of values the DP combined - its cost, for benchmarks
+	public long getCombined() { return _combined; }
+
+	// The mask of the same numbers as mask, taking the first ones of each run of equal numbers
+	private int canonical(int mask)
+	{
+		int canonical = 0;
+		for(int start=0; start<_count; )
+		{
+			int end = start + 1;
+			while(end<_count && _values[end]==_values[start])
+				end++;
+			int taken = Integer.bitCount(mask & ((1 << end) - (1 << start)));
+			canonical |= (1 << (start + taken)) - (1 << start);
+			start = end;
+		}
+		return canonical;
+	}
+
+	private void solve()
+	{
+		for(int i=0; i<_count; i++)
+		{
+			RationalSet single = new RationalSet(1);
+			single.add(_values[i]);
+			_sets[1 << i] = single;
+		}
+		for(int mask=1; mask<_sets.length-1; mask++)
+		{
+			if(Integer.bitCount(mask)<2)
+				continue;
+			int canonical = canonical(mask);
+			_sets[mask] = canonical==mask ? build(mask) : _sets[canonical];
+		}
+	}
+
+	private RationalSet build(int mask)
+	{
+		RationalSet set = new RationalSet();
+		int count = getSplits(mask);
+		for(int i=0; i<count; i+=2)
+			combine(_splits[i], _splits[i+1], set, null);
+		return set;
+	}
+
+	// Puts the distinct pairs of sets mask can be split into in _splits, returns the number of sets put there.
+	// Each split once: the part with the lowest bit, and the rest. With repeated numbers many splits are the same
+	// pair of sets.
+	private int getSplits(int mask)
+	{
+		int count = 0;
+		int lowest = mask & -mask, rest = mask ^ lowest;
+		// Submasks of rest, each with lowest added, the whole mask excluded
+		for(int part=rest; ; part=(part-1) & rest)
+		{
+			int first = part | lowest, second = mask ^ first;
+			if(second!=0 && !isSplit(count, _sets[first], _sets[second]))
+			{
+				_splits[count++] = _sets[first];
+				_splits[count++] = _sets[second];
+			}
+			if(part==0)
+				return count;
+		}
+	}
+
+	private boolean isSplit(int count, RationalSet a, RationalSet b)
+	{
+		for(int i=0; i<count; i+=2)
+			if((_splits[i]==a && _splits[i+1]==b) || (_splits[i]==b && _splits[i+1]==a))
+				return true;
+		return false;
+	}
+
+	// Every value from 0 up that one move makes of a value of a and a value of b - added to into, or marked in
+	// solvable when it's a whole number in range
+	private void combine(RationalSet a, RationalSet b, RationalSet into, boolean[] solvable)
+	{
+		_combined += (long)a.size() * b.size();
+		for(int i=0; i<a.size(); i++)
+		{
+			long x = a.get(i);
+			boolean xZero = Rational.isZero(x);
+			for(int j=0; j<b.size(); j++)
+			{
+				long y = b.get(j);
+				long sum = Rational.add(x, y);
+				long difference = Rational.compare(x, y)>=0 ? Rational.subtract(x, y) : Rational.subtract(y, x);
+				long product = Rational.multiply(x, y);
+				long quotient = Rational.isZero(y) ? Rational.INVALID : Rational.divide(x, y);
+				long inverse = xZero ? Rational.INVALID : Rational.divide(y, x);
+				if(into!=null)
+				{
+					addValid(into, sum);
+					addValid(into, difference);
+					addValid(into, product);
+					addValid(into, quotient);
+					addValid(into, inverse);
+				}
+				else
+				{
+					mark(solvable, sum);
+					mark(solvable, difference);
+					mark(solvable, product);
+					mark(solvable, quotient);
+					mark(solvable, inverse);
+				}
+			}
+		}
+	}
+
+	// Results too big for a Rational are dropped, as Solver drops them
+	private static void addValid(RationalSet set, long value)
+	{
+		if(Rational.isValid(value))
+			set.add(value);
+	}
+
+	private static void mark(boolean[] solvable, long value)
+	{
+		if(Rational.isInteger(value) && Rational.numerator(value)<solvable.length)
+			solvable[Rational.numerator(value)] = true;
+	}
+}
@@ -0,0 +1,117 @@
+package com.platonix.ptorzot.solver;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+// The puzzles with exactly one distinct solution (CanonicalForm), out of every multiset of numbers and every
+// target in a range. Finding them takes a full search of each, so the list is built offline by
+// UniqueSolutionsBuilder and read straight from a memory mapped file like ReachabilityIndex - picking a puzzle
+// is a couple of buffer reads.
+//
+// File format (big endian):
+//   header  - magic, version, size, maxNumber, minTarget, maxTarget, puzzle count, CRC32 of the records
+//   records - one int per puzzle, rank*(maxTarget+1) + target (Multisets rank), in increasing order
+public class UniqueSolutions
+{
+	public static final int MAGIC = 0x505A5553;  // "PZUS"
+	public static final int VERSION = 1;
+	public static final int HEADER_SIZE = 32;
+	public static final int RECORD_SIZE = 4;
+
+	private final ByteBuffer _buffer;
+	private final Multisets _multisets;
+	private final int _minTarget, _maxTarget, _count, _checksum;
+
+	public UniqueSolutions(ByteBuffer buffer) throws IOException
+	{
+		_buffer = buffer;
+		if(buffer.capacity()<HEADER_SIZE || buffer.getInt(0)!=MAGIC)
+			throw new IOException("Not a unique solutions list");
+		if(buffer.getInt(4)!=VERSION)
+			throw new IOException("Unsupported unique solutions list version " + buffer.getInt(4));
+
+		_multisets = new Multisets(buffer.getInt(8), buffer.getInt(12));
+		_minTarget = buffer.getInt(16);
+		_maxTarget = buffer.getInt(20);
+		_count = buffer.getInt(24);
+		_checksum = buffer.getInt(28);
+		if(buffer.capacity()!=HEADER_SIZE + (long)_count * RECORD_SIZE)
+			throw new IOException("Unique solutions list is truncated or corrupt");
+	}
+
+	// Maps the file, nothing is read until it is used
+	public static UniqueSolutions open(File file) throws IOException
+	{
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try
+		{
+			return map(raf.getChannel(), 0, raf.length());
+		}
+		finally
+		{
+			raf.close();  // The mapping stays valid after the channel is closed
+		}
+	}
+
+	public static UniqueSolutions map(FileChannel channel, long offset, long length) throws IOException
+	{
+		return new UniqueSolutions(channel.map(FileChannel.MapMode.READ_ONLY, offset, length));
+	}
+
+	static int encode(int rank, int target, int maxTarget)
+	{
+		return rank * (maxTarget+1) + target;
+	}
+
+	public Multisets getMultisets() { return _multisets; }
+	public int getMinTarget() { return _minTarget; }
+	public int getMaxTarget() { return _maxTarget; }
+	public int getCount() { return _count; }
+	public int getChecksum() { return _checksum; }
+
+	private int getRecord(int index)
+	{
+		if(index<0 || index>=_count)
+			throw new IllegalArgumentException("Index must be between 0 and " + (_count-1));
+		return _buffer.getInt(HEADER_SIZE + index * RECORD_SIZE);
+	}
+
+	public int getTarget(int index)
+	{
+		return getRecord(index) % (_maxTarget+1);
+	}
+
+	// Fills numbers with the puzzle's numbers, sorted
+	public void getNumbers(int index, int[] numbers)
+	{
+		_multisets.unrank(getRecord(index) / (_maxTarget+1), numbers);
+	}
+
+	// Whether the puzzle is on the list - false for puzzles the list doesn't cover too
+	public boolean contains(int[] numbers, int target)
+	{
+		if(numbers.length!=_multisets.getSize() || target<_minTarget || target>_maxTarget)
+			return false;
+		for(int n: numbers)
+			if(n<1 || n>_multisets.getMaxNumber())
+				return false;
+
+		int record = encode(_multisets.rank(numbers), target, _maxTarget);
+		int low = 0, high = _count - 1;
+		while(low<=high)
+		{
+			int middle = (low + high) >>> 1;
+			int found = getRecord(middle);
+			if(found<record)
+				low = middle + 1;
+			else if(found>record)
+				high = middle - 1;
+			else
+				return true;
+		}
+		return false;
+	}
+}
@@ -0,0 +1,97 @@
+package com.platonix.ptorzot.solver;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+// Builds the UniqueSolutions file offline: every multiset is solved once for all its targets, and each
+// reachable target in range is searched again counting distinct solutions - a puzzle is kept when there's
+// exactly one. Multisets can be searched independently of each other, in any order - Tools/BuildUniqueList
+// searches them in parallel.
+public class UniqueSolutionsBuilder
+{
+	private final Multisets _multisets;
+	private final int _minTarget, _maxTarget;
+
+	public UniqueSolutionsBuilder(Multisets multisets, int minTarget, int maxTarget)
+	{
+		if(minTarget<0 || minTarget>maxTarget)
+			throw new IllegalArgumentException("Bad target range " + minTarget + ".." + maxTarget);
+		_multisets = multisets;
+		_minTarget = minTarget;
+		_maxTarget = maxTarget;
+	}
+
+	public Multisets getMultisets() { return _multisets; }
+	public int getMinTarget() { return _minTarget; }
+	public int getMaxTarget() { return _maxTarget; }
+
+	// The targets in range the multiset of the given rank has exactly one distinct solution for, in increasing order
+	public int[] findTargets(int rank)
+	{
+		int[] numbers = new int[_multisets.getSize()];
+		_multisets.unrank(rank, numbers);
+		Solver solver = new Solver(numbers);
+		int[] counts = new int[_maxTarget+1];
+		solver.countTargets(counts);
+
+		int[] targets = new int[_maxTarget - _minTarget + 1];
+		int found = 0;
+		for(int target=_minTarget; target<=_maxTarget; target++)
+			if(counts[target]>0 && solver.countDistinctSolutions(target)==1)
+				targets[found++] = target;
+
+		int[] result = new int[found];
+		System.arraycopy(targets, 0, result, 0, found);
+		return result;
+	}
+
+	// The records of all the multisets' targets, targets[rank] as found by findTargets
+	public ByteBuffer createRecords(int[][] targets)
+	{
+		int count = 0;
+		for(int[] rankTargets: targets)
+			count += rankTargets.length;
+		ByteBuffer records = ByteBuffer.allocate(count * UniqueSolutions.RECORD_SIZE);
+		for(int rank=0; rank<targets.length; rank++)
+			for(int target: targets[rank])
+				records.putInt(UniqueSolutions.encode(rank, target, _maxTarget));
+		records.flip();
+		return records;
+	}
+
+	public ByteBuffer createHeader(int count, int checksum)
+	{
+		ByteBuffer header = ByteBuffer.allocate(UniqueSolutions.HEADER_SIZE);
+		header.putInt(UniqueSolutions.MAGIC);
+		header.putInt(UniqueSolutions.VERSION);
+		header.putInt(_multisets.getSize());
+		header.putInt(_multisets.getMaxNumber());
+		header.putInt(_minTarget);
+		header.putInt(_maxTarget);
+		header.putInt(count);
+		header.putInt(checksum);
+		header.flip();
+		return header;
+	}
+
+	// Writes the header and records of targets, as found by findTargets for every rank
+	public void write(int[][] targets, OutputStream out) throws IOException
+	{
+		ByteBuffer records = createRecords(targets);
+		CRC32 crc = new CRC32();
+		crc.update(records.array());
+		out.write(createHeader(records.limit() / UniqueSolutions.RECORD_SIZE, (int)crc.getValue()).array());
+		out.write(records.array());
+	}
+
+	// Searches all the multisets, one after the other, and writes the list
+	public void write(OutputStream out) throws IOException
+	{
+		int[][] targets = new int[_multisets.getCount()][];
+		for(int rank=0; rank<_multisets.getCount(); rank++)
+			targets[rank] = findTargets(rank);
+		write(targets, out);
+	}
+}
@@ -0,0 +1,39 @@
+package com.platonix.ptorzot.benchmarks;
+
+import java.util.Random;
+
+import com.platonix.ptorzot.core.Expression;
+import com.platonix.ptorzot.core.GameState;
+import com.platonix.ptorzot.level.GameLevel;
+import com.platonix.ptorzot.level.PuzzleSpec;
+
+// Opens up GameLevel's protected game creation methods
+class BenchmarkLevel extends GameLevel
+{
+	BenchmarkLevel()
+	{
+		super(-1);
+	}
+
+	int solvableGame(PuzzleSpec spec, int[] numbers, int minTarget, int maxTarget)
+	{
+		return createSolvableGame(spec, numbers, minTarget, maxTarget);
+	}
+
+	int solvableTarget(Random random, int[] numbers, int minTarget, int maxTarget)
+	{
+		return findSolvableTarget(random, numbers, minTarget, maxTarget);
+	}
+
+	@Override
+	public GameState createNewGame()
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void getNextLabels(Expression[] labels, GameState.OnePlay play)
+	{
+		throw new UnsupportedOperationException();
+	}
+}
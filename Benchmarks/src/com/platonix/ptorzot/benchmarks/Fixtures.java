@@ -0,0 +1,78 @@
+package com.platonix.ptorzot.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.platonix.ptorzot.core.GameState;
+import com.platonix.ptorzot.level.GameLevel;
+import com.platonix.ptorzot.solver.LevelTable;
+import com.platonix.ptorzot.solver.ReachabilityIndex;
+import com.platonix.ptorzot.solver.UniqueSolutions;
+
+// What the benchmarks share - the index, unique solutions list and level table, the level target ranges and a fixed game
+final class Fixtures
+{
+	// Relative to the Benchmarks directory, can be overridden with -Dptorzot.index=...
+	private static final String INDEX_PATH = "../Android/assets/reachability.idx";
+	// Likewise, -Dptorzot.unique=...
+	private static final String UNIQUE_PATH = "../Android/assets/unique.lst";
+	// And -Dptorzot.levels=...
+	private static final String LEVELS_PATH = "../Android/assets/levels.tbl";
+
+	// The target ranges the levels pass to createScoredGame when there's no level table
+	static final int[][] TARGET_RANGES = { { 11, 40 }, { 19, 60 }, { 60, 120 }, { 60, 120 } };
+
+	// A game and the four plays finishing it: 3*7=21, 9-5=4, 2/4=1/2, 21+1/2=43/2
+	static final int[] NUMBERS = { 3, 7, 2, 9, 5 };
+	static final int TARGET = 43;
+	static final int[][] PLAYS = { { 0, 1, '*' }, { 2, 3, '-' }, { 1, 2, '/' }, { 0, 1, '+' } };
+
+	private Fixtures()
+	{
+	}
+
+	static ReachabilityIndex loadIndex() throws IOException
+	{
+		return ReachabilityIndex.open(new File(System.getProperty("ptorzot.index", INDEX_PATH)));
+	}
+
+	static UniqueSolutions loadUniqueSolutions() throws IOException
+	{
+		return UniqueSolutions.open(new File(System.getProperty("ptorzot.unique", UNIQUE_PATH)));
+	}
+
+	static LevelTable loadLevelTable() throws IOException
+	{
+		return LevelTable.open(new File(System.getProperty("ptorzot.levels", LEVELS_PATH)));
+	}
+
+	static GameLevel getLevel(String name)
+	{
+		if(name.equals("Easy"))
+			return GameLevel.Easy;
+		if(name.equals("Medium"))
+			return GameLevel.Medium;
+		if(name.equals("Hard"))
+			return GameLevel.Hard;
+		if(name.equals("Unique"))
+			return GameLevel.Unique;
+		throw new IllegalArgumentException("Unknown level " + name);
+	}
+
+	static int[] getTargetRange(String level)
+	{
+		return TARGET_RANGES[getLevel(level).getValue()];
+	}
+
+	static GameState.OnePlay[] playGame(GameState game)
+	{
+		GameState.OnePlay[] plays = new GameState.OnePlay[PLAYS.length];
+		GameState.OnePlay previous = null;
+		for(int i=0; i<PLAYS.length; i++)
+		{
+			previous = new GameState.OnePlay(PLAYS[i][0], PLAYS[i][1], (char)PLAYS[i][2], game, previous);
+			plays[i] = previous;
+		}
+		return plays;
+	}
+}
@@ -0,0 +1,69 @@
+package com.platonix.ptorzot.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.platonix.ptorzot.core.Formattings;
+import com.platonix.ptorzot.math.Rational;
+
+// Printing the numbers on the buttons and applying the player's ops.
+// The values are fields so the JIT can't fold them.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormattingsBenchmark
+{
+	private long _integer = Rational.of(120);
+	private long _fraction = Rational.of(43, 6);
+	private long _a = Rational.of(7, 2), _b = Rational.of(9);
+	private final StringBuilder _sb = new StringBuilder(64);
+
+	@Benchmark
+	public String printInteger()
+	{
+		return Formattings.getPrintedNumber(_integer);
+	}
+
+	@Benchmark
+	public String printFraction()
+	{
+		return Formattings.getPrintedNumber(_fraction);
+	}
+
+	// A line of CheckResultActivity's trace, into the same builder every time
+	@Benchmark
+	public int appendPlay()
+	{
+		_sb.setLength(0);
+		Formattings.appendPrintedNumber(_sb, _a);
+		_sb.append(' ').append(Formattings.getOpString('/')).append(' ');
+		Formattings.appendPrintedNumber(_sb, _b);
+		_sb.append(" = ");
+		Formattings.appendPrintedNumber(_sb, _fraction);
+		return _sb.length();
+	}
+
+	@Benchmark
+	public long applyAdd()
+	{
+		return Formattings.applyOperation(_a, _b, '+');
+	}
+
+	@Benchmark
+	public long applyDivide()
+	{
+		return Formattings.applyOperation(_a, _b, '/');
+	}
+}
@@ -0,0 +1,70 @@
+package com.platonix.ptorzot.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.platonix.ptorzot.core.GameJournal;
+import com.platonix.ptorzot.core.GameState;
+import com.platonix.ptorzot.level.GameLevel;
+
+// The autosave journal on a real mapped file: journaling a play and its undo (as GameActivity does after every
+// input, with a compaction every few dozen records), and restoring the game on a cold start
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameJournalBenchmark
+{
+	private File _file;
+	private GameJournal _journal;
+	private GameState _game;
+
+	@Setup
+	public void setUp() throws IOException
+	{
+		_file = File.createTempFile("ptorzot", ".journal");
+		_journal = GameJournal.open(_file);
+		_game = new GameState(GameLevel.Medium, Fixtures.NUMBERS, Fixtures.TARGET);
+		for(int i=0; i<Fixtures.PLAYS.length-1; i++)
+			_game.play(Fixtures.PLAYS[i][0], Fixtures.PLAYS[i][1], (char)Fixtures.PLAYS[i][2]);
+		_journal.start(_game);
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		_file.delete();
+	}
+
+	@Benchmark
+	public GameState playAndUndo()
+	{
+		int[] last = Fixtures.PLAYS[Fixtures.PLAYS.length-1];
+		_game.play(last[0], last[1], (char)last[2]);
+		_journal.update(_game);
+		_game.undo();
+		_journal.update(_game);
+		return _game;
+	}
+
+	@Benchmark
+	public GameState openAndRestore() throws IOException
+	{
+		return GameJournal.open(_file).restore();
+	}
+}
@@ -0,0 +1,69 @@
+package com.platonix.ptorzot.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.platonix.ptorzot.core.GameState;
+import com.platonix.ptorzot.level.GameLevel;
+import com.platonix.ptorzot.level.PuzzleSpec;
+import com.platonix.ptorzot.solver.LevelTable;
+import com.platonix.ptorzot.solver.PuzzleSequencer;
+
+// Creating games, with and without the precomputed assets - the reachability index, the level table (dealt
+// without repeats, in memory) and the unique solutions list for Unique.
+// createNewGame is what a player waits for when starting a game - up to 10 scored puzzles per game.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameLevelBenchmark
+{
+	@Param({ "Easy", "Medium", "Hard", "Unique" })
+	public String level;
+
+	@Param({ "true", "false" })
+	public boolean useIndex;
+
+	private final BenchmarkLevel _level = new BenchmarkLevel();
+	private final int[] _numbers = new int[5];
+	private int _minTarget, _maxTarget;
+
+	@Setup
+	public void setup() throws IOException
+	{
+		GameLevel.setReachabilityIndex(useIndex ? Fixtures.loadIndex() : null);
+		GameLevel.setUniqueSolutions(useIndex ? Fixtures.loadUniqueSolutions() : null);
+		LevelTable table = useIndex ? Fixtures.loadLevelTable() : null;
+		GameLevel.setLevelTable(table);
+		GameLevel.setPuzzleSequencer(useIndex ? new PuzzleSequencer(table, null, 1) : null);
+		int[] range = Fixtures.getTargetRange(level);
+		_minTarget = range[0];
+		_maxTarget = range[1];
+	}
+
+	@Benchmark
+	public int createSolvableGame()
+	{
+		return _level.solvableGame(PuzzleSpec.STANDARD, _numbers, _minTarget, _maxTarget);
+	}
+
+	@Benchmark
+	public GameState createNewGame()
+	{
+		return Fixtures.getLevel(level).createNewGame();
+	}
+}
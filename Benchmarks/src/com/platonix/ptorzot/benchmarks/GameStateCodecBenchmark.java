@@ -0,0 +1,52 @@
+package com.platonix.ptorzot.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.platonix.ptorzot.core.GameState;
+import com.platonix.ptorzot.core.GameStateCodec;
+import com.platonix.ptorzot.level.GameLevel;
+
+// Packing the fixed game, all four plays made, as parcels and saved instance state do - and unpacking it,
+// which replays the plays
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameStateCodecBenchmark
+{
+	private final GameState _game = new GameState(GameLevel.Medium, Fixtures.NUMBERS, Fixtures.TARGET);
+	private byte[] _encoded;
+
+	@Setup
+	public void setUp()
+	{
+		for(int[] play: Fixtures.PLAYS)
+			_game.play(play[0], play[1], (char)play[2]);
+		_encoded = GameStateCodec.encode(_game);
+	}
+
+	@Benchmark
+	public byte[] encode()
+	{
+		return GameStateCodec.encode(_game);
+	}
+
+	@Benchmark
+	public GameState decode()
+	{
+		return GameStateCodec.decode(_encoded);
+	}
+}
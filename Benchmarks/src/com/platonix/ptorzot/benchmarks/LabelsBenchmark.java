@@ -0,0 +1,58 @@
+package com.platonix.ptorzot.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.platonix.ptorzot.core.Expression;
+import com.platonix.ptorzot.core.GameState;
+import com.platonix.ptorzot.level.GameLevel;
+
+// Building the button labels over a whole game, and the text of each new one, as GameActivity does after every play.
+// Runs without a GameApplication, so the op strings are the plain op characters.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LabelsBenchmark
+{
+	@Param({ "Medium", "Hard" })
+	public String level;
+
+	private GameLevel _level;
+	private GameState.OnePlay[] _plays;
+	private final Expression[] _labels = new Expression[5];
+
+	@Setup
+	public void setup()
+	{
+		_level = Fixtures.getLevel(level);
+		_plays = Fixtures.playGame(new GameState(_level, Fixtures.NUMBERS, Fixtures.TARGET));
+	}
+
+	@Benchmark
+	public String wholeGame()
+	{
+		for(int i=0; i<5; i++)
+			_labels[i] = Expression.of(Fixtures.NUMBERS[i]);
+		String text = null;
+		for(GameState.OnePlay play: _plays)
+		{
+			_level.getNextLabels(_labels, play);
+			text = _labels[play.getFirst()].toString();
+		}
+		return text;
+	}
+}
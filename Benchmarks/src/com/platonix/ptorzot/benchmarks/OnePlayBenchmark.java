@@ -0,0 +1,92 @@
+package com.platonix.ptorzot.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.platonix.ptorzot.core.GameState;
+
+// Every OnePlay copies the numbers once - its numbers before are its previous play's - so a game allocates 4 arrays.
+// Moving around a game's tree of plays (undo, redo, jumping to another branch, making a play made before) allocates nothing.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OnePlayBenchmark
+{
+	private final GameState _game = new GameState(null, Fixtures.NUMBERS, Fixtures.TARGET);
+	private final GameState.OnePlay _first = new GameState.OnePlay(0, 1, '*', _game, null);
+	private final GameState _tree = new GameState(null, Fixtures.NUMBERS, Fixtures.TARGET);
+	private GameState.OnePlay _branch, _otherBranch;
+
+	@Setup
+	public void setUp()
+	{
+		// Two whole games, sharing the first play
+		for(int[] play: Fixtures.PLAYS)
+			_tree.play(play[0], play[1], (char)play[2]);
+		_branch = _tree.getLastPlay();
+		_tree.jumpTo(_tree.getFirstPlay());
+		_tree.play(0, 1, '+');
+		_tree.play(0, 2, '-');
+		_tree.play(0, 1, '*');
+		_otherBranch = _tree.getLastPlay();
+	}
+
+	@Benchmark
+	public GameState.OnePlay firstPlay()
+	{
+		return new GameState.OnePlay(0, 1, '*', _game, null);
+	}
+
+	@Benchmark
+	public GameState.OnePlay nextPlay()
+	{
+		return new GameState.OnePlay(2, 3, '-', _game, _first);
+	}
+
+	@Benchmark
+	public GameState.OnePlay[] wholeGame()
+	{
+		return Fixtures.playGame(_game);
+	}
+
+	// Takes back a whole game and plays it again
+	@Benchmark
+	public GameState.OnePlay undoRedo()
+	{
+		while(_tree.undo())
+			;
+		while(_tree.redo()!=null)
+			;
+		return _tree.getLastPlay();
+	}
+
+	// Takes back the last play, and makes it again
+	@Benchmark
+	public GameState.OnePlay undoPlayAgain()
+	{
+		GameState.OnePlay last = _tree.getLastPlay();
+		_tree.undo();
+		return _tree.play(last.getFirst(), last.getSecond(), last.getOp());
+	}
+
+	@Benchmark
+	public GameState.OnePlay jumpBetweenBranches()
+	{
+		_tree.jumpTo(_branch);
+		_tree.jumpTo(_otherBranch);
+		return _tree.getLastPlay();
+	}
+}
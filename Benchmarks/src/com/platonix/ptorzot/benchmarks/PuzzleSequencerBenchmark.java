@@ -0,0 +1,83 @@
+package com.platonix.ptorzot.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.platonix.ptorzot.solver.LevelTable;
+import com.platonix.ptorzot.solver.PuzzleSequencer;
+import com.platonix.ptorzot.solver.PuzzleSet;
+
+// Dealing Medium puzzles of the level table without repeats - in memory, and played and saved to a real file
+// after every deal, as the pool's thread does after each take - and checking the played puzzles of a player with
+// a few thousand games
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PuzzleSequencerBenchmark
+{
+	private static final int PLAYED = 3000;
+
+	private final Random _random = new Random(1);
+	private final int[] _numbers = new int[5];
+	private File _file;
+	private PuzzleSequencer _sequencer, _saving;
+	private PuzzleSet _played;
+	private int _next;
+
+	@Setup
+	public void setUp() throws IOException
+	{
+		LevelTable table = Fixtures.loadLevelTable();
+		_sequencer = new PuzzleSequencer(table, null, 1);
+		_file = File.createTempFile("ptorzot", ".seq");
+		_saving = new PuzzleSequencer(table, _file, 1);
+		_played = new PuzzleSet();
+		for(int i=0; i<PLAYED; i++)
+			_played.add(table.getId(_random.nextInt(table.getCount())));
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		_file.delete();
+	}
+
+	@Benchmark
+	public int next()
+	{
+		return _sequencer.next(1, _random, _numbers);
+	}
+
+	@Benchmark
+	public int nextAndSave() throws IOException
+	{
+		int target = _saving.next(1, _random, _numbers);
+		_saving.setPlayed(_numbers, target);
+		_saving.save();
+		return target;
+	}
+
+	@Benchmark
+	public boolean contains()
+	{
+		_next = (_next + 7919) & 0x1FFFF;
+		return _played.contains(_next);
+	}
+}
@@ -0,0 +1,86 @@
+package com.platonix.ptorzot.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.platonix.ptorzot.core.GameState;
+import com.platonix.ptorzot.level.GameLevel;
+import com.platonix.ptorzot.level.PuzzleSpec;
+import com.platonix.ptorzot.solver.Move;
+import com.platonix.ptorzot.solver.StateSearch;
+
+// Games bigger than the standard 5 numbers of 1..9: making a Medium game of each spec (no index, bigger
+// puzzles are drawn with StateSearch and not scored), and StateSearch finding a solution of a random
+// puzzle of the spec with a target of 60..120 - giving up after as many states as GameLevel does when drawing.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PuzzleSpecBenchmark
+{
+	// size:min:max
+	@Param({ "4:1:9", "6:1:100", "8:1:13", "8:1:100" })
+	public String spec;
+
+	private static final int PUZZLES = 256;
+
+	private final StateSearch _search = new StateSearch();
+	private int[][] _numbers;
+	private int[] _targets;
+	private int _next;
+
+	@Setup
+	public void setup()
+	{
+		String[] fields = spec.split(":");
+		PuzzleSpec puzzleSpec = new PuzzleSpec(Integer.parseInt(fields[0]), Integer.parseInt(fields[1]),
+				Integer.parseInt(fields[2]));
+		GameLevel.setReachabilityIndex(null);
+		_search.setMaxStates(20000);
+		GameLevel.setPuzzleSpec(puzzleSpec);
+
+		Random random = new Random(1);
+		_numbers = new int[PUZZLES][puzzleSpec.getSize()];
+		_targets = new int[PUZZLES];
+		for(int i=0; i<PUZZLES; i++)
+		{
+			for(int j=0; j<puzzleSpec.getSize(); j++)
+				_numbers[i][j] = puzzleSpec.getMinNumber() + random.nextInt(puzzleSpec.getMaxNumber() - puzzleSpec.getMinNumber() + 1);
+			_targets[i] = 60 + random.nextInt(61);
+		}
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		GameLevel.setPuzzleSpec(PuzzleSpec.STANDARD);
+	}
+
+	@Benchmark
+	public GameState createNewGame()
+	{
+		return GameLevel.Medium.createNewGame();
+	}
+
+	@Benchmark
+	public Move[] findOne()
+	{
+		int i = _next++ & (PUZZLES-1);
+		return _search.findOne(_numbers[i], _targets[i]);
+	}
+}
@@ -0,0 +1,44 @@
+package com.platonix.ptorzot.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.platonix.ptorzot.core.GameSession;
+import com.platonix.ptorzot.core.RecordedSession;
+import com.platonix.ptorzot.core.SessionReplay;
+
+// Replaying recorded sessions through GameSession - every input, label and play of a game, without the UI
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReplayBenchmark
+{
+	// The fixed game solved straight away, and solved after a wrong result taken all the way back
+	private final RecordedSession _straight = RecordedSession.parse("1 3,7,2,9,5 43 1-00*21+20+1");
+	private final RecordedSession _winding = RecordedSession.parse("2 3,7,2,9,5 43 0*12-31/20+1<<<<<<<<<<<*1-00*21+20+1");
+	private final SessionReplay _replay = new SessionReplay();
+
+	@Benchmark
+	public GameSession straight()
+	{
+		return _replay.replay(_straight);
+	}
+
+	@Benchmark
+	public GameSession winding()
+	{
+		return _replay.replay(_winding);
+	}
+}
@@ -0,0 +1,33 @@
+package com.platonix.ptorzot.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Runs the benchmarks with the GC profiler (allocation rate per op), and writes the results as JSON
+// to the file given with -rff, so they can be compared with the baselines.
+// Takes the usual JMH command line, e.g. RunBenchmarks Solver -rff solver.json
+public class RunBenchmarks
+{
+	public static void main(String[] args) throws Exception
+	{
+		CommandLineOptions options = new CommandLineOptions(args);
+		OptionsBuilder builder = new OptionsBuilder();
+		builder.parent(options);
+		builder.addProfiler(GCProfiler.class);
+		if(!options.getResultFormat().hasValue())
+			builder.resultFormat(ResultFormatType.JSON);
+		try
+		{
+			new Runner(builder.build()).run();
+		}
+		catch(RunnerException e)
+		{
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+	}
+}
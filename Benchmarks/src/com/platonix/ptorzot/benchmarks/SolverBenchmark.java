@@ -0,0 +1,160 @@
+package com.platonix.ptorzot.benchmarks;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.platonix.ptorzot.math.Rational;
+import com.platonix.ptorzot.solver.DifficultyScorer;
+import com.platonix.ptorzot.solver.PuzzleGenerator;
+import com.platonix.ptorzot.solver.ReachabilityIndex;
+import com.platonix.ptorzot.solver.Solver;
+import com.platonix.ptorzot.solver.StateCache;
+import com.platonix.ptorzot.solver.SubsetOracle;
+
+// The solver paths, each over the same fixed sample of random puzzles (targets 0..120, some unsolvable)
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolverBenchmark
+{
+	private static final int SAMPLES = 256;  // A power of 2
+	private static final int MAX_TARGET = 120;
+
+	private final int[][] _numbers = new int[SAMPLES][5];
+	private final int[] _targets = new int[SAMPLES];
+	private final long[][] _values = new long[SAMPLES][5];
+	private int _next = 0;
+
+	private ReachabilityIndex _index;
+	private PuzzleGenerator _generator;
+	private final Random _random = new Random(1);
+	private final int[] _generated = new int[5];
+	private final int[] _counts = new int[MAX_TARGET+1];
+	private final boolean[] _solvable = new boolean[MAX_TARGET+1];
+	private final StateCache _cache = new StateCache(128 << 20);  // Holds all the samples' states, about 64MB
+	private final DifficultyScorer _scorer = new DifficultyScorer(5, MAX_TARGET);
+
+	@Setup
+	public void setup() throws IOException
+	{
+		Random random = new Random(42);
+		for(int i=0; i<SAMPLES; i++)
+		{
+			for(int j=0; j<5; j++)
+			{
+				_numbers[i][j] = random.nextInt(9) + 1;
+				_values[i][j] = Rational.of(_numbers[i][j]);
+			}
+			_targets[i] = random.nextInt(MAX_TARGET+1);
+		}
+		_index = Fixtures.loadIndex();
+		_generator = new PuzzleGenerator(_index, 19, 60);
+
+		// Fill the cache, stateCacheHit measures lookups only
+		for(int i=0; i<SAMPLES; i++)
+			_cache.getReachable(_values[i], 5);
+	}
+
+	private int next()
+	{
+		return _next = (_next + 1) & (SAMPLES - 1);
+	}
+
+	@Benchmark
+	public boolean isSolvable()
+	{
+		int i = next();
+		return new Solver(_numbers[i]).isSolvable(_targets[i]);
+	}
+
+	@Benchmark
+	public int countSolutions()
+	{
+		int i = next();
+		return new Solver(_numbers[i]).countSolutions(_targets[i]);
+	}
+
+	@Benchmark
+	public int countDistinctSolutions()
+	{
+		int i = next();
+		return new Solver(_numbers[i]).countDistinctSolutions(_targets[i]);
+	}
+
+	@Benchmark
+	public int[] countTargets()
+	{
+		Arrays.fill(_counts, 0);
+		new Solver(_numbers[next()]).countTargets(_counts);
+		return _counts;
+	}
+
+	// Every target of a puzzle, the way countTargets and subsetOracleTargets find them in one pass
+	@Benchmark
+	public int solveEachTarget()
+	{
+		Solver solver = new Solver(_numbers[next()]);
+		int solvable = 0;
+		for(int target=0; target<=MAX_TARGET; target++)
+			if(solver.isSolvable(target))
+				solvable++;
+		return solvable;
+	}
+
+	@Benchmark
+	public int subsetOracleTargets()
+	{
+		Arrays.fill(_solvable, false);
+		return new SubsetOracle(_numbers[next()]).getTargets(_solvable);
+	}
+
+	@Benchmark
+	public boolean stateCacheHit()
+	{
+		int i = next();
+		return _cache.canReach(_values[i], 5, Rational.of(_targets[i]));
+	}
+
+	@Benchmark
+	public DifficultyScorer difficultyScore()
+	{
+		_scorer.score(_numbers[next()]);
+		return _scorer;
+	}
+
+	@Benchmark
+	public boolean indexIsSolvable()
+	{
+		int i = next();
+		return _index.isSolvable(_numbers[i], _targets[i]);
+	}
+
+	@Benchmark
+	public int indexSolutionCount()
+	{
+		int i = next();
+		return _index.getSolutionCount(_numbers[i], _targets[i]);
+	}
+
+	@Benchmark
+	public int generatePuzzle()
+	{
+		return _generator.generate(_random, _generated);
+	}
+}
@@ -0,0 +1,144 @@
+package com.platonix.ptorzot.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.platonix.ptorzot.solver.ChainHistogram;
+
+// Picking a target for one draw of random numbers: GameLevel.findSolvableTarget (the solver fallback used
+// without an index) against the original findSolvableTarget it replaced, kept here as a baseline.
+// The original applied random ops left to right until the result landed in range, giving up after MAX_ITERS
+// attempts and returning the smallest result seen (usually out of range). Its counters report the attempts
+// per game and the games that gave up. chainHistogram counts what every chain of every ordering makes at once,
+// the distribution the original was sampling.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TargetBenchmark
+{
+	private static final int MAX_ITERS = 1000;
+	private static final String OPS = "+-*/";
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Counters
+	{
+		public long iterations;
+		public long giveUps;
+
+		@Setup(Level.Iteration)
+		public void reset()
+		{
+			iterations = 0;
+			giveUps = 0;
+		}
+	}
+
+	@Param({ "Easy", "Medium", "Hard" })
+	public String level;
+
+	private final BenchmarkLevel _level = new BenchmarkLevel();
+	private final Random _random = new Random(1);
+	private final int[] _numbers = new int[5];
+	private int _minTarget, _maxTarget;
+	private ChainHistogram _chains;
+
+	@Setup
+	public void setup()
+	{
+		int[] range = Fixtures.getTargetRange(level);
+		_minTarget = range[0];
+		_maxTarget = range[1];
+		_chains = new ChainHistogram(5, _maxTarget);
+	}
+
+	@Benchmark
+	public int findSolvableTarget()
+	{
+		drawNumbers();
+		return _level.solvableTarget(_random, _numbers, _minTarget, _maxTarget);
+	}
+
+	@Benchmark
+	public int legacyFindTarget(Counters counters)
+	{
+		drawNumbers();
+		return legacyFindTarget(counters, _random, _numbers, _minTarget, _maxTarget);
+	}
+
+	@Benchmark
+	public ChainHistogram chainHistogram()
+	{
+		drawNumbers();
+		_chains.clear();
+		_chains.addAllOrderings(_numbers);
+		return _chains;
+	}
+
+	private void drawNumbers()
+	{
+		for(int i=0; i<5; i++)
+			_numbers[i] = _random.nextInt(9) + 1;
+	}
+
+	private static int legacyFindTarget(Counters counters, Random random, int[] numbers, int minTarget, int maxTarget)
+	{
+		int loopCount = 0;
+		int minFound = 99999999;
+		int iTarget = 0;
+
+		do
+		{
+			double target = numbers[0];
+			for(int i=1; i<5; i++)
+				target = apply(target, numbers[i], OPS.charAt(random.nextInt(4)));
+			counters.iterations++;
+			if(target-Math.floor(target) >= 1e-6 || target<0)
+				continue;
+
+			iTarget = (int)target;
+			if(iTarget < minFound)
+				minFound = iTarget;
+			loopCount++;
+		} while((iTarget<minTarget || iTarget>maxTarget) && loopCount<MAX_ITERS);
+
+		if(loopCount==MAX_ITERS)
+		{
+			counters.giveUps++;
+			return minFound;
+		}
+		return iTarget;
+	}
+
+	private static double apply(double a, double b, char op)
+	{
+		switch(op)
+		{
+		case '+':
+			return a + b;
+		case '-':
+			return a - b;
+		case '*':
+			return a * b;
+		default:
+			return a / b;
+		}
+	}
+}
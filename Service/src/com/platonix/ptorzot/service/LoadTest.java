@@ -0,0 +1,210 @@
+package com.platonix.ptorzot.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.platonix.ptorzot.solver.Move;
+import com.platonix.ptorzot.solver.Solver;
+
+// Hammers a PuzzleService with random puzzles (5 numbers 1..9, targets 0..120) from many client threads,
+// over keep-alive connections, and reports the throughput, the latency percentiles and the status codes.
+// Starts a PuzzleService of its own on a free port unless given the URL of a running one.
+//
+// Usage: LoadTest [-clients n] [-seconds n] [-endpoint solve|verify|generate] [-index file] [url]
+public class LoadTest
+{
+	private static final int PUZZLES = 4096;
+	private static final int MAX_TARGET = 120;
+
+	private final String _base;
+	private final String[] _paths;
+	private final AtomicBoolean _running = new AtomicBoolean(true);
+
+	private class Client extends Thread
+	{
+		final Random random;
+		long[] latencies = new long[1 << 16];  // Microseconds
+		int requests;
+		int[] statuses = new int[6];  // By hundreds, 0 for connection errors
+
+		Client(int seed)
+		{
+			random = new Random(seed);
+		}
+
+		@Override
+		public void run()
+		{
+			byte[] buffer = new byte[4096];
+			while(_running.get())
+			{
+				long start = System.nanoTime();
+				int status = 0;
+				try
+				{
+					HttpURLConnection connection = (HttpURLConnection)new URL(_base + _paths[random.nextInt(_paths.length)]).openConnection();
+					status = connection.getResponseCode();
+					InputStream in = status<400 ? connection.getInputStream() : connection.getErrorStream();
+					if(in!=null)
+					{
+						while(in.read(buffer)>=0)
+							;  // Read it all, so the connection is reused
+						in.close();
+					}
+				}
+				catch(IOException e)
+				{
+					status = 0;
+				}
+				if(requests==latencies.length)
+					latencies = Arrays.copyOf(latencies, latencies.length*2);
+				latencies[requests++] = (System.nanoTime() - start) / 1000;
+				statuses[Math.min(status/100, statuses.length-1)]++;
+			}
+		}
+	}
+
+	public LoadTest(String base, String endpoint)
+	{
+		_base = base;
+		_paths = createPaths(endpoint);
+	}
+
+	private static String[] createPaths(String endpoint)
+	{
+		Random random = new Random(0);
+		String[] paths = new String[PUZZLES];
+		for(int i=0; i<PUZZLES; i++)
+		{
+			int[] numbers = new int[5];
+			for(int j=0; j<numbers.length; j++)
+				numbers[j] = random.nextInt(9) + 1;
+			int target = random.nextInt(MAX_TARGET+1);
+			String query = "numbers=" + numbers[0] + "," + numbers[1] + "," + numbers[2] + "," + numbers[3] + "," + numbers[4] +
+					"&target=" + target;
+
+			if(endpoint.equals("solve"))
+				paths[i] = "/solve?" + query;
+			else if(endpoint.equals("generate"))
+				paths[i] = "/generate?level=" + random.nextInt(3);
+			else if(endpoint.equals("verify"))
+			{
+				// A solution where there is one, made up moves where there isn't
+				Move[] moves = new Solver(numbers).findOne(target);
+				StringBuilder played = new StringBuilder();
+				for(int move=0; move<numbers.length-1; move++)
+				{
+					if(move>0)
+						played.append(',');
+					if(moves!=null)
+						played.append(moves[move].getFirst()).append(moves[move].getOp()).append(moves[move].getSecond());
+					else
+						played.append("0+1");
+				}
+				paths[i] = "/verify?" + query + "&moves=" + played;
+			}
+			else
+				throw new IllegalArgumentException("No endpoint " + endpoint);
+		}
+		return paths;
+	}
+
+	public void run(int clients, int seconds) throws InterruptedException
+	{
+		List<Client> threads = new ArrayList<Client>();
+		for(int i=0; i<clients; i++)
+		{
+			Client client = new Client(i);
+			client.setDaemon(true);
+			threads.add(client);
+		}
+		long start = System.nanoTime();
+		for(Client client: threads)
+			client.start();
+		Thread.sleep(seconds * 1000L);
+		_running.set(false);
+		for(Client client: threads)
+			client.join();
+		double elapsed = (System.nanoTime() - start) / 1e9;
+
+		int total = 0;
+		int[] statuses = new int[6];
+		for(Client client: threads)
+		{
+			total += client.requests;
+			for(int i=0; i<statuses.length; i++)
+				statuses[i] += client.statuses[i];
+		}
+		long[] latencies = new long[total];
+		int n = 0;
+		for(Client client: threads)
+		{
+			System.arraycopy(client.latencies, 0, latencies, n, client.requests);
+			n += client.requests;
+		}
+		Arrays.sort(latencies);
+
+		System.out.println(String.format("%d requests in %.1fs: %.0f requests/s", total, elapsed, total / elapsed));
+		System.out.println(String.format("Latency: p50 %.2fms, p99 %.2fms, p99.9 %.2fms, max %.2fms",
+				percentile(latencies, 0.5), percentile(latencies, 0.99), percentile(latencies, 0.999), percentile(latencies, 1)));
+		System.out.println("Status: 2xx " + statuses[2] + ", 4xx " + statuses[4] + ", 5xx " + statuses[5] + ", failed " + statuses[0]);
+	}
+
+	private static double percentile(long[] sorted, double fraction)
+	{
+		if(sorted.length==0)
+			return 0;
+		return sorted[Math.min((int)(fraction * sorted.length), sorted.length-1)] / 1000.0;
+	}
+
+	public static void main(String[] args) throws Exception
+	{
+		int clients = 64, seconds = 10;
+		String endpoint = "solve", indexFile = "../Android/assets/reachability.idx", url = null;
+		for(int arg=0; arg<args.length; arg++)
+		{
+			if(args[arg].equals("-clients") && arg+1<args.length)
+				clients = Integer.parseInt(args[++arg]);
+			else if(args[arg].equals("-seconds") && arg+1<args.length)
+				seconds = Integer.parseInt(args[++arg]);
+			else if(args[arg].equals("-endpoint") && arg+1<args.length)
+				endpoint = args[++arg];
+			else if(args[arg].equals("-index") && arg+1<args.length)
+				indexFile = args[++arg];
+			else if(url==null && !args[arg].startsWith("-"))
+				url = args[arg];
+			else
+			{
+				System.err.println("Usage: LoadTest [-clients n] [-seconds n] [-endpoint solve|verify|generate] [-index file] [url]");
+				System.exit(1);
+			}
+		}
+
+		PuzzleService service = null;
+		if(url==null)
+		{
+			service = new PuzzleService(0, Runtime.getRuntime().availableProcessors(), PuzzleService.loadIndex(indexFile));
+			service.start();
+			url = "http://localhost:" + service.getPort();
+		}
+		System.setProperty("http.maxConnections", Integer.toString(clients));
+
+		System.out.println("Load testing " + url + " /" + endpoint + " with " + clients + " clients for " + seconds + "s");
+		new LoadTest(url, endpoint).run(clients, seconds);
+		if(service!=null)
+		{
+			SolveBatcher batcher = service.getBatcher();
+			System.out.println("Solver: " + batcher.getSolved() + " solved, " + batcher.getShared() + " shared, in " +
+					batcher.getBatches() + " batches on " + batcher.getSolvers() + " threads, " + batcher.getCacheHits() + " from the cache, " +
+					batcher.getExpired() + " dropped after timing out");
+			service.stop();
+		}
+	}
+}
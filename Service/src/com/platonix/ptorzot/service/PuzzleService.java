@@ -0,0 +1,416 @@
+package com.platonix.ptorzot.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import com.platonix.ptorzot.core.GameState;
+import com.platonix.ptorzot.level.GameLevel;
+import com.platonix.ptorzot.math.Rational;
+import com.platonix.ptorzot.solver.Move;
+import com.platonix.ptorzot.solver.ReachabilityIndex;
+
+// The puzzle service, in place of Solver/Solver.py, on the JDK's HTTP server:
+//   GET /solve?numbers=3,7,2,9,5&target=43       {"result": [[[1, 0], "-"], ...]} or {} - Solver.py's answer
+//   GET /generate?level=1                         {"level": 1, "numbers": [...], "target": 43}
+//   GET /verify?numbers=...&target=...&moves=1-0,0*2,1+2,0+1
+//                                                 {"valid": true, "result": "43", "solved": true}
+// "/" is the same as /solve, like Solver.py. Bad parameters are answered with 409, as Solver.py did,
+// and a busy service with 503.
+//
+// Every request runs on its own thread - a virtual thread on Java 21 and later - but the solving is done by
+// SolveBatcher's few solver threads, and puzzles the index knows to be unsolvable never get there.
+// Generating is limited to as many games at a time as there are solver threads.
+//
+// Usage: PuzzleService [-port n] [-solvers n] [-index file]
+public class PuzzleService
+{
+	private static final int DEFAULT_PORT = 8080;
+	private static final String DEFAULT_INDEX = "../Android/assets/reachability.idx";
+	private static final int MAX_QUEUED_PER_SOLVER = 256;
+	private static final long SOLVE_TIMEOUT = 5000;  // Milliseconds, for solving and for waiting to generate
+	private static final int MAX_MOVES_LENGTH = 64;
+	private static final Logger LOG = Logger.getLogger(PuzzleService.class.getName());
+
+	static
+	{
+		// Responses are written in two parts, headers and body - without this the second waits for the client's delayed ACK
+		if(System.getProperty("sun.net.httpserver.nodelay")==null)
+			System.setProperty("sun.net.httpserver.nodelay", "true");
+	}
+
+	private final HttpServer _server;
+	private final ExecutorService _executor;
+	private final SolveBatcher _batcher;
+	private final Semaphore _generators;
+	private final ReachabilityIndex _index;
+
+	public PuzzleService(int port, int solvers, ReachabilityIndex index) throws IOException
+	{
+		_index = index;
+		GameLevel.setReachabilityIndex(index);
+		_batcher = new SolveBatcher(solvers, solvers * MAX_QUEUED_PER_SOLVER);
+		_generators = new Semaphore(solvers);
+		_executor = createExecutor();
+
+		_server = HttpServer.create(new InetSocketAddress(port), 0);
+		_server.setExecutor(_executor);
+		_server.createContext("/", new Handler()
+		{
+			@Override
+			String handle(Map<String, String> params) throws Exception
+			{
+				return solve(params);
+			}
+		});
+		_server.createContext("/solve", new Handler()
+		{
+			@Override
+			String handle(Map<String, String> params) throws Exception
+			{
+				return solve(params);
+			}
+		});
+		_server.createContext("/generate", new Handler()
+		{
+			@Override
+			String handle(Map<String, String> params) throws Exception
+			{
+				return generate(params);
+			}
+		});
+		_server.createContext("/verify", new Handler()
+		{
+			@Override
+			String handle(Map<String, String> params) throws Exception
+			{
+				return verify(params);
+			}
+		});
+	}
+
+	// A virtual thread per request where there are virtual threads (Java 21), otherwise a thread per request
+	private static ExecutorService createExecutor()
+	{
+		try
+		{
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService)method.invoke(null);
+		}
+		catch(Exception e)
+		{
+			return Executors.newCachedThreadPool(new ThreadFactory()
+			{
+				public Thread newThread(Runnable r)
+				{
+					Thread thread = new Thread(r, "Request");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+	}
+
+	public boolean usesVirtualThreads()
+	{
+		return !(_executor instanceof java.util.concurrent.ThreadPoolExecutor);
+	}
+
+	public int getPort() { return _server.getAddress().getPort(); }
+	public SolveBatcher getBatcher() { return _batcher; }
+
+	public void start()
+	{
+		_server.start();
+	}
+
+	public void stop()
+	{
+		_server.stop(0);
+		_batcher.shutdown();
+		_executor.shutdownNow();
+	}
+
+	private static class BadRequestException extends Exception
+	{
+		private static final long serialVersionUID = 1L;
+
+		BadRequestException(String message)
+		{
+			super(message);
+		}
+	}
+
+	private abstract static class Handler implements HttpHandler
+	{
+		abstract String handle(Map<String, String> params) throws Exception;
+
+		public void handle(HttpExchange exchange) throws IOException
+		{
+			int status = 200;
+			String body;
+			try
+			{
+				if(!exchange.getRequestMethod().equals("GET"))
+				{
+					status = 405;
+					body = "Only GET is supported";
+				}
+				else
+					body = handle(parseQuery(exchange.getRequestURI().getRawQuery()));
+			}
+			catch(BadRequestException e)
+			{
+				status = 409;
+				body = "Invalid query string: " + e.getMessage();
+			}
+			catch(RejectedExecutionException e)
+			{
+				status = 503;
+				body = "Busy: " + e.getMessage();
+			}
+			catch(TimeoutException e)
+			{
+				status = 503;
+				body = "Busy: " + e.getMessage();
+			}
+			catch(Exception e)
+			{
+				// The details stay in the log, they're no business of the client's
+				LOG.log(Level.SEVERE, "Failed " + exchange.getRequestURI(), e);
+				status = 500;
+				body = "Unexpected problem";
+			}
+
+			byte[] bytes = body.getBytes("UTF-8");
+			exchange.getResponseHeaders().set("Content-Type", status==200 ? "application/json" : "text/plain; charset=utf-8");
+			exchange.sendResponseHeaders(status, bytes.length);
+			OutputStream out = exchange.getResponseBody();
+			try
+			{
+				out.write(bytes);
+			}
+			finally
+			{
+				out.close();
+			}
+		}
+	}
+
+	private static Map<String, String> parseQuery(String query) throws UnsupportedEncodingException
+	{
+		Map<String, String> params = new HashMap<String, String>();
+		if(query==null)
+			return params;
+		for(String pair: query.split("&"))
+		{
+			int equals = pair.indexOf('=');
+			if(equals>0)
+				params.put(URLDecoder.decode(pair.substring(0, equals), "UTF-8"), URLDecoder.decode(pair.substring(equals+1), "UTF-8"));
+		}
+		return params;
+	}
+
+	private static int parseInt(Map<String, String> params, String name) throws BadRequestException
+	{
+		String value = params.get(name);
+		if(value==null)
+			throw new BadRequestException("missing " + name);
+		try
+		{
+			return Integer.parseInt(value.trim());
+		}
+		catch(NumberFormatException e)
+		{
+			throw new BadRequestException(name + " isn't a number");
+		}
+	}
+
+	private static int[] parseNumbers(Map<String, String> params) throws BadRequestException
+	{
+		String value = params.get("numbers");
+		if(value==null)
+			throw new BadRequestException("missing numbers");
+		String[] fields = value.split(",");
+		if(fields.length<2 || fields.length>Move.MAX_INDEX)
+			throw new BadRequestException("there must be 2 to " + Move.MAX_INDEX + " numbers");
+		int[] numbers = new int[fields.length];
+		try
+		{
+			for(int i=0; i<fields.length; i++)
+				numbers[i] = Integer.parseInt(fields[i].trim());
+		}
+		catch(NumberFormatException e)
+		{
+			throw new BadRequestException("numbers must be whole numbers");
+		}
+		return numbers;
+	}
+
+	private String solve(Map<String, String> params) throws Exception
+	{
+		int[] numbers = parseNumbers(params);
+		int target = parseInt(params, "target");
+
+		if(_index!=null && _index.covers(numbers, target) && !_index.isSolvable(numbers, target))
+			return "{}";  // Known to be unsolvable, no need to search
+		Move[] moves = _batcher.solve(numbers, target, SOLVE_TIMEOUT);
+		if(moves==null)
+			return "{}";
+
+		StringBuilder json = new StringBuilder("{\"result\": [");
+		for(int i=0; i<moves.length; i++)
+		{
+			if(i>0)
+				json.append(", ");
+			json.append("[[").append(moves[i].getFirst()).append(", ").append(moves[i].getSecond()).append("], \"")
+				.append(moves[i].getOp()).append("\"]");
+		}
+		return json.append("]}").toString();
+	}
+
+	private String generate(Map<String, String> params) throws Exception
+	{
+		int levelValue = params.containsKey("level") ? parseInt(params, "level") : GameLevel.Medium.getValue();
+		GameLevel level;
+		try
+		{
+			level = GameLevel.fromValue(levelValue);
+		}
+		catch(IllegalArgumentException e)
+		{
+			throw new BadRequestException("no level " + levelValue);
+		}
+
+		if(!_generators.tryAcquire(SOLVE_TIMEOUT, TimeUnit.MILLISECONDS))
+			throw new TimeoutException("Can't generate a game in " + SOLVE_TIMEOUT + "ms");
+		GameState game;
+		try
+		{
+			game = level.createNewGame();
+		}
+		finally
+		{
+			_generators.release();
+		}
+
+		StringBuilder json = new StringBuilder("{\"level\": ").append(levelValue).append(", \"numbers\": [");
+		for(int i=0; i<game.getNumbers().length; i++)
+		{
+			if(i>0)
+				json.append(", ");
+			json.append(game.getNumbers()[i]);
+		}
+		return json.append("], \"target\": ").append(game.getTarget()).append("}").toString();
+	}
+
+	// Plays the moves with GameState.OnePlay, exactly as the game would
+	private String verify(Map<String, String> params) throws Exception
+	{
+		int[] numbers = parseNumbers(params);
+		int target = parseInt(params, "target");
+		String moves = params.get("moves");
+		if(moves==null || moves.length()>MAX_MOVES_LENGTH)
+			throw new BadRequestException("missing or too many moves");
+		if(numbers.length<GameState.MIN_NUMBERS || numbers.length>GameState.MAX_NUMBERS)
+			throw new BadRequestException("games have " + GameState.MIN_NUMBERS + " to " + GameState.MAX_NUMBERS + " numbers");
+
+		GameState game = new GameState(null, numbers, target);
+		String[] fields = moves.split(",");
+		for(int i=0; i<fields.length; i++)
+		{
+			String field = fields[i];
+			int active = numbers.length - game.getPlayCount();
+			int op = 1;
+			while(op<field.length() && Character.isDigit(field.charAt(op)))
+				op++;
+			try
+			{
+				int first = Integer.parseInt(field.substring(0, op));
+				int second = Integer.parseInt(field.substring(op+1));
+				if(first>=active || second>=active)
+					return invalid("bad move " + (i+1));
+				game.play(first, second, field.charAt(op));
+			}
+			catch(RuntimeException e)  // Not a move, or a division by zero
+			{
+				return invalid("bad move " + (i+1));
+			}
+		}
+		if(game.getPlayCount()!=numbers.length-1)
+			return invalid("not a whole game");
+
+		long result = game.getValues()[0];
+		return "{\"valid\": true, \"result\": \"" + Rational.toString(result) + "\", \"solved\": " +
+				(result==Rational.of(target)) + "}";
+	}
+
+	private static String invalid(String error)
+	{
+		return "{\"valid\": false, \"error\": \"" + error + "\"}";
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		int port = DEFAULT_PORT;
+		int solvers = Runtime.getRuntime().availableProcessors();
+		String indexFile = DEFAULT_INDEX;
+		for(int arg=0; arg<args.length; arg+=2)
+		{
+			if(arg+1>=args.length)
+				usage();
+			if(args[arg].equals("-port"))
+				port = Integer.parseInt(args[arg+1]);
+			else if(args[arg].equals("-solvers"))
+				solvers = Integer.parseInt(args[arg+1]);
+			else if(args[arg].equals("-index"))
+				indexFile = args[arg+1];
+			else
+				usage();
+		}
+
+		PuzzleService service = new PuzzleService(port, solvers, loadIndex(indexFile));
+		service.start();
+		System.out.println("Listening on port " + service.getPort() + " with " + solvers + " solvers" +
+				(service.usesVirtualThreads() ? ", a virtual thread per request" : ", a thread per request"));
+	}
+
+	// The index is only a shortcut, the service solves everything without it too
+	static ReachabilityIndex loadIndex(String file)
+	{
+		try
+		{
+			return ReachabilityIndex.open(new File(file));
+		}
+		catch(IOException e)
+		{
+			System.err.println("No index (" + e.getMessage() + "), solving everything");
+			return null;
+		}
+	}
+
+	private static void usage()
+	{
+		System.err.println("Usage: PuzzleService [-port n] [-solvers n] [-index file]");
+		System.exit(1);
+	}
+}
@@ -0,0 +1,258 @@
+package com.platonix.ptorzot.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.platonix.ptorzot.math.Rational;
+import com.platonix.ptorzot.solver.Move;
+import com.platonix.ptorzot.solver.Solver;
+import com.platonix.ptorzot.solver.StateSearch;
+
+// Solves puzzles on a fixed number of solver threads, however many requests are waiting for them.
+// Requests queue up (up to a limit, past which they're rejected), and every solver thread takes all the
+// requests waiting at once. Puzzles are solved with their numbers sorted, so the same numbers in any order
+// are the same puzzle - solved only once per batch, and remembered for later requests - and the moves are
+// then replayed on the numbers in the order they were asked for.
+// Bigger puzzles are searched up to MAX_STATES states, about half a second, and answered with a timeout past that.
+// Requests still queued when their caller stopped waiting are dropped unsolved.
+public class SolveBatcher
+{
+	private static final int MAX_BATCH = 64;
+	private static final int MAX_CACHED = 64 * 1024;
+	private static final int MAX_SOLVER_NUMBERS = 5;
+	private static final long MAX_STATES = 1000000;
+	private static final Move[] NO_SOLUTION = new Move[0];
+
+	private static final class Request
+	{
+		final int[] numbers;  // Sorted
+		final int target;
+		final String key;
+		final long deadline;  // System.nanoTime() when the caller stops waiting
+		final CountDownLatch done = new CountDownLatch(1);
+		volatile Move[] solution;
+		volatile boolean gaveUp;  // Searched MAX_STATES states without an answer
+		volatile RuntimeException error;
+
+		Request(int[] numbers, int target, String key, long deadline)
+		{
+			this.numbers = numbers;
+			this.target = target;
+			this.key = key;
+			this.deadline = deadline;
+		}
+	}
+
+	private final BlockingQueue<Request> _queue;
+	private final Thread[] _solvers;
+	private final AtomicLong _batches = new AtomicLong(), _solved = new AtomicLong(), _shared = new AtomicLong();
+	private final AtomicLong _cacheHits = new AtomicLong(), _expired = new AtomicLong();
+	private final Map<String, Move[]> _cache = new LinkedHashMap<String, Move[]>(1024, 0.75f, true)
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Move[]> eldest)
+		{
+			return size()>MAX_CACHED;
+		}
+	};
+
+	public SolveBatcher(int solvers, int maxQueued)
+	{
+		_queue = new ArrayBlockingQueue<Request>(maxQueued);
+		_solvers = new Thread[solvers];
+		for(int i=0; i<solvers; i++)
+		{
+			_solvers[i] = new Thread("Solver " + i)
+			{
+				@Override
+				public void run()
+				{
+					solveBatches();
+				}
+			};
+			_solvers[i].setDaemon(true);
+			_solvers[i].start();
+		}
+	}
+
+	public int getSolvers() { return _solvers.length; }
+	public long getBatches() { return _batches.get(); }
+	public long getSolved() { return _solved.get(); }
+	public long getShared() { return _shared.get(); }  // Requests answered by solving an identical one in their batch
+	public long getCacheHits() { return _cacheHits.get(); }
+	public long getExpired() { return _expired.get(); }  // Requests dropped because their caller had timed out
+
+	// The moves of one solution, or null if there is none.
+	// Throws RejectedExecutionException if too many requests are waiting, TimeoutException if the answer is late
+	// or the search gave up.
+	public Move[] solve(int[] numbers, int target, long timeoutMillis) throws InterruptedException, TimeoutException
+	{
+		int[] sorted = numbers.clone();
+		Arrays.sort(sorted);
+		String key = Arrays.toString(sorted) + "=" + target;
+
+		Move[] solution;
+		synchronized(_cache)
+		{
+			solution = _cache.get(key);
+		}
+		if(solution!=null)
+			_cacheHits.incrementAndGet();
+		else
+		{
+			Request request = new Request(sorted, target, key, System.nanoTime() + timeoutMillis*1000000);
+			if(!_queue.offer(request))
+				throw new RejectedExecutionException("Too many solve requests waiting");
+			if(!request.done.await(timeoutMillis, TimeUnit.MILLISECONDS))
+				throw new TimeoutException("No solution after " + timeoutMillis + "ms");
+			if(request.error!=null)
+				throw request.error;
+			if(request.gaveUp)
+				throw new TimeoutException("No solution after " + MAX_STATES + " states");
+			solution = request.solution;
+		}
+		return solution==NO_SOLUTION ? null : reorder(numbers, sorted, solution);
+	}
+
+	// The moves solving the sorted numbers, replayed on the numbers in their own order. Both pads hold
+	// the sorted index of each number, and are compacted the same way as the moves are played.
+	static Move[] reorder(int[] numbers, int[] sorted, Move[] moves)
+	{
+		int count = numbers.length;
+		int[] sortedPad = new int[count], pad = new int[count];
+		boolean[] used = new boolean[count];
+		for(int i=0; i<count; i++)
+		{
+			sortedPad[i] = i;
+			for(int j=0; j<count; j++)
+				if(!used[j] && sorted[j]==numbers[i])
+				{
+					pad[i] = j;
+					used[j] = true;
+					break;
+				}
+		}
+
+		Move[] reordered = new Move[moves.length];
+		for(int m=0; m<moves.length; m++)
+		{
+			int first = sortedPad[moves[m].getFirst()], second = sortedPad[moves[m].getSecond()];
+			int padFirst = indexOf(pad, count, first), padSecond = indexOf(pad, count, second);
+			reordered[m] = Move.of(padFirst, padSecond, moves[m].getOp());
+
+			compact(sortedPad, count, moves[m].getSecond());
+			compact(pad, count, padSecond);
+			count--;
+		}
+		return reordered;
+	}
+
+	private static int indexOf(int[] pad, int count, int value)
+	{
+		for(int i=0; i<count; i++)
+			if(pad[i]==value)
+				return i;
+		throw new IllegalStateException("Lost number " + value);
+	}
+
+	// The first number's slot now stands for the result, the second is removed
+	private static void compact(int[] pad, int count, int second)
+	{
+		for(int i=second; i<count-1; i++)
+			pad[i] = pad[i+1];
+	}
+
+	public void shutdown()
+	{
+		for(Thread solver: _solvers)
+			solver.interrupt();
+	}
+
+	private void solveBatches()
+	{
+		List<Request> batch = new ArrayList<Request>(MAX_BATCH);
+		Map<String, Request> solved = new HashMap<String, Request>();
+		try
+		{
+			while(true)
+			{
+				batch.add(_queue.take());
+				_queue.drainTo(batch, MAX_BATCH - 1);
+				_batches.incrementAndGet();
+
+				for(Request request: batch)
+				{
+					Request same = solved.get(request.key);
+					if(request.deadline-System.nanoTime()<0)
+						_expired.incrementAndGet();  // No one is waiting for it any more
+					else if(same!=null)
+					{
+						request.solution = same.solution;
+						request.gaveUp = same.gaveUp;
+						request.error = same.error;
+						_shared.incrementAndGet();
+					}
+					else
+					{
+						solve(request);
+						solved.put(request.key, request);
+						_solved.incrementAndGet();
+						if(request.error==null && !request.gaveUp)
+							synchronized(_cache)
+							{
+								_cache.put(request.key, request.solution);
+							}
+					}
+					request.done.countDown();
+				}
+				batch.clear();
+				solved.clear();
+			}
+		}
+		catch(InterruptedException e)
+		{
+			// Shut down
+		}
+	}
+
+	private static void solve(Request request)
+	{
+		try
+		{
+			// Solver's first solution is the one Solver.py gave, but past 5 numbers its search takes too long
+			if(request.numbers.length<=MAX_SOLVER_NUMBERS)
+			{
+				Move[] solution = new Solver(request.numbers).findOne(request.target);
+				request.solution = solution==null ? NO_SOLUTION : solution;
+				return;
+			}
+			StateSearch search = new StateSearch();
+			search.setMaxStates(MAX_STATES);
+			long[] values = new long[request.numbers.length];
+			for(int i=0; i<values.length; i++)
+				values[i] = Rational.of(request.numbers[i]);
+			int found = search.search(values, values.length, request.target);
+			if(found==StateSearch.GAVE_UP)
+				request.gaveUp = true;
+			else
+				request.solution = found==StateSearch.FOUND ? search.getSolution().clone() : NO_SOLUTION;
+		}
+		catch(RuntimeException e)
+		{
+			request.error = e;
+		}
+	}
+}
@@ -0,0 +1,52 @@
+package com.platonix.ptorzot.tests;
+
+import java.util.Arrays;
+
+// What the tests check with - a failed check throws, and RunTests reports the test with the message
+public final class Check
+{
+	private Check()
+	{
+	}
+
+	public static void isTrue(boolean condition, String message)
+	{
+		if(!condition)
+			throw new AssertionError(message);
+	}
+
+	public static void equal(long expected, long actual, String message)
+	{
+		if(expected!=actual)
+			throw new AssertionError(message + ": expected " + expected + ", got " + actual);
+	}
+
+	public static void equal(Object expected, Object actual, String message)
+	{
+		if(expected==null ? actual!=null : !expected.equals(actual))
+			throw new AssertionError(message + ": expected " + expected + ", got " + actual);
+	}
+
+	public static void equal(int[] expected, int[] actual, String message)
+	{
+		if(!Arrays.equals(expected, actual))
+			throw new AssertionError(message + ": expected " + Arrays.toString(expected) + ", got " +
+					Arrays.toString(actual));
+	}
+
+	// Runs the code, which has to throw an exception of the given type
+	public static void fails(Class<? extends Throwable> type, Runnable code, String message)
+	{
+		try
+		{
+			code.run();
+		}
+		catch(Throwable e)
+		{
+			if(type.isInstance(e))
+				return;
+			throw new AssertionError(message + ": threw " + e);
+		}
+		throw new AssertionError(message + ": didn't throw");
+	}
+}
@@ -0,0 +1,57 @@
+package com.platonix.ptorzot.tests;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import com.platonix.ptorzot.level.GameLevel;
+import com.platonix.ptorzot.solver.DifficultyScorer;
+import com.platonix.ptorzot.solver.LevelTable;
+import com.platonix.ptorzot.solver.PuzzleScore;
+import com.platonix.ptorzot.solver.Solver;
+
+// DifficultyScorer against Solver, and PuzzleScore's level bands against the game's level table (as in
+// PuzzleSequencerTest, ../Android/assets/levels.tbl or -Dptorzot.levels=...)
+public class DifficultyScorerTest
+{
+	private static final int MAX_TARGET = 120;
+
+	private final Random _random = new Random(1);
+
+	// Every target of one search, counted once per distinct expression
+	public void testDistinctSolutions()
+	{
+		for(int i=0; i<200; i++)
+		{
+			int[] numbers = new int[2 + _random.nextInt(4)];
+			for(int j=0; j<numbers.length; j++)
+				numbers[j] = _random.nextInt(9) + 1;
+			DifficultyScorer scorer = new DifficultyScorer(numbers.length, MAX_TARGET);
+			scorer.score(numbers);
+			Solver solver = new Solver(numbers);
+			for(int target=0; target<=MAX_TARGET; target++)
+				Check.equal(solver.countDistinctSolutions(target), scorer.getScore(target).getSolutions(),
+						"Solutions of " + target);
+		}
+	}
+
+	// The last puzzle of a level is at most the next level's band start, the next level's first one at least it
+	public void testLevelBands() throws IOException
+	{
+		LevelTable table = LevelTable.open(new File(System.getProperty("ptorzot.levels", "../Android/assets/levels.tbl")));
+		Check.equal(3, table.getLevelCount(), "Levels");
+		double[] starts = { PuzzleScore.MEDIUM_DIFFICULTY, PuzzleScore.HARD_DIFFICULTY };
+		int[] numbers = new int[table.getMultisets().getSize()];
+		for(int level=1; level<table.getLevelCount(); level++)
+		{
+			int last = table.getStart(level) - 1, first = table.getStart(level);
+			table.getNumbers(last, numbers);
+			double below = GameLevel.scorePuzzle(numbers, table.getTarget(last)).getDifficulty();
+			table.getNumbers(first, numbers);
+			double above = GameLevel.scorePuzzle(numbers, table.getTarget(first)).getDifficulty();
+			// The band starts are rounded to two decimals
+			Check.isTrue(below<starts[level-1]+0.005 && above>starts[level-1]-0.005,
+					"Level " + level + " starts at " + above + ", after " + below + ", not " + starts[level-1]);
+		}
+	}
+}
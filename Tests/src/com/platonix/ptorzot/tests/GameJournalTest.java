@@ -0,0 +1,105 @@
+package com.platonix.ptorzot.tests;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import com.platonix.ptorzot.core.GameJournal;
+import com.platonix.ptorzot.core.GameState;
+
+public class GameJournalTest
+{
+	private final Random _random = new Random(1);
+	private final ByteBuffer _buffer = ByteBuffer.allocate(GameJournal.FILE_SIZE);
+
+	// What a new process would find in the journal
+	private GameState restore()
+	{
+		return new GameJournal(_buffer).restore();
+	}
+
+	public void testEmpty()
+	{
+		Check.isTrue(restore()==null, "Restored a game from an empty journal");
+	}
+
+	// Plays and undos, snapshots and records, restored exactly after every update
+	public void testRestore()
+	{
+		GameJournal journal = new GameJournal(_buffer);
+		for(int game=0; game<50; game++)
+		{
+			GameState state = Games.create(_random, 4 + game%5, game%2==0 ? 9 : 100);
+			journal.update(state);
+			Games.checkSame(state, restore());
+			for(int i=0; i<100; i++)
+			{
+				if(_random.nextInt(3)==0 || !Games.play(_random, state))
+					state.undo();
+				journal.update(state);
+				Games.checkSame(state, restore());
+			}
+		}
+	}
+
+	// A half whose snapshot was torn falls back on the other half's game
+	public void testCorruptedHalf()
+	{
+		GameJournal journal = new GameJournal(_buffer);
+		GameState older = Games.create(_random, 5, 9);
+		journal.update(older);
+		GameState newer = Games.create(_random, 5, 9);
+		journal.update(newer);
+		Games.checkSame(newer, restore());
+
+		int half = 1;  // An empty journal starts at half 0, the second snapshot goes to half 1
+		for(int i=0; i<GameJournal.SNAPSHOT_SIZE; i++)
+		{
+			ByteBuffer copy = copy();
+			copy.put(half*GameJournal.HALF_SIZE + i, (byte)(copy.get(half*GameJournal.HALF_SIZE + i) ^ 0x10));
+			Games.checkSame(older, new GameJournal(copy).restore());
+		}
+	}
+
+	// Replay stops at the first record failing its checksum, keeping the plays before it
+	public void testTornRecord()
+	{
+		GameJournal journal = new GameJournal(_buffer);
+		GameState game = new GameState(null, new int[] { 1, 2, 3, 4, 5 }, 10);
+		journal.update(game);
+		for(int i=0; i<3; i++)
+		{
+			game.play(0, 1, '+');
+			journal.update(game);
+		}
+
+		// The snapshot is in half 0, the records follow it
+		int third = GameJournal.SNAPSHOT_SIZE + 2*GameJournal.RECORD_SIZE;
+		for(int i=0; i<GameJournal.RECORD_SIZE; i++)
+		{
+			if(i==2 || i==3)
+				continue;  // Reserved, not read
+			ByteBuffer copy = copy();
+			copy.put(third + i, (byte)(copy.get(third + i) ^ 0x01));
+			Check.equal(2, new GameJournal(copy).restore().getPlayCount(), "Plays before the torn record");
+		}
+	}
+
+	// Garbage restores to nothing or to some game, without throwing
+	public void testGarbage()
+	{
+		for(int i=0; i<1000; i++)
+		{
+			for(int pos=0; pos<GameJournal.FILE_SIZE; pos++)
+				_buffer.put(pos, (byte)_random.nextInt(256));
+			restore();
+		}
+	}
+
+	private ByteBuffer copy()
+	{
+		ByteBuffer copy = ByteBuffer.allocate(GameJournal.FILE_SIZE);
+		for(int i=0; i<GameJournal.FILE_SIZE; i++)
+			copy.put(i, _buffer.get(i));
+		return copy;
+	}
+}
@@ -0,0 +1,86 @@
+package com.platonix.ptorzot.tests;
+
+import java.util.Random;
+
+import com.platonix.ptorzot.core.GameState;
+import com.platonix.ptorzot.core.GameStateCodec;
+
+public class GameStateCodecTest
+{
+	private final Random _random = new Random(1);
+
+	public void testRoundTrip()
+	{
+		int[][] shapes = { { 5, 9 }, { 4, 13 }, { 8, 15 }, { 6, 100 }, { 8, 1 << 20 } };
+		for(int[] shape: shapes)
+			for(int i=0; i<500; i++)
+			{
+				GameState game = Games.create(_random, shape[0], shape[1]);
+				byte[] bytes = GameStateCodec.encode(game);
+				Check.equal(GameStateCodec.getEncodedSize(game), bytes.length, "Encoded size");
+				Check.isTrue(bytes.length<=GameStateCodec.MAX_ENCODED_SIZE, "Longer than MAX_ENCODED_SIZE");
+				Check.equal(shape[1]<=GameStateCodec.MAX_NIBBLE ? GameStateCodec.NIBBLES_VERSION :
+						GameStateCodec.VARINTS_VERSION, bytes[0], "Version");
+				Games.checkSame(game, GameStateCodec.decode(bytes));
+			}
+	}
+
+	// Truncated, extended or with any byte changed, a game decodes to some game or throws
+	// IllegalArgumentException - never anything else
+	public void testCorrupted()
+	{
+		for(int i=0; i<300; i++)
+		{
+			byte[] bytes = GameStateCodec.encode(Games.create(_random, 4 + i%5, i%2==0 ? 9 : 1000));
+			for(int length=0; length<bytes.length; length++)
+			{
+				byte[] truncated = new byte[length];
+				System.arraycopy(bytes, 0, truncated, 0, length);
+				checkRejected(truncated, "Truncated to " + length);
+			}
+			byte[] extended = new byte[bytes.length+1];
+			System.arraycopy(bytes, 0, extended, 0, bytes.length);
+			checkRejected(extended, "Trailing byte");
+
+			for(int pos=0; pos<bytes.length; pos++)
+				for(int bit=0; bit<8; bit++)
+				{
+					byte[] flipped = bytes.clone();
+					flipped[pos] ^= 1<<bit;
+					decodeOrReject(flipped);
+				}
+		}
+	}
+
+	private static void checkRejected(byte[] bytes, String message)
+	{
+		try
+		{
+			GameStateCodec.decode(bytes);
+		}
+		catch(IllegalArgumentException e)
+		{
+			return;
+		}
+		throw new AssertionError(message + ": decoded");
+	}
+
+	private static void decodeOrReject(byte[] bytes)
+	{
+		try
+		{
+			GameStateCodec.decode(bytes);
+		}
+		catch(IllegalArgumentException e)
+		{
+			// Rejected, fine
+		}
+	}
+
+	public void testUnsupportedVersion()
+	{
+		byte[] bytes = GameStateCodec.encode(Games.create(_random, 5, 9));
+		bytes[0] = 3;
+		checkRejected(bytes, "Version 3");
+	}
+}
@@ -0,0 +1,65 @@
+package com.platonix.ptorzot.tests;
+
+import java.util.Random;
+
+import com.platonix.ptorzot.core.GameSession;
+import com.platonix.ptorzot.core.GameState;
+import com.platonix.ptorzot.level.GameLevel;
+
+// Random games, and checking a game came back the same, for the tests storing games
+public final class Games
+{
+	private static final GameLevel[] LEVELS = { null, GameLevel.Easy, GameLevel.Medium, GameLevel.Hard, GameLevel.Unique };
+
+	private Games()
+	{
+	}
+
+	// A game of the given size and numbers up to maxNumber, with a few plays made
+	public static GameState create(Random random, int size, int maxNumber)
+	{
+		int[] numbers = new int[size];
+		for(int i=0; i<size; i++)
+			numbers[i] = random.nextInt(maxNumber) + 1;
+		GameState game = new GameState(LEVELS[random.nextInt(LEVELS.length)], numbers, random.nextInt(maxNumber*4));
+		int plays = random.nextInt(size);
+		for(int i=0; i<plays; i++)
+			if(!play(random, game))
+				break;
+		return game;
+	}
+
+	// Makes a random play, false if the game is over or it overflowed
+	public static boolean play(Random random, GameState game)
+	{
+		int active = game.getNumbers().length - game.getPlayCount();
+		if(active<2)
+			return false;
+		int first = random.nextInt(active), second = (first + 1 + random.nextInt(active-1)) % active;
+		char op = GameSession.OPS.charAt(random.nextInt(3));  // Not / - no division by zero to worry about
+		try
+		{
+			game.play(first, second, op);
+			return true;
+		}
+		catch(ArithmeticException e)
+		{
+			return false;
+		}
+	}
+
+	public static void checkSame(GameState expected, GameState actual)
+	{
+		Check.isTrue(actual!=null, "No game");
+		Check.equal(expected.getLevel(), actual.getLevel(), "Level");
+		Check.equal(expected.getNumbers(), actual.getNumbers(), "Numbers");
+		Check.equal(expected.getTarget(), actual.getTarget(), "Target");
+		Check.equal(expected.getPlayCount(), actual.getPlayCount(), "Play count");
+		for(int i=0; i<expected.getPlayCount(); i++)
+		{
+			GameState.OnePlay a = expected.getPlays().get(i), b = actual.getPlays().get(i);
+			Check.isTrue(a.getFirst()==b.getFirst() && a.getSecond()==b.getSecond() && a.getOp()==b.getOp(),
+					"Play " + i);
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package com.platonix.ptorzot.tests;
+
+import java.util.Random;
+
+import com.platonix.ptorzot.solver.Multisets;
+
+public class MultisetsTest
+{
+	private static final Multisets[] MULTISETS = {
+		Multisets.STANDARD, new Multisets(4, 13), new Multisets(6, 5), new Multisets(1, 9), new Multisets(8, 3),
+		new Multisets(40, 2)  // Most of its binomials are past an int, but not the ones ranking uses
+	};
+
+	// Every rank unranks to sorted numbers in range, and ranks back to itself
+	public void testRankRoundTrip()
+	{
+		for(Multisets multisets: MULTISETS)
+		{
+			int[] numbers = new int[multisets.getSize()];
+			for(int rank=0; rank<multisets.getCount(); rank++)
+			{
+				multisets.unrank(rank, numbers);
+				for(int i=0; i<numbers.length; i++)
+				{
+					Check.isTrue(numbers[i]>=1 && numbers[i]<=multisets.getMaxNumber(), "Number out of range");
+					Check.isTrue(i==0 || numbers[i-1]<=numbers[i], "Unranked numbers aren't sorted");
+				}
+				Check.equal(rank, multisets.rank(numbers), "Rank of unranked " + rank);
+			}
+		}
+	}
+
+	// C(maxNumber+size-1, size), counted the slow way
+	public void testCount()
+	{
+		Check.equal(1287, Multisets.STANDARD.getCount(), "Standard count");
+		for(Multisets multisets: MULTISETS)
+			Check.equal(countSorted(multisets.getSize(), 1, multisets.getMaxNumber()), multisets.getCount(),
+					"Count of " + multisets.getSize() + " numbers 1.." + multisets.getMaxNumber());
+	}
+
+	private static int countSorted(int size, int from, int maxNumber)
+	{
+		if(size==0)
+			return 1;
+		int count = 0;
+		for(int n=from; n<=maxNumber; n++)
+			count += countSorted(size-1, n, maxNumber);
+		return count;
+	}
+
+	public void testRankIgnoresOrder()
+	{
+		Random random = new Random(1);
+		int[] sorted = new int[5];
+		for(int rank=0; rank<Multisets.STANDARD.getCount(); rank++)
+		{
+			Multisets.STANDARD.unrank(rank, sorted);
+			int[] shuffled = sorted.clone();
+			for(int i=shuffled.length-1; i>0; i--)
+			{
+				int j = random.nextInt(i+1);
+				int t = shuffled[i];
+				shuffled[i] = shuffled[j];
+				shuffled[j] = t;
+			}
+			Check.equal(rank, Multisets.STANDARD.rank(shuffled), "Rank of shuffled numbers");
+		}
+	}
+
+	public void testBadNumbers()
+	{
+		Check.fails(IllegalArgumentException.class, new Runnable()
+		{
+			public void run()
+			{
+				Multisets.STANDARD.rank(new int[] { 1, 2, 3, 4, 10 });
+			}
+		}, "Number above maxNumber");
+		Check.fails(IllegalArgumentException.class, new Runnable()
+		{
+			public void run()
+			{
+				Multisets.STANDARD.rank(new int[] { 0, 2, 3, 4, 5 });
+			}
+		}, "Number below 1");
+		Check.fails(IllegalArgumentException.class, new Runnable()
+		{
+			public void run()
+			{
+				Multisets.STANDARD.unrank(Multisets.STANDARD.getCount(), new int[5]);
+			}
+		}, "Rank past the count");
+	}
+
+	// Counts that don't fit in an int are refused, not wrapped - C(107, 8) is about 3.4*10^11
+	public void testTooMany()
+	{
+		Check.fails(IllegalArgumentException.class, new Runnable()
+		{
+			public void run()
+			{
+				new Multisets(8, 100);
+			}
+		}, "8 numbers 1..100");
+	}
+}
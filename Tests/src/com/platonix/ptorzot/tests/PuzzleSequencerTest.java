@@ -0,0 +1,133 @@
+package com.platonix.ptorzot.tests;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import com.platonix.ptorzot.solver.LevelTable;
+import com.platonix.ptorzot.solver.PuzzleSequencer;
+
+// Over the game's own level table, from ../Android/assets/levels.tbl (or -Dptorzot.levels=...)
+public class PuzzleSequencerTest
+{
+	private static final int LEVEL = 1;
+
+	private final LevelTable _table;
+	private final Random _random = new Random(1);
+	private final int[] _numbers = new int[5];
+
+	public PuzzleSequencerTest() throws IOException
+	{
+		_table = LevelTable.open(new File(System.getProperty("ptorzot.levels", "../Android/assets/levels.tbl")));
+	}
+
+	private int getLevelSize()
+	{
+		return _table.getEnd(LEVEL) - _table.getStart(LEVEL);
+	}
+
+	// Deals a puzzle and takes it, returning its id
+	private int deal(PuzzleSequencer sequencer)
+	{
+		int target = sequencer.next(LEVEL, _random, _numbers);
+		sequencer.setPlayed(_numbers, target);
+		return sequencer.getId(_numbers, target);
+	}
+
+	// Every puzzle of the level once, then the level starts over in another order
+	public void testWholeLevel()
+	{
+		PuzzleSequencer sequencer = new PuzzleSequencer(_table, null, 1);
+		Set<Integer> level = new HashSet<Integer>();
+		for(int index=_table.getStart(LEVEL); index<_table.getEnd(LEVEL); index++)
+			level.add(_table.getId(index));
+
+		Set<Integer> dealt = new HashSet<Integer>();
+		int[] first = new int[100];
+		for(int i=0; i<getLevelSize(); i++)
+		{
+			int id = deal(sequencer);
+			Check.isTrue(level.contains(id), "Dealt a puzzle of another level");
+			Check.isTrue(dealt.add(id), "Dealt " + id + " again");
+			if(i<first.length)
+				first[i] = id;
+		}
+
+		int same = 0;
+		for(int i=0; i<first.length; i++)
+			if(deal(sequencer)==first[i])
+				same++;
+		Check.isTrue(same<first.length/2, "Started over in the same order");
+	}
+
+	// Puzzles given some other way (another sequencer here) are skipped
+	public void testSkipsPlayed()
+	{
+		PuzzleSequencer sequencer = new PuzzleSequencer(_table, null, 1);
+		PuzzleSequencer other = new PuzzleSequencer(_table, null, 1);
+		Set<Integer> played = new HashSet<Integer>();
+		for(int i=0; i<1000; i++)
+		{
+			int target = other.next(LEVEL, _random, _numbers);
+			sequencer.setPlayed(_numbers, target);
+			played.add(sequencer.getId(_numbers, target));
+		}
+		for(int i=0; i<getLevelSize()-played.size(); i++)
+			Check.isTrue(!played.contains(deal(sequencer)), "Dealt a played puzzle");
+	}
+
+	// Saved and loaded halfway, the rest of the level is dealt without repeats
+	public void testSaveLoad() throws IOException
+	{
+		File file = File.createTempFile("ptorzot", ".seq");
+		try
+		{
+			PuzzleSequencer sequencer = new PuzzleSequencer(_table, file, 1);
+			Set<Integer> dealt = new HashSet<Integer>();
+			for(int i=0; i<getLevelSize()/2; i++)
+				dealt.add(deal(sequencer));
+			for(int i=0; i<10; i++)
+				sequencer.next(LEVEL, _random, _numbers);  // Dealt but never taken, they come back next pass
+			sequencer.save();
+
+			PuzzleSequencer loaded = new PuzzleSequencer(_table, file, 2);
+			loaded.load();
+			Check.equal(dealt.size(), loaded.getPlayedCount(), "Played puzzles loaded");
+			for(int i=dealt.size(); i<getLevelSize()-10; i++)
+				Check.isTrue(dealt.add(deal(loaded)), "Dealt again after loading");
+			Check.isTrue(!new File(file.getPath() + ".tmp").exists(), "Left the temp file");
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+
+	// An unreadable file is ignored, the player starts afresh
+	public void testBadFile() throws IOException
+	{
+		File file = File.createTempFile("ptorzot", ".seq");
+		try
+		{
+			FileOutputStream out = new FileOutputStream(file);
+			try
+			{
+				out.write(new byte[] { 'P', 'Z', 'P', 'S', 0, 0, 0, 9 });  // Version 9
+			}
+			finally
+			{
+				out.close();
+			}
+			PuzzleSequencer sequencer = new PuzzleSequencer(_table, file, 1);
+			sequencer.load();
+			Check.equal(0, sequencer.getPlayedCount(), "Played puzzles of a bad file");
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+}
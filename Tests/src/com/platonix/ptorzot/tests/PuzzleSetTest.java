@@ -0,0 +1,111 @@
+package com.platonix.ptorzot.tests;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import com.platonix.ptorzot.solver.PuzzleSet;
+
+// PuzzleSet against a HashSet, through its containers' switches from arrays to bitmaps (past 4096 ids) and back
+// (at 2048)
+public class PuzzleSetTest
+{
+	private final Random _random = new Random(1);
+	private final PuzzleSet _set = new PuzzleSet();
+	private final Set<Integer> _expected = new HashSet<Integer>();
+
+	private void add(int id)
+	{
+		Check.equal(_expected.add(id), _set.add(id), "add " + id);
+	}
+
+	private void remove(int id)
+	{
+		Check.equal(_expected.remove(id), _set.remove(id), "remove " + id);
+	}
+
+	private void checkSame(PuzzleSet set, int from, int to)
+	{
+		Check.equal(_expected.size(), set.size(), "Size");
+		for(int id=from; id<to; id++)
+			Check.equal(_expected.contains(id), set.contains(id), "contains " + id);
+	}
+
+	// One container filled way past the switch to a bitmap, then emptied way past the switch back
+	public void testSwitches()
+	{
+		for(int i=0; i<10000; i++)
+			add(_random.nextInt(1 << 16));
+		checkSame(_set, 0, 1 << 16);
+		while(_expected.size()>1000)
+			remove(_random.nextInt(1 << 16));
+		checkSame(_set, 0, 1 << 16);
+		for(int id=0; id<1 << 16; id++)
+			remove(id);
+		checkSame(_set, 0, 1 << 16);
+	}
+
+	// Going back and forth around both switches
+	public void testAroundSwitches()
+	{
+		int[] sizes = { 4095, 4097, 2049, 2047, 4096, 2048, 5000, 100 };
+		for(int size: sizes)
+		{
+			while(_expected.size()<size)
+				add(_random.nextInt(1 << 16));
+			while(_expected.size()>size)
+				remove(_random.nextInt(1 << 16));
+			checkSame(_set, 0, 1 << 16);
+		}
+	}
+
+	// Several containers, some arrays and some bitmaps
+	public void testContainers()
+	{
+		for(int i=0; i<50000; i++)
+		{
+			int high = _random.nextInt(4);
+			int id = high<<16 | _random.nextInt(high==2 ? 1 << 16 : 1 << 12);
+			if(_random.nextInt(3)==0)
+				remove(id);
+			else
+				add(id);
+		}
+		checkSame(_set, 0, 5 << 16);
+	}
+
+	public void testWriteRead() throws IOException
+	{
+		for(int i=0; i<30000; i++)
+			add(_random.nextInt(3) << 16 | _random.nextInt(i<10000 ? 1 << 16 : 1 << 10));
+		for(int i=0; i<5000; i++)
+			remove(_random.nextInt(1 << 16));  // Leaves a bitmap of few enough ids to be written as an array
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		_set.write(out);
+		out.flush();
+		PuzzleSet read = new PuzzleSet();
+		read.add(12345678);  // Replaced by what's read
+		read.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		checkSame(read, 0, 4 << 16);
+		Check.isTrue(!read.contains(12345678), "Kept an id from before the read");
+	}
+
+	public void testNegative()
+	{
+		Check.isTrue(!_set.contains(-1) && !_set.remove(-1), "-1 isn't there");
+		Check.fails(IllegalArgumentException.class, new Runnable()
+		{
+			public void run()
+			{
+				_set.add(-1);
+			}
+		}, "Adding -1");
+	}
+}
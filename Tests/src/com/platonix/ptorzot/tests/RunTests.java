@@ -0,0 +1,81 @@
+package com.platonix.ptorzot.tests;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+// Runs every public void testXxx() method of the test classes, each on a new instance, and exits with 1 if any
+// of them failed. Arguments, if any, are test class names to run alone ("MultisetsTest").
+public class RunTests
+{
+	private static final Class<?>[] TESTS = {
+		MultisetsTest.class,
+		GameStateCodecTest.class,
+		GameJournalTest.class,
+		StateSearchTest.class,
+		SubsetOracleTest.class,
+		DifficultyScorerTest.class,
+		PuzzleSetTest.class,
+		PuzzleSequencerTest.class,
+	};
+
+	public static void main(String[] args) throws Exception
+	{
+		int run = 0, failed = 0;
+		long start = System.currentTimeMillis();
+		for(Class<?> test: TESTS)
+		{
+			if(args.length>0 && !contains(args, test.getSimpleName()))
+				continue;
+			for(Method method: getTestMethods(test))
+			{
+				run++;
+				String name = test.getSimpleName() + "." + method.getName();
+				try
+				{
+					method.invoke(test.getDeclaredConstructor().newInstance());
+					System.out.println("ok     " + name);
+				}
+				catch(InvocationTargetException e)
+				{
+					failed++;
+					System.out.println("FAILED " + name);
+					e.getCause().printStackTrace(System.out);
+				}
+			}
+		}
+		System.out.println(String.format("%d tests, %d failed, %.1fs", run, failed,
+				(System.currentTimeMillis() - start) / 1000.0));
+		System.exit(failed>0 ? 1 : 0);
+	}
+
+	private static boolean contains(String[] names, String name)
+	{
+		for(String n: names)
+			if(n.equals(name))
+				return true;
+		return false;
+	}
+
+	// By name, getMethods has no order of its own
+	private static List<Method> getTestMethods(Class<?> test)
+	{
+		List<Method> methods = new ArrayList<Method>();
+		for(Method method: test.getMethods())
+			if(method.getName().startsWith("test") && method.getParameterTypes().length==0 &&
+					!Modifier.isStatic(method.getModifiers()))
+				methods.add(method);
+		Collections.sort(methods, new Comparator<Method>()
+		{
+			public int compare(Method a, Method b)
+			{
+				return a.getName().compareTo(b.getName());
+			}
+		});
+		return methods;
+	}
+}
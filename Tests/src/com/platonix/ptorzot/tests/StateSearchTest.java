@@ -0,0 +1,113 @@
+package com.platonix.ptorzot.tests;
+
+import java.util.Random;
+
+import com.platonix.ptorzot.core.GameState;
+import com.platonix.ptorzot.math.Rational;
+import com.platonix.ptorzot.solver.Move;
+import com.platonix.ptorzot.solver.Solver;
+import com.platonix.ptorzot.solver.StateSearch;
+
+// StateSearch and Solver's pruned findOne against Solver's full search, which tries every move sequence
+public class StateSearchTest
+{
+	private final Random _random = new Random(1);
+	private final StateSearch _search = new StateSearch();
+
+	private int[] createNumbers(int size, int maxNumber)
+	{
+		int[] numbers = new int[size];
+		for(int i=0; i<size; i++)
+			numbers[i] = _random.nextInt(maxNumber) + 1;
+		return numbers;
+	}
+
+	// Plays the moves as is, as the game would, and checks they make the target
+	private static void checkSolution(int[] numbers, int target, Move[] moves)
+	{
+		GameState game = new GameState(null, numbers, target);
+		for(Move move: moves)
+			game.play(move.getFirst(), move.getSecond(), move.getOp());
+		Check.equal(Rational.of(target), game.getLastPlay().getNumbersPost()[0], "Result of the moves");
+	}
+
+	private void checkAgree(int[] numbers, int target)
+	{
+		Solver solver = new Solver(numbers);
+		boolean solvable = solver.countSolutions(target)>0;
+
+		Move[] found = _search.findOne(numbers, target);
+		Check.equal(solvable, found!=null, "StateSearch solvable");
+		if(found!=null)
+			checkSolution(numbers, target, found);
+
+		found = solver.findOne(target);
+		Check.equal(solvable, found!=null, "Solver.findOne solvable");
+		if(found!=null)
+			checkSolution(numbers, target, found);
+	}
+
+	private void checkAgree(int size, int maxNumber, int minTarget, int maxTarget, int puzzles)
+	{
+		for(int i=0; i<puzzles; i++)
+			checkAgree(createNumbers(size, maxNumber), minTarget + _random.nextInt(maxTarget-minTarget+1));
+	}
+
+	public void testFourNumbers()
+	{
+		checkAgree(4, 13, 0, 200, 3000);
+	}
+
+	public void testFiveNumbers()
+	{
+		checkAgree(5, 9, 0, 120, 1000);
+	}
+
+	// Larger numbers, more of the targets out of reach
+	public void testFiveLargeNumbers()
+	{
+		checkAgree(5, 100, 0, 1000, 300);
+	}
+
+	// Below 0 the searches can't skip negative results
+	public void testNegativeTargets()
+	{
+		checkAgree(4, 13, -200, 0, 2000);
+		checkAgree(5, 9, -120, 0, 1000);
+		checkAgree(createNumbers(5, 9), -46);
+	}
+
+	public void testNegativeNumbers()
+	{
+		for(int i=0; i<1000; i++)
+		{
+			int[] numbers = createNumbers(_random.nextBoolean() ? 4 : 5, 9);
+			numbers[_random.nextInt(numbers.length)] *= -1;
+			checkAgree(numbers, _random.nextInt(121));
+		}
+	}
+
+	// Too slow to count every sequence, checked against Solver's findOne alone
+	public void testSixNumbers()
+	{
+		for(int i=0; i<100; i++)
+		{
+			int[] numbers = createNumbers(6, 9);
+			int target = _random.nextInt(500);
+			Move[] expected = new Solver(numbers).findOne(target);
+			Move[] found = _search.findOne(numbers, target);
+			Check.equal(expected!=null, found!=null, "StateSearch solvable");
+			if(found!=null)
+				checkSolution(numbers, target, found);
+		}
+	}
+
+	public void testGiveUp()
+	{
+		_search.setMaxStates(10);
+		long[] values = new long[8];
+		for(int i=0; i<values.length; i++)
+			values[i] = Rational.of(i+1);
+		Check.equal(StateSearch.GAVE_UP, _search.search(values, values.length, 1000003), "Capped search");
+	}
+}
@@ -0,0 +1,105 @@
+package com.platonix.ptorzot.tests;
+
+import java.util.Random;
+
+import com.platonix.ptorzot.math.Rational;
+import com.platonix.ptorzot.math.RationalSet;
+import com.platonix.ptorzot.solver.Solver;
+import com.platonix.ptorzot.solver.SubsetOracle;
+
+// SubsetOracle's answers against Solver's full search, target by target
+public class SubsetOracleTest
+{
+	private static final int MAX_TARGET = 200;
+
+	private final Random _random = new Random(1);
+
+	private int[] createNumbers(int size, int maxNumber)
+	{
+		int[] numbers = new int[size];
+		for(int i=0; i<size; i++)
+			numbers[i] = _random.nextInt(maxNumber) + 1;
+		return numbers;
+	}
+
+	// The whole targets Solver makes from all the numbers
+	private static boolean[] solve(int[] numbers)
+	{
+		int[] counts = new int[MAX_TARGET+1];
+		new Solver(numbers).countTargets(counts);
+		boolean[] solvable = new boolean[MAX_TARGET+1];
+		for(int target=0; target<=MAX_TARGET; target++)
+			solvable[target] = counts[target]>0;
+		return solvable;
+	}
+
+	// isSolvable before and after the full set is built, getTargets and getReachable
+	public void testTargets()
+	{
+		for(int i=0; i<300; i++)
+		{
+			int[] numbers = createNumbers(2 + _random.nextInt(4), 13);
+			boolean[] expected = solve(numbers);
+			SubsetOracle oracle = new SubsetOracle(numbers);
+			for(int target=0; target<=MAX_TARGET; target++)
+				Check.equal(expected[target], oracle.isSolvable(target), "isSolvable " + target);
+
+			boolean[] solvable = new boolean[MAX_TARGET+1];
+			oracle.getTargets(solvable);
+			RationalSet reachable = oracle.getReachable();
+			for(int target=0; target<=MAX_TARGET; target++)
+			{
+				Check.equal(expected[target], solvable[target], "getTargets " + target);
+				Check.equal(expected[target], reachable.contains(Rational.of(target)), "getReachable " + target);
+				Check.equal(expected[target], oracle.isSolvable(target), "isSolvable from the set " + target);
+			}
+			for(int j=0; j<reachable.size(); j++)
+				Check.isTrue(Rational.signum(reachable.get(j))>=0, "Reachable value below 0");
+		}
+	}
+
+	// Only values from 0 up are kept, so no negative target is found, even one that can be made
+	public void testNegativeTargets()
+	{
+		Check.isTrue(!new SubsetOracle(new int[] { 1, 2 }).isSolvable(-3), "1, 2 make -3");
+		for(int i=0; i<100; i++)
+		{
+			SubsetOracle oracle = new SubsetOracle(createNumbers(2 + _random.nextInt(4), 9));
+			for(int target=-MAX_TARGET; target<0; target++)
+				Check.isTrue(!oracle.isSolvable(target), "isSolvable " + target);
+		}
+	}
+
+	// Every number alone, and whatever Solver makes from each subset of two or more
+	public void testReachableByAny()
+	{
+		for(int i=0; i<100; i++)
+		{
+			int[] numbers = createNumbers(2 + _random.nextInt(4), 13);
+			boolean[] expected = new boolean[MAX_TARGET+1];
+			for(int mask=1; mask<1<<numbers.length; mask++)
+			{
+				int[] subset = new int[Integer.bitCount(mask)];
+				for(int j=0, k=0; j<numbers.length; j++)
+					if((mask & 1<<j)!=0)
+						subset[k++] = numbers[j];
+				if(subset.length==1)
+				{
+					expected[subset[0]] = true;
+					continue;
+				}
+				boolean[] solvable = solve(subset);
+				for(int target=0; target<=MAX_TARGET; target++)
+					expected[target] |= solvable[target];
+			}
+
+			SubsetOracle oracle = new SubsetOracle(numbers);
+			RationalSet any = oracle.getReachableByAny();
+			for(int target=0; target<=MAX_TARGET; target++)
+				Check.equal(expected[target], any.contains(Rational.of(target)), "getReachableByAny " + target);
+			RationalSet reachable = oracle.getReachable();
+			for(int j=0; j<reachable.size(); j++)
+				Check.isTrue(any.contains(reachable.get(j)), "Reachable by all but not by any");
+		}
+	}
+}
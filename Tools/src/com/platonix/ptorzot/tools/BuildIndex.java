@@ -0,0 +1,164 @@
+package com.platonix.ptorzot.tools;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+import com.platonix.ptorzot.solver.IndexBuilder;
+import com.platonix.ptorzot.solver.Multisets;
+import com.platonix.ptorzot.solver.ReachabilityIndex;
+
+// Builds the ReachabilityIndex (Android/assets/reachability.idx) on all the cores.
+// The multisets are split over a ForkJoinPool, every multiset is solved on its own and its record written
+// straight to its place in the output, so the work scales with the number of cores.
+//
+// Usage: BuildIndex [-threads n] <output file> [size maxNumber maxTarget]
+public class BuildIndex
+{
+	private static final int LEAF_SIZE = 8;  // Multisets solved by one task without splitting further
+	private static final long PROGRESS_INTERVAL = 1000;
+
+	private final IndexBuilder _builder;
+	private final ByteBuffer _records;
+	private final AtomicInteger _done = new AtomicInteger();
+
+	public BuildIndex(Multisets multisets, int maxTarget)
+	{
+		_builder = new IndexBuilder(multisets, maxTarget);
+		_records = ByteBuffer.allocate(_builder.getRecordsSize());
+	}
+
+	private class BuildRange extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+		private final int _from, _to;
+
+		BuildRange(int from, int to)
+		{
+			_from = from;
+			_to = to;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if(_to - _from > LEAF_SIZE)
+			{
+				int middle = (_from + _to) >>> 1;
+				invokeAll(new BuildRange(_from, middle), new BuildRange(middle, _to));
+				return;
+			}
+
+			ByteBuffer records = _records.duplicate();  // Each task writes to its own part through its own view
+			for(int rank=_from; rank<_to; rank++)
+			{
+				records.position(rank * _builder.getRecordSize());  // Below getRecordsSize, so no overflow
+				_builder.buildRecord(rank, records);
+				_done.incrementAndGet();
+			}
+		}
+	}
+
+	public void build(int threads)
+	{
+		final int total = _builder.getMultisets().getCount();
+		final long start = System.currentTimeMillis();
+
+		Thread progress = new Thread("Progress")
+		{
+			@Override
+			public void run()
+			{
+				try
+				{
+					while(true)
+					{
+						Thread.sleep(PROGRESS_INTERVAL);
+						report(_done.get(), total, start);
+					}
+				}
+				catch(InterruptedException e)
+				{
+					// Done
+				}
+			}
+		};
+		progress.setDaemon(true);
+		progress.start();
+
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try
+		{
+			pool.invoke(new BuildRange(0, total));
+		}
+		finally
+		{
+			pool.shutdown();
+			progress.interrupt();
+		}
+		report(total, total, start);
+	}
+
+	private static void report(int done, int total, long start)
+	{
+		double seconds = Math.max(System.currentTimeMillis() - start, 1) / 1000.0;
+		System.out.println(String.format("%d/%d multisets (%.0f%%) in %.1fs, %.0f multisets/s",
+				done, total, 100.0 * done / total, seconds, done / seconds));
+	}
+
+	public void write(OutputStream out) throws IOException
+	{
+		CRC32 crc = new CRC32();
+		crc.update(_records.array());
+		out.write(_builder.createHeader((int)crc.getValue()).array());
+		out.write(_records.array());
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		int threads = Runtime.getRuntime().availableProcessors();
+		int arg = 0;
+		if(args.length>1 && args[0].equals("-threads"))
+		{
+			threads = Integer.parseInt(args[1]);
+			arg = 2;
+		}
+		if(args.length-arg!=1 && args.length-arg!=4)
+		{
+			System.err.println("Usage: BuildIndex [-threads n] <output file> [size maxNumber maxTarget]");
+			System.exit(1);
+		}
+
+		File file = new File(args[arg]);
+		Multisets multisets = Multisets.STANDARD;
+		int maxTarget = IndexBuilder.DEFAULT_MAX_TARGET;
+		if(args.length-arg==4)
+		{
+			multisets = new Multisets(Integer.parseInt(args[arg+1]), Integer.parseInt(args[arg+2]));
+			maxTarget = Integer.parseInt(args[arg+3]);
+		}
+
+		System.out.println("Building index version " + ReachabilityIndex.VERSION + " of " + multisets.getCount() +
+				" multisets (" + multisets.getSize() + " numbers 1.." + multisets.getMaxNumber() +
+				", targets 0.." + maxTarget + ") on " + threads + " threads");
+		BuildIndex index = new BuildIndex(multisets, maxTarget);
+		index.build(threads);
+
+		OutputStream out = new FileOutputStream(file);
+		try
+		{
+			index.write(out);
+		}
+		finally
+		{
+			out.close();
+		}
+		System.out.println("Wrote " + file.length() + " bytes to " + file);
+	}
+}
@@ -0,0 +1,153 @@
+package com.platonix.ptorzot.tools;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.platonix.ptorzot.solver.LevelTable;
+import com.platonix.ptorzot.solver.LevelTableBuilder;
+import com.platonix.ptorzot.solver.Multisets;
+
+// Builds the LevelTable (Android/assets/levels.tbl) on all the cores, the same way BuildIndex builds the index -
+// the multisets are split over a ForkJoinPool and each one is scored on its own. Prints where each level starts,
+// in difficulty and in targets, to see what the percentiles made of the levels.
+// The default is the standard multisets, every target the levels used to pick from and three equal levels.
+//
+// Usage: BuildLevelTable [-threads n] <output file> [size maxNumber minTarget maxTarget percentile...]
+public class BuildLevelTable
+{
+	private static final int LEAF_SIZE = 16;  // Multisets scored by one task without splitting further
+	private static final int DEFAULT_MIN_TARGET = 11;
+	private static final int DEFAULT_MAX_TARGET = 120;
+	private static final double[] DEFAULT_PERCENTILES = { 100.0/3, 200.0/3 };
+
+	private final LevelTableBuilder _builder;
+	private final long[][] _keys;
+	private long[] _sorted;
+
+	public BuildLevelTable(Multisets multisets, int minTarget, int maxTarget, double[] percentiles)
+	{
+		_builder = new LevelTableBuilder(multisets, minTarget, maxTarget, percentiles);
+		_keys = new long[multisets.getCount()][];
+	}
+
+	private class ScoreRange extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+		private final int _from, _to;
+
+		ScoreRange(int from, int to)
+		{
+			_from = from;
+			_to = to;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if(_to - _from > LEAF_SIZE)
+			{
+				int middle = (_from + _to) >>> 1;
+				invokeAll(new ScoreRange(_from, middle), new ScoreRange(middle, _to));
+				return;
+			}
+
+			for(int rank=_from; rank<_to; rank++)
+				_keys[rank] = _builder.scoreMultiset(rank);
+		}
+	}
+
+	public void build(int threads)
+	{
+		long start = System.currentTimeMillis();
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try
+		{
+			pool.invoke(new ScoreRange(0, _keys.length));
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+		_sorted = _builder.sort(_keys);
+		System.out.println(String.format("Scored %d puzzles of %d multisets in %.1fs", _sorted.length, _keys.length,
+				(System.currentTimeMillis() - start) / 1000.0));
+	}
+
+	public void report()
+	{
+		int[] bounds = _builder.createBounds(_sorted.length);
+		int maxTarget = _builder.getMaxTarget();
+		for(int level=0; level<_builder.getLevelCount(); level++)
+		{
+			int start = bounds[level], end = bounds[level+1];
+			if(start==end)
+			{
+				System.out.println("Level " + level + ": no puzzles");
+				continue;
+			}
+			double targets = 0;
+			for(int i=start; i<end; i++)
+				targets += (int)_sorted[i] % (maxTarget+1);
+			System.out.println(String.format("Level %d: %d puzzles, difficulty %.2f..%.2f, average target %.1f",
+					level, end - start, LevelTableBuilder.getDifficulty(_sorted[start]),
+					LevelTableBuilder.getDifficulty(_sorted[end-1]), targets / (end - start)));
+		}
+	}
+
+	public void write(OutputStream out) throws IOException
+	{
+		_builder.write(_sorted, out);
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		int threads = Runtime.getRuntime().availableProcessors();
+		int arg = 0;
+		if(args.length>1 && args[0].equals("-threads"))
+		{
+			threads = Integer.parseInt(args[1]);
+			arg = 2;
+		}
+		if(args.length-arg!=1 && args.length-arg<5)
+		{
+			System.err.println("Usage: BuildLevelTable [-threads n] <output file> [size maxNumber minTarget maxTarget percentile...]");
+			System.exit(1);
+		}
+
+		File file = new File(args[arg]);
+		Multisets multisets = Multisets.STANDARD;
+		int minTarget = DEFAULT_MIN_TARGET, maxTarget = DEFAULT_MAX_TARGET;
+		double[] percentiles = DEFAULT_PERCENTILES;
+		if(args.length-arg>=5)
+		{
+			multisets = new Multisets(Integer.parseInt(args[arg+1]), Integer.parseInt(args[arg+2]));
+			minTarget = Integer.parseInt(args[arg+3]);
+			maxTarget = Integer.parseInt(args[arg+4]);
+			percentiles = new double[args.length-arg-5];
+			for(int i=0; i<percentiles.length; i++)
+				percentiles[i] = Double.parseDouble(args[arg+5+i]);
+		}
+
+		System.out.println("Building level table version " + LevelTable.VERSION + " of " +
+				multisets.getCount() + " multisets (" + multisets.getSize() + " numbers 1.." + multisets.getMaxNumber() +
+				", targets " + minTarget + ".." + maxTarget + ") on " + threads + " threads");
+		BuildLevelTable table = new BuildLevelTable(multisets, minTarget, maxTarget, percentiles);
+		table.build(threads);
+		table.report();
+
+		OutputStream out = new FileOutputStream(file);
+		try
+		{
+			table.write(out);
+		}
+		finally
+		{
+			out.close();
+		}
+		System.out.println("Wrote " + file.length() + " bytes to " + file);
+	}
+}
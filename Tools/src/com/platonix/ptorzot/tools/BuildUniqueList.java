@@ -0,0 +1,167 @@
+package com.platonix.ptorzot.tools;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.platonix.ptorzot.level.UniqueLevel;
+import com.platonix.ptorzot.solver.Multisets;
+import com.platonix.ptorzot.solver.UniqueSolutions;
+import com.platonix.ptorzot.solver.UniqueSolutionsBuilder;
+
+// Builds the UniqueSolutions list (Android/assets/unique.lst) on all the cores, the same way BuildIndex builds
+// the index - the multisets are split over a ForkJoinPool and each one is searched on its own.
+// The default target range is UniqueLevel's.
+//
+// Usage: BuildUniqueList [-threads n] <output file> [size maxNumber minTarget maxTarget]
+public class BuildUniqueList
+{
+	private static final int LEAF_SIZE = 4;  // Multisets searched by one task without splitting further
+	private static final long PROGRESS_INTERVAL = 5000;
+
+	private final UniqueSolutionsBuilder _builder;
+	private final int[][] _targets;
+	private final AtomicInteger _done = new AtomicInteger();
+
+	public BuildUniqueList(Multisets multisets, int minTarget, int maxTarget)
+	{
+		_builder = new UniqueSolutionsBuilder(multisets, minTarget, maxTarget);
+		_targets = new int[multisets.getCount()][];
+	}
+
+	private class SearchRange extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+		private final int _from, _to;
+
+		SearchRange(int from, int to)
+		{
+			_from = from;
+			_to = to;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if(_to - _from > LEAF_SIZE)
+			{
+				int middle = (_from + _to) >>> 1;
+				invokeAll(new SearchRange(_from, middle), new SearchRange(middle, _to));
+				return;
+			}
+
+			for(int rank=_from; rank<_to; rank++)
+			{
+				_targets[rank] = _builder.findTargets(rank);
+				_done.incrementAndGet();
+			}
+		}
+	}
+
+	public void build(int threads)
+	{
+		final int total = _builder.getMultisets().getCount();
+		final long start = System.currentTimeMillis();
+
+		Thread progress = new Thread("Progress")
+		{
+			@Override
+			public void run()
+			{
+				try
+				{
+					while(true)
+					{
+						Thread.sleep(PROGRESS_INTERVAL);
+						report(_done.get(), total, start);
+					}
+				}
+				catch(InterruptedException e)
+				{
+					// Done
+				}
+			}
+		};
+		progress.setDaemon(true);
+		progress.start();
+
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try
+		{
+			pool.invoke(new SearchRange(0, total));
+		}
+		finally
+		{
+			pool.shutdown();
+			progress.interrupt();
+		}
+		report(total, total, start);
+	}
+
+	private static void report(int done, int total, long start)
+	{
+		double seconds = Math.max(System.currentTimeMillis() - start, 1) / 1000.0;
+		System.out.println(String.format("%d/%d multisets (%.0f%%) in %.1fs, %.1f multisets/s",
+				done, total, 100.0 * done / total, seconds, done / seconds));
+	}
+
+	public int getCount()
+	{
+		int count = 0;
+		for(int[] targets: _targets)
+			count += targets.length;
+		return count;
+	}
+
+	public void write(OutputStream out) throws IOException
+	{
+		_builder.write(_targets, out);
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		int threads = Runtime.getRuntime().availableProcessors();
+		int arg = 0;
+		if(args.length>1 && args[0].equals("-threads"))
+		{
+			threads = Integer.parseInt(args[1]);
+			arg = 2;
+		}
+		if(args.length-arg!=1 && args.length-arg!=5)
+		{
+			System.err.println("Usage: BuildUniqueList [-threads n] <output file> [size maxNumber minTarget maxTarget]");
+			System.exit(1);
+		}
+
+		File file = new File(args[arg]);
+		Multisets multisets = Multisets.STANDARD;
+		int minTarget = UniqueLevel.MIN_TARGET, maxTarget = UniqueLevel.MAX_TARGET;
+		if(args.length-arg==5)
+		{
+			multisets = new Multisets(Integer.parseInt(args[arg+1]), Integer.parseInt(args[arg+2]));
+			minTarget = Integer.parseInt(args[arg+3]);
+			maxTarget = Integer.parseInt(args[arg+4]);
+		}
+
+		System.out.println("Building unique solutions list version " + UniqueSolutions.VERSION + " of " +
+				multisets.getCount() + " multisets (" + multisets.getSize() + " numbers 1.." + multisets.getMaxNumber() +
+				", targets " + minTarget + ".." + maxTarget + ") on " + threads + " threads");
+		BuildUniqueList list = new BuildUniqueList(multisets, minTarget, maxTarget);
+		list.build(threads);
+
+		OutputStream out = new FileOutputStream(file);
+		try
+		{
+			list.write(out);
+		}
+		finally
+		{
+			out.close();
+		}
+		System.out.println("Wrote " + list.getCount() + " puzzles, " + file.length() + " bytes to " + file);
+	}
+}
@@ -0,0 +1,127 @@
+package com.platonix.ptorzot.tools;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.platonix.ptorzot.core.GameSession;
+import com.platonix.ptorzot.core.RecordedSession;
+import com.platonix.ptorzot.core.SessionReplay;
+
+// Replays recorded sessions (see RecordedSession) through the game's rules engine.
+// -print writes where every session ended, one line per session, to diff against an earlier replay.
+// -repeat replays the whole file over and over, to profile, and reports the throughput.
+// -generate writes random sessions, random button presses over random numbers and targets.
+//
+// Usage: ReplaySessions [-repeat n] [-print] <sessions file>
+//        ReplaySessions -generate n <sessions file> [seed]
+public class ReplaySessions
+{
+	private static final int INPUTS_PER_SESSION = 24;
+	private static final String INPUTS = "01234+-*/" + RecordedSession.BACK;
+
+	private static List<RecordedSession> read(String file) throws IOException
+	{
+		List<RecordedSession> sessions = new ArrayList<RecordedSession>();
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+		try
+		{
+			String line;
+			while((line = reader.readLine())!=null)
+				if(line.trim().length()>0 && !line.startsWith("#"))
+					sessions.add(RecordedSession.parse(line));
+		}
+		finally
+		{
+			reader.close();
+		}
+		return sessions;
+	}
+
+	private static void generate(int count, String file, long seed) throws IOException
+	{
+		Random random = new Random(seed);
+		PrintWriter out = new PrintWriter(new FileWriter(file));
+		try
+		{
+			for(int i=0; i<count; i++)
+			{
+				int[] numbers = new int[5];
+				for(int j=0; j<numbers.length; j++)
+					numbers[j] = random.nextInt(9) + 1;
+				StringBuilder inputs = new StringBuilder();
+				for(int j=0; j<INPUTS_PER_SESSION; j++)
+					inputs.append(INPUTS.charAt(random.nextInt(INPUTS.length())));
+				out.println(new RecordedSession(random.nextInt(3), numbers, random.nextInt(121), inputs.toString()));
+			}
+		}
+		finally
+		{
+			out.close();
+		}
+		System.out.println("Wrote " + count + " sessions to " + file);
+	}
+
+	private static void replay(List<RecordedSession> sessions, int repeat, boolean print)
+	{
+		SessionReplay replay = new SessionReplay();
+		long start = System.nanoTime();
+		for(int r=0; r<repeat; r++)
+			for(RecordedSession session: sessions)
+			{
+				GameSession result = replay.replay(session);
+				if(print && r==0)
+					System.out.println(SessionReplay.describe(result));
+			}
+		double seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+
+		if(print)
+			return;
+		System.out.println(String.format("%d sessions, %d inputs in %.2fs: %.0f sessions/s, %.0f inputs/s",
+				replay.getSessions(), replay.getInputs(), seconds, replay.getSessions() / seconds, replay.getInputs() / seconds));
+		System.out.println("Solved: " + replay.getSolved());
+		for(GameSession.Result result: GameSession.Result.values())
+			System.out.println(result + ": " + replay.getResultCount(result));
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		if(args.length>=3 && args[0].equals("-generate"))
+		{
+			generate(Integer.parseInt(args[1]), args[2], args.length>3 ? Long.parseLong(args[3]) : 0);
+			return;
+		}
+
+		int repeat = 1;
+		boolean print = false;
+		int arg = 0;
+		while(arg<args.length-1)
+		{
+			if(args[arg].equals("-repeat"))
+			{
+				repeat = Integer.parseInt(args[arg+1]);
+				arg += 2;
+			}
+			else if(args[arg].equals("-print"))
+			{
+				print = true;
+				arg++;
+			}
+			else
+				break;
+		}
+		if(arg!=args.length-1)
+		{
+			System.err.println("Usage: ReplaySessions [-repeat n] [-print] <sessions file>");
+			System.err.println("       ReplaySessions -generate n <sessions file> [seed]");
+			System.exit(1);
+		}
+
+		replay(read(args[arg]), repeat, print);
+	}
+}